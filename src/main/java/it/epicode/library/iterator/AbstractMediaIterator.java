@@ -6,20 +6,19 @@ import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public abstract class AbstractMediaIterator implements MediaIterator {
+    // Current view; shares originalList when unfiltered, so it may be read-only
     protected List<Media> mediaList;
     protected int currentPosition;
     protected Predicate<Media> filter;
     protected final List<Media> originalList;
 
-    protected AbstractMediaIterator(List<Media> mediaList) {
-        this.originalList = new ArrayList<>(Objects.requireNonNull(mediaList, "Media list cannot be null"));
-        this.mediaList = new ArrayList<>(this.originalList);
-        this.currentPosition = 0;
-        this.filter = null;
-    }
-
-    protected AbstractMediaIterator(List<Media> mediaList, Predicate<Media> filter) {
-        this.originalList = new ArrayList<>(Objects.requireNonNull(mediaList, "Media list cannot be null"));
+    /**
+     * Takes over a list the caller built for this iterator and will not touch again,
+     * avoiding a defensive copy.
+     */
+    protected AbstractMediaIterator(List<Media> ownedList, Predicate<Media> filter) {
+        this.originalList = Collections.unmodifiableList(
+                Objects.requireNonNull(ownedList, "Media list cannot be null"));
         this.filter = filter;
         this.mediaList = applyFilter(this.originalList, filter);
         this.currentPosition = 0;
@@ -92,11 +91,11 @@ public abstract class AbstractMediaIterator implements MediaIterator {
     }
 
     /**
-     * Applies the filter to the media list.
+     * Applies the filter to the media list. Without a filter the list itself is returned.
      */
     protected List<Media> applyFilter(List<Media> list, Predicate<Media> filter) {
         if (filter == null) {
-            return new ArrayList<>(list);
+            return list;
         }
 
         return list.stream()
@@ -3,6 +3,7 @@ package it.epicode.library.iterator;
 import it.epicode.library.model.media.Media;
 import it.epicode.library.model.structure.Collection;
 import java.util.function.Predicate;
+import java.util.ArrayList;
 import java.util.Comparator;
 
 public class CollectionIterator extends AbstractMediaIterator {
@@ -17,11 +18,27 @@ public class CollectionIterator extends AbstractMediaIterator {
         AUTHOR_DESC,
         ACQUISITION_DATE_ASC,
         ACQUISITION_DATE_DESC,
-        AVAILABILITY
+        AVAILABILITY;
+
+        /**
+         * Gets the comparator for this order, or null for NONE.
+         */
+        public Comparator<Media> comparator() {
+            return switch (this) {
+                case TITLE_ASC -> Comparator.comparing(Media::getTitle, String.CASE_INSENSITIVE_ORDER);
+                case TITLE_DESC -> Comparator.comparing(Media::getTitle, String.CASE_INSENSITIVE_ORDER).reversed();
+                case AUTHOR_ASC -> Comparator.comparing(Media::getMainAuthor, String.CASE_INSENSITIVE_ORDER);
+                case AUTHOR_DESC -> Comparator.comparing(Media::getMainAuthor, String.CASE_INSENSITIVE_ORDER).reversed();
+                case ACQUISITION_DATE_ASC -> Comparator.comparing(Media::getAcquisitionDate);
+                case ACQUISITION_DATE_DESC -> Comparator.comparing(Media::getAcquisitionDate).reversed();
+                case AVAILABILITY -> Comparator.comparing(Media::isAvailable).reversed(); // Available first
+                case NONE -> null;
+            };
+        }
     }
 
     public CollectionIterator(Collection collection) {
-        super(collection.getAllMedia());
+        super(collection.getAllMedia(), null);
         this.collection = collection;
         this.sortOrder = SortOrder.NONE;
     }
@@ -56,28 +73,16 @@ public class CollectionIterator extends AbstractMediaIterator {
             return;
         }
 
-        Comparator<Media> comparator = getComparator(sortOrder);
+        Comparator<Media> comparator = sortOrder.comparator();
         if (comparator != null) {
+            // The unfiltered view shares the read-only original list
+            if (mediaList == originalList) {
+                mediaList = new ArrayList<>(originalList);
+            }
             mediaList.sort(comparator);
         }
     }
 
-    /**
-     * Gets the appropriate comparator for the sort order.
-     */
-    private Comparator<Media> getComparator(SortOrder order) {
-        return switch (order) {
-            case TITLE_ASC -> Comparator.comparing(Media::getTitle, String.CASE_INSENSITIVE_ORDER);
-            case TITLE_DESC -> Comparator.comparing(Media::getTitle, String.CASE_INSENSITIVE_ORDER).reversed();
-            case AUTHOR_ASC -> Comparator.comparing(Media::getMainAuthor, String.CASE_INSENSITIVE_ORDER);
-            case AUTHOR_DESC -> Comparator.comparing(Media::getMainAuthor, String.CASE_INSENSITIVE_ORDER).reversed();
-            case ACQUISITION_DATE_ASC -> Comparator.comparing(Media::getAcquisitionDate);
-            case ACQUISITION_DATE_DESC -> Comparator.comparing(Media::getAcquisitionDate).reversed();
-            case AVAILABILITY -> Comparator.comparing(Media::isAvailable).reversed(); // Available first
-            default -> null;
-        };
-    }
-
     /**
      * Gets only available media.
      */
@@ -11,7 +11,7 @@ public class CompositeIterator extends AbstractMediaIterator {
     private final boolean depthFirst;
 
     public CompositeIterator(LibraryComponent component) {
-        super(collectAllMedia(component, true));
+        super(collectAllMedia(component, true), null);
         this.component = component;
         this.depthFirst = true;
     }
@@ -23,7 +23,7 @@ public class CompositeIterator extends AbstractMediaIterator {
     }
 
     public CompositeIterator(LibraryComponent component, boolean depthFirst) {
-        super(collectAllMedia(component, depthFirst));
+        super(collectAllMedia(component, depthFirst), null);
         this.component = component;
         this.depthFirst = depthFirst;
     }
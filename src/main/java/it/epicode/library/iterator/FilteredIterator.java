@@ -2,6 +2,7 @@ package it.epicode.library.iterator;
 
 import it.epicode.library.model.media.Media;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
@@ -11,7 +12,7 @@ public class FilteredIterator extends AbstractMediaIterator {
     private final List<Predicate<Media>> filterChain;
 
     public FilteredIterator(List<Media> mediaList, String source) {
-        super(mediaList);
+        super(new ArrayList<>(Objects.requireNonNull(mediaList, "Media list cannot be null")), null);
         this.originalSource = source;
         this.filterChain = new ArrayList<>();
     }
@@ -39,24 +40,20 @@ public class FilteredIterator extends AbstractMediaIterator {
      */
     public FilteredIterator clearFilters() {
         filterChain.clear();
-        this.mediaList = new ArrayList<>(originalList);
+        this.mediaList = originalList;
         reset();
         return this;
     }
 
     /**
-     * Applies all filters in the chain.
+     * Applies all filters in the chain in a single pass over the original list.
      */
     private void applyFilterChain() {
-        List<Media> filteredList = new ArrayList<>(originalList);
-
-        for (Predicate<Media> filter : filterChain) {
-            filteredList = filteredList.stream()
-                    .filter(filter)
-                    .collect(Collectors.toList());
-        }
-
-        this.mediaList = filteredList;
+        this.mediaList = filterChain.isEmpty()
+                ? originalList
+                : originalList.stream()
+                        .filter(media -> filterChain.stream().allMatch(filter -> filter.test(media)))
+                        .collect(Collectors.toList());
         this.currentPosition = Math.min(currentPosition, mediaList.size());
     }
 
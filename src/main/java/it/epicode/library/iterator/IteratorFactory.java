@@ -2,64 +2,64 @@ package it.epicode.library.iterator;
 
 import it.epicode.library.model.media.Media;
 import it.epicode.library.model.structure.LibraryComponent;
+import it.epicode.library.repository.MediaQuery;
+import it.epicode.library.repository.MediaRepository;
+import it.epicode.library.util.TopK;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.function.Predicate;
 
 public class IteratorFactory {
 
     /**
-     * Creates common media filters.
+     * Creates common media filters. They are MediaQuery nodes, so MediaRepository
+     * can plan them against its indexes instead of scanning.
      */
     public static class Filters {
 
-        public static Predicate<Media> availableOnly() {
-            return Media::isAvailable;
+        public static MediaQuery availableOnly() {
+            return MediaQuery.available();
         }
 
-        public static Predicate<Media> byType(String mediaType) {
-            return media -> media.getMediaType().equals(mediaType);
+        public static MediaQuery byType(String mediaType) {
+            return MediaQuery.type(mediaType);
         }
 
-        public static Predicate<Media> byAuthor(String author) {
-            return media -> media.getMainAuthor().toLowerCase().contains(author.toLowerCase());
+        public static MediaQuery byAuthor(String author) {
+            return MediaQuery.authorContains(author);
         }
 
-        public static Predicate<Media> byTitle(String title) {
-            return media -> media.getTitle().toLowerCase().contains(title.toLowerCase());
+        public static MediaQuery byTitle(String title) {
+            return MediaQuery.titleContains(title);
         }
 
-        public static Predicate<Media> acquiredAfter(LocalDate date) {
-            return media -> media.getAcquisitionDate().isAfter(date);
+        public static MediaQuery acquiredAfter(LocalDate date) {
+            return MediaQuery.acquiredAfter(date);
         }
 
-        public static Predicate<Media> acquiredBefore(LocalDate date) {
-            return media -> media.getAcquisitionDate().isBefore(date);
+        public static MediaQuery acquiredBefore(LocalDate date) {
+            return MediaQuery.acquiredBefore(date);
         }
 
-        public static Predicate<Media> inLocation(String location) {
-            return media -> media.getLocation().toLowerCase().contains(location.toLowerCase());
+        public static MediaQuery inLocation(String location) {
+            return MediaQuery.locationContains(location);
         }
 
         /**
          * Combines multiple filters with AND logic.
          */
-        public static Predicate<Media> and(Predicate<Media>... filters) {
-            Predicate<Media> combined = media -> true;
-            for (Predicate<Media> filter : filters) {
-                combined = combined.and(filter);
-            }
-            return combined;
+        @SafeVarargs
+        public static MediaQuery and(Predicate<Media>... filters) {
+            return MediaQuery.and(Arrays.asList(filters));
         }
 
         /**
          * Combines multiple filters with OR logic.
          */
-        public static Predicate<Media> or(Predicate<Media>... filters) {
-            Predicate<Media> combined = media -> false;
-            for (Predicate<Media> filter : filters) {
-                combined = combined.or(filter);
-            }
-            return combined;
+        @SafeVarargs
+        public static MediaQuery or(Predicate<Media>... filters) {
+            return MediaQuery.or(Arrays.asList(filters));
         }
     }
 
@@ -79,6 +79,14 @@ public class IteratorFactory {
         return new CompositeIterator(component, Filters.acquiredAfter(cutoffDate));
     }
 
+    /**
+     * Iterates over the media acquired in the last given number of days, newest first,
+     * served from the repository's acquisition index instead of a full scan.
+     */
+    public static MediaIterator createRecentAcquisitionsIterator(MediaRepository repository, int days) {
+        return new FilteredIterator(repository.findRecentAcquisitions(days, Integer.MAX_VALUE), "recent acquisitions");
+    }
+
     public static MediaIterator createSearchIterator(LibraryComponent component, String query) {
         Predicate<Media> searchFilter = Filters.or(
                 Filters.byTitle(query),
@@ -86,4 +94,26 @@ public class IteratorFactory {
         );
         return new CompositeIterator(component, searchFilter);
     }
-}
\ No newline at end of file
+
+    /**
+     * Iterates over the first k matching media of the hierarchy in comparator order.
+     * The tree is walked through a bounded heap, so only k media are ever held.
+     */
+    public static MediaIterator createTopKIterator(LibraryComponent component, Predicate<Media> filter,
+                                                   Comparator<? super Media> comparator, int k) {
+        TopK<Media> top = new TopK<>(comparator, k);
+        collectTopK(component, filter, top);
+        return new FilteredIterator(top.toSortedList(), component.getName());
+    }
+
+    private static void collectTopK(LibraryComponent component, Predicate<Media> filter, TopK<Media> top) {
+        for (Media media : component.getDirectMedia()) {
+            if (filter == null || filter.test(media)) {
+                top.offer(media);
+            }
+        }
+        for (LibraryComponent child : component.getChildren()) {
+            collectTopK(child, filter, top);
+        }
+    }
+}
@@ -20,6 +20,17 @@ public class AudioBook extends Media {
         this.format = "MP3";
     }
 
+    /**
+     * Restores an audiobook with a known id, e.g. when decoding a stored record.
+     */
+    public AudioBook(String id, String title, String author, String narrator, int durationMinutes) {
+        super(id, title, "");
+        this.author = Objects.requireNonNull(author, "Author cannot be null");
+        this.narrator = Objects.requireNonNull(narrator, "Narrator cannot be null");
+        this.durationMinutes = durationMinutes;
+        this.format = "MP3";
+    }
+
     @Override
     public String getMediaType() {
         return "AUDIOBOOK";
@@ -21,6 +21,16 @@ public class Book extends Media {
         this.language = "Italian";
     }
 
+    /**
+     * Restores a book with a known id, e.g. when decoding a stored record.
+     */
+    public Book(String id, String title, String author, String isbn) {
+        super(id, title, "");
+        this.author = Objects.requireNonNull(author, "Author cannot be null");
+        this.isbn = Objects.requireNonNull(isbn, "ISBN cannot be null");
+        this.language = "Italian";
+    }
+
     public Book(String title, String author, String isbn, String publisher, int pages) {
         this(title, author, isbn);
         this.publisher = publisher;
@@ -21,6 +21,17 @@ public class DVD extends Media {
         this.hasSubtitles = false;
     }
 
+    /**
+     * Restores a DVD with a known id, e.g. when decoding a stored record.
+     */
+    public DVD(String id, String title, String director, int runtimeMinutes) {
+        super(id, title, "");
+        this.director = Objects.requireNonNull(director, "Director cannot be null");
+        this.runtimeMinutes = runtimeMinutes;
+        this.language = "Italian";
+        this.hasSubtitles = false;
+    }
+
     @Override
     public String getMediaType() {
         return "DVD";
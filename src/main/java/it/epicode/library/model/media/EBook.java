@@ -22,6 +22,18 @@ public class EBook extends Media {
         this.downloadCount = 0;
     }
 
+    /**
+     * Restores an ebook with a known id, e.g. when decoding a stored record.
+     */
+    public EBook(String id, String title, String author, String format, double fileSizeMB) {
+        super(id, title, "");
+        this.author = Objects.requireNonNull(author, "Author cannot be null");
+        this.format = Objects.requireNonNull(format, "Format cannot be null");
+        this.fileSizeMB = fileSizeMB;
+        this.hasDRM = false;
+        this.downloadCount = 0;
+    }
+
     @Override
     public String getMediaType() {
         return "EBOOK";
@@ -68,4 +80,8 @@ public class EBook extends Media {
     public void setHasDRM(boolean hasDRM) { this.hasDRM = hasDRM; }
 
     public int getDownloadCount() { return downloadCount; }
+    public void setDownloadCount(int downloadCount) {
+        if (downloadCount < 0) throw new IllegalArgumentException("Download count cannot be negative");
+        this.downloadCount = downloadCount;
+    }
 }
\ No newline at end of file
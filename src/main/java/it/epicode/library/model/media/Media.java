@@ -21,7 +21,14 @@ public abstract class Media implements Serializable, Identifiable {
     protected String location;
 
     protected Media(String title, String description) {
-        this.id = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), title, description);
+    }
+
+    /**
+     * Restores a media item with a known id, e.g. when decoding a stored record.
+     */
+    protected Media(String id, String title, String description) {
+        this.id = Objects.requireNonNull(id, "ID cannot be null");
         this.title = Objects.requireNonNull(title, "Title cannot be null");
         this.description = description;
         this.acquisitionDate = LocalDate.now();
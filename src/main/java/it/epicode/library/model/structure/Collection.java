@@ -27,6 +27,16 @@ public class Collection extends LibraryComponent {
         this.maxItems = 500;
     }
 
+    /**
+     * Restores a collection with a known id, e.g. when decoding a stored record.
+     */
+    public Collection(String id, String name, String description, String theme) {
+        super(id, name, description);
+        this.theme = theme;
+        this.isSpecialCollection = false;
+        this.maxItems = 500;
+    }
+
     @Override
     public void add(LibraryComponent component) {
         // Collections are leaf nodes - they cannot contain other components
@@ -40,6 +40,16 @@ public class Library extends LibraryComponent implements Serializable {
         this.maxCapacity = 10000;
     }
 
+    /**
+     * Restores a library with a known id, e.g. when decoding a stored record.
+     */
+    public Library(String id, String name, String address, String description) {
+        super(id, name, description);
+        this.address = address;
+        this.establishedDate = LocalDateTime.now();
+        this.maxCapacity = 10000;
+    }
+
     @Override
     public void add(LibraryComponent component) {
         if (component == null) {
@@ -173,20 +183,17 @@ public class Library extends LibraryComponent implements Serializable {
         private final Map<String, Integer> mediaTypeCount;
         private final int availableMedia;
 
+        /**
+         * Gathers every figure in a single walk of the tree, without copying media lists.
+         */
         public LibraryStatistics(Library library) {
-            this.totalMedia = library.getMediaCount();
-            this.totalSections = library.getSections().size();
-            this.totalCollections = library.getSections().stream()
-                    .mapToInt(s -> s.getCollections().size())
-                    .sum();
-
-            List<Media> allMedia = library.getAllMedia();
-            this.availableMedia = (int) allMedia.stream().filter(Media::isAvailable).count();
-            this.mediaTypeCount = allMedia.stream()
-                    .collect(Collectors.groupingBy(
-                            Media::getMediaType,
-                            Collectors.summingInt(m -> 1)
-                    ));
+            Tally tally = new Tally();
+            tally.visit(library);
+            this.totalMedia = tally.media;
+            this.totalSections = tally.sections;
+            this.totalCollections = tally.collections;
+            this.availableMedia = tally.available;
+            this.mediaTypeCount = tally.types;
         }
 
         // Getters
@@ -202,5 +209,34 @@ public class Library extends LibraryComponent implements Serializable {
             return String.format("LibraryStatistics{total=%d, available=%d, sections=%d, collections=%d, types=%s}",
                     totalMedia, availableMedia, totalSections, totalCollections, mediaTypeCount);
         }
+
+        /**
+         * Running totals accumulated while walking the component tree.
+         */
+        private static final class Tally {
+            private int media;
+            private int available;
+            private int sections;
+            private int collections;
+            private final Map<String, Integer> types = new HashMap<>();
+
+            private void visit(LibraryComponent component) {
+                if (component instanceof Section) {
+                    sections++;
+                } else if (component instanceof Collection) {
+                    collections++;
+                }
+                for (Media item : component.mediaItems) {
+                    media++;
+                    if (item.isAvailable()) {
+                        available++;
+                    }
+                    types.merge(item.getMediaType(), 1, Integer::sum);
+                }
+                for (LibraryComponent child : component.children) {
+                    visit(child);
+                }
+            }
+        }
     }
 }
\ No newline at end of file
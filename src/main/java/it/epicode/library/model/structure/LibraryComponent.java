@@ -30,7 +30,14 @@ public abstract class LibraryComponent implements Serializable {
     }
 
     protected LibraryComponent(String name, String description) {
-        this.id = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), name, description);
+    }
+
+    /**
+     * Restores a component with a known id, e.g. when decoding a stored record.
+     */
+    protected LibraryComponent(String id, String name, String description) {
+        this.id = Objects.requireNonNull(id, "ID cannot be null");
         this.name = Objects.requireNonNull(name, "Name cannot be null");
         this.description = description;
         // Thread-safe collections for concurrent access
@@ -24,6 +24,15 @@ public class Section extends LibraryComponent {
         this.floor = "Ground Floor";
     }
 
+    /**
+     * Restores a section with a known id, e.g. when decoding a stored record.
+     */
+    public Section(String id, String name, String description, String category) {
+        super(id, name, description);
+        this.category = category;
+        this.floor = "Ground Floor";
+    }
+
     @Override
     public void add(LibraryComponent component) {
         if (component == null) {
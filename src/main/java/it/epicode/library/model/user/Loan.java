@@ -30,6 +30,22 @@ public class Loan implements Serializable, Identifiable {
         this.maxRenewals = 2; // Default max renewals
     }
 
+    /**
+     * Restores a loan with a known id and state, e.g. when decoding a stored record.
+     */
+    public Loan(String id, String userId, String mediaId, LocalDate loanDate, LocalDate dueDate,
+                LocalDate returnDate, boolean isReturned, int renewalCount, int maxRenewals) {
+        this.id = Objects.requireNonNull(id, "ID cannot be null");
+        this.userId = Objects.requireNonNull(userId, "User ID cannot be null");
+        this.mediaId = Objects.requireNonNull(mediaId, "Media ID cannot be null");
+        this.loanDate = loanDate;
+        this.dueDate = dueDate;
+        this.returnDate = returnDate;
+        this.isReturned = isReturned;
+        this.renewalCount = renewalCount;
+        this.maxRenewals = maxRenewals;
+    }
+
     @Override
     public String getId() {
         return id;
@@ -19,7 +19,14 @@ public class User implements Serializable, Identifiable {
     private int maxLoans;
 
     public User(String firstName, String lastName, String email) {
-        this.id = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), firstName, lastName, email);
+    }
+
+    /**
+     * Restores a user with a known id, e.g. when decoding a stored record.
+     */
+    public User(String id, String firstName, String lastName, String email) {
+        this.id = Objects.requireNonNull(id, "ID cannot be null");
         this.firstName = Objects.requireNonNull(firstName, "First name cannot be null");
         this.lastName = Objects.requireNonNull(lastName, "Last name cannot be null");
         this.email = Objects.requireNonNull(email, "Email cannot be null");
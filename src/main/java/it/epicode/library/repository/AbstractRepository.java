@@ -1,20 +1,63 @@
 package it.epicode.library.repository;
 
+import it.epicode.library.repository.index.RoaringBitmap;
+import it.epicode.library.repository.storage.WriteAheadLog;
+import it.epicode.library.util.TopK;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
 public abstract class AbstractRepository<T extends Identifiable> implements Repository<T> {
 
+    /**
+     * Locking strategy used to coordinate readers and writers.
+     */
+    public enum ConcurrencyMode {
+        /** One ReadWriteLock for the whole repository: reads share, every write is exclusive. */
+        GLOBAL_LOCK,
+        /**
+         * Lock-free reads on the backing map. Writes take a per-key stripe, but
+         * secondary index maintenance still goes through each index's own lock, so
+         * concurrent writers serialize there: only reads scale with threads.
+         */
+        STRIPED
+    }
+
+    // Number of write stripes, must be a power of two
+    private static final int STRIPE_COUNT = 64;
+
+    // Ordinal-to-entity pages hold 1024 slots each
+    private static final int ORDINAL_PAGE_SHIFT = 10;
+    private static final int ORDINAL_PAGE_MASK = (1 << ORDINAL_PAGE_SHIFT) - 1;
+
+    // Stores at least this large are scanned in parallel by top-k queries
+    private static final int PARALLEL_SCAN_THRESHOLD = 8192;
+
+    // Smallest bulk-load partition worth handing to its own worker
+    private static final int MIN_BULK_PARTITION = 4096;
+
     protected final Logger logger = Logger.getLogger(getClass().getName());
 
-    // Thread-safe storage using ConcurrentHashMap
-    protected final Map<String, T> storage = new ConcurrentHashMap<>();
+    // Thread-safe storage, a ConcurrentHashMap unless a subclass plugs in another map
+    protected final Map<String, T> storage;
+
+    // Whether storage hands out the stored instances; if not, the ordinal table keeps ids
+    private final boolean retainsEntities;
 
     // ReadWriteLock for complex operations requiring consistency
     protected final ReadWriteLock lock = new ReentrantReadWriteLock();
@@ -22,40 +65,79 @@ public abstract class AbstractRepository<T extends Identifiable> implements Repo
     // Secondary indexes for performance (example: by type)
     protected final Map<String, Set<String>> secondaryIndexes = new ConcurrentHashMap<>();
 
+    // Dense int ordinals for secondary indexes: id -> ordinal and ordinal -> entity (or id).
+    // Pages are never copied, so a slot write can't be lost to a concurrent resize.
+    private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private volatile Object[][] entityPages = new Object[1][1 << ORDINAL_PAGE_SHIFT];
+    private final Object ordinalMonitor = new Object();
+    private int nextOrdinal; // guarded by ordinalMonitor
+    private int[] freeOrdinals = new int[16]; // guarded by ordinalMonitor
+    private int freeOrdinalCount; // guarded by ordinalMonitor
+
+    // Version history for lock-free snapshot reads; null when storage decodes on read
+    private final VersionChains<T> versions;
+
+    // Modification version for storage without version history
+    private final AtomicLong modificationVersion = new AtomicLong();
+
+    private final ConcurrencyMode concurrencyMode;
+
+    // Log every mutation is appended to before it is applied, null when not durable
+    private volatile WriteAheadLog<T> writeAheadLog;
+
+    // First failure to commit an applied mutation to the log; writes are refused once set
+    private volatile RuntimeException durabilityFailure;
+
+    // Write locks striped by key over the backing map, only used in STRIPED mode
+    private final Lock[] stripes;
+
+    protected AbstractRepository() {
+        this(ConcurrencyMode.GLOBAL_LOCK);
+    }
+
+    protected AbstractRepository(ConcurrencyMode concurrencyMode) {
+        this(concurrencyMode, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Creates a repository on a custom thread-safe storage map. Maps other than
+     * ConcurrentHashMap are assumed to decode values on read (e.g. off-heap
+     * storage), so entities are resolved through the map instead of being cached.
+     */
+    protected AbstractRepository(ConcurrencyMode concurrencyMode, Map<String, T> storage) {
+        this.storage = Objects.requireNonNull(storage, "Storage cannot be null");
+        this.retainsEntities = storage instanceof ConcurrentHashMap;
+        this.versions = retainsEntities ? new VersionChains<>() : null;
+        this.concurrencyMode = Objects.requireNonNull(concurrencyMode, "Concurrency mode cannot be null");
+        this.stripes = new Lock[concurrencyMode == ConcurrencyMode.STRIPED ? STRIPE_COUNT : 0];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
     @Override
     public Optional<T> findById(String id) {
         if (id == null) return Optional.empty();
 
-        lock.readLock().lock();
-        try {
-            return Optional.ofNullable(storage.get(id));
-        } finally {
-            lock.readLock().unlock();
-        }
+        return readLocked(() -> Optional.ofNullable(storage.get(id)));
     }
 
     @Override
     public List<T> findAll() {
-        lock.readLock().lock();
-        try {
-            return new ArrayList<>(storage.values());
-        } finally {
-            lock.readLock().unlock();
-        }
+        return scan(entities -> {
+            List<T> result = new ArrayList<>();
+            entities.forEach(result::add);
+            return result;
+        });
     }
 
     @Override
     public List<T> findAll(Predicate<T> filter) {
         if (filter == null) return findAll();
 
-        lock.readLock().lock();
-        try {
-            return storage.values().stream()
-                    .filter(filter)
-                    .collect(Collectors.toList());
-        } finally {
-            lock.readLock().unlock();
-        }
+        return scan(entities -> StreamSupport.stream(entities.spliterator(), false)
+                .filter(filter)
+                .collect(Collectors.toList()));
     }
 
     @Override
@@ -64,10 +146,9 @@ public abstract class AbstractRepository<T extends Identifiable> implements Repo
             throw new IllegalArgumentException("Entity and ID cannot be null");
         }
 
-        lock.writeLock().lock();
-        try {
-            T previous = storage.put(entity.getId(), entity);
-            updateSecondaryIndexes(entity, previous);
+        LogPosition position = writeLocked(entity.getId(), () -> {
+            LogPosition appended = logged(log -> log.appendSave(entity));
+            T previous = store(entity);
 
             if (previous == null) {
                 logger.log(Level.INFO, "Created new entity: {0}", entity.getId());
@@ -75,10 +156,11 @@ public abstract class AbstractRepository<T extends Identifiable> implements Repo
                 logger.log(Level.INFO, "Updated entity: {0}", entity.getId());
             }
 
-            return entity;
-        } finally {
-            lock.writeLock().unlock();
-        }
+            return appended;
+        });
+        // Wait for durability outside the lock, so concurrent writers share a flush
+        awaitDurable(position);
+        return entity;
     }
 
     @Override
@@ -86,39 +168,177 @@ public abstract class AbstractRepository<T extends Identifiable> implements Repo
         if (entities == null) return Collections.emptyList();
 
         List<T> savedEntities = new ArrayList<>();
-        lock.writeLock().lock();
-        try {
+        LogPosition position = LogPosition.NONE;
+        if (concurrencyMode == ConcurrencyMode.STRIPED) {
+            // Each entity only needs its own stripe; writers still queue on the index locks
             for (T entity : entities) {
                 if (entity != null && entity.getId() != null) {
-                    T previous = storage.put(entity.getId(), entity);
-                    updateSecondaryIndexes(entity, previous);
+                    position = writeLocked(entity.getId(), () -> {
+                        LogPosition appended = logged(log -> log.appendSave(entity));
+                        store(entity);
+                        return appended;
+                    });
                     savedEntities.add(entity);
                 }
             }
+        } else {
+            lock.writeLock().lock();
+            try {
+                for (T entity : entities) {
+                    if (entity != null && entity.getId() != null) {
+                        savedEntities.add(entity);
+                    }
+                }
+                if (!savedEntities.isEmpty()) {
+                    position = logged(log -> log.appendSaves(savedEntities));
+                }
+                savedEntities.forEach(this::store);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        // One wait covers the whole batch
+        awaitDurable(position);
 
-            logger.log(Level.INFO, "Batch saved {0} entities", savedEntities.size());
-            return savedEntities;
-        } finally {
-            lock.writeLock().unlock();
+        logger.log(Level.INFO, "Batch saved {0} entities", savedEntities.size());
+        return savedEntities;
+    }
+
+    /**
+     * Loads a batch without per-entity locking. Index entries for new ids are built in
+     * parallel fragments on the fork-join pool and merged; the batch is logged as one
+     * group only once they are built, so a failed load never reaches the log. The new
+     * ids are bound to their ordinals in one swap and committed as a single version,
+     * so snapshots, scans (findAll, topK, findAllAsMap) and index queries see all of
+     * them or none. findById, existsById, count and stream read the live map without
+     * a lock and may see part of the batch while it is being published. Ids already
+     * stored are updated one by one. Writers wait until the load completes.
+     */
+    public List<T> bulkLoad(Collection<T> entities) {
+        if (entities == null) return Collections.emptyList();
+
+        Map<String, T> batch = new LinkedHashMap<>();
+        for (T entity : entities) {
+            if (entity != null && entity.getId() != null) {
+                batch.put(entity.getId(), entity);
+            }
         }
+
+        return exclusivelyLocked(() -> {
+            Map<String, T> fresh = new LinkedHashMap<>();
+            List<T> updates = new ArrayList<>();
+            batch.forEach((id, entity) -> {
+                if (storage.containsKey(id)) {
+                    updates.add(entity);
+                } else {
+                    fresh.put(id, entity);
+                }
+            });
+
+            List<T> freshEntities = new ArrayList<>(fresh.values());
+            int[] freshOrdinals = new int[freshEntities.size()];
+            for (int i = 0; i < freshOrdinals.length; i++) {
+                freshOrdinals[i] = allocateOrdinal(freshEntities.get(i).getId());
+            }
+
+            IndexFragment fragment;
+            try {
+                fragment = buildFragments(freshEntities, freshOrdinals);
+                // Durable only once nothing but publishing is left, which cannot fail
+                if (!batch.isEmpty()) {
+                    awaitDurable(logged(log -> log.appendSaves(batch.values())));
+                }
+            } catch (RuntimeException e) {
+                fresh.keySet().forEach(this::releaseOrdinal);
+                throw e;
+            }
+
+            // New ordinals resolve to nothing until bindOrdinals, so published postings stay hidden
+            if (fragment != null) {
+                fragment.publish();
+            }
+            storage.putAll(fresh);
+            bindOrdinals(freshEntities, freshOrdinals);
+            if (versions != null) {
+                versions.commitAll(fresh);
+            } else {
+                modificationVersion.incrementAndGet();
+            }
+
+            updates.forEach(this::store);
+
+            logger.log(Level.INFO, "Bulk loaded {0} new and {1} updated entities",
+                    new Object[]{fresh.size(), updates.size()});
+            return new ArrayList<>(batch.values());
+        });
+    }
+
+    /**
+     * Splits a batch into partitions, builds one index fragment per partition in
+     * parallel and merges them pairwise. Returns null for an empty batch.
+     */
+    private IndexFragment buildFragments(List<T> entities, int[] ordinals) {
+        if (entities.isEmpty()) {
+            return null;
+        }
+        int partitions = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4,
+                entities.size() / MIN_BULK_PARTITION));
+        int partitionSize = (entities.size() + partitions - 1) / partitions;
+
+        return IntStream.range(0, partitions).parallel()
+                .mapToObj(partition -> {
+                    int from = partition * partitionSize;
+                    int to = Math.min(entities.size(), from + partitionSize);
+                    return buildIndexFragment(entities.subList(from, to), Arrays.copyOfRange(ordinals, from, to));
+                })
+                .reduce((left, right) -> {
+                    left.merge(right);
+                    return left;
+                })
+                .orElseThrow();
+    }
+
+    /**
+     * Binds freshly loaded entities to their ordinals by swapping in updated copies
+     * of the affected pages, so index readers never see half a batch.
+     * Must run while every writer is excluded.
+     */
+    private void bindOrdinals(List<T> entities, int[] ordinals) {
+        Object[][] pages = entityPages.clone();
+        boolean[] copied = new boolean[pages.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            int page = ordinals[i] >>> ORDINAL_PAGE_SHIFT;
+            if (!copied[page]) {
+                pages[page] = pages[page].clone();
+                copied[page] = true;
+            }
+            T entity = entities.get(i);
+            pages[page][ordinals[i] & ORDINAL_PAGE_MASK] = retainsEntities ? entity : entity.getId();
+        }
+        entityPages = pages;
     }
 
     @Override
     public boolean deleteById(String id) {
         if (id == null) return false;
 
-        lock.writeLock().lock();
-        try {
-            T removed = storage.remove(id);
-            if (removed != null) {
-                removeFromSecondaryIndexes(removed);
-                logger.log(Level.INFO, "Deleted entity: {0}", id);
-                return true;
+        LogPosition position = writeLocked(id, () -> {
+            if (!storage.containsKey(id)) {
+                return null;
             }
+            LogPosition appended = logged(log -> log.appendDelete(id));
+            T removed = storage.remove(id);
+            removeFromSecondaryIndexes(removed);
+            releaseOrdinal(id);
+            commitVersion(id, null);
+            logger.log(Level.INFO, "Deleted entity: {0}", id);
+            return appended;
+        });
+        if (position == null) {
             return false;
-        } finally {
-            lock.writeLock().unlock();
         }
+        awaitDurable(position);
+        return true;
     }
 
     @Override
@@ -128,15 +348,97 @@ public abstract class AbstractRepository<T extends Identifiable> implements Repo
 
     @Override
     public void deleteAll() {
-        lock.writeLock().lock();
-        try {
+        exclusivelyLocked(() -> {
+            awaitDurable(logged(WriteAheadLog::appendClear));
             int count = storage.size();
             storage.clear();
             secondaryIndexes.clear();
+            clearSecondaryIndexes();
+            resetOrdinals();
+            if (versions != null) {
+                versions.commitClear();
+            } else {
+                modificationVersion.incrementAndGet();
+            }
             logger.log(Level.INFO, "Deleted all {0} entities", count);
-        } finally {
-            lock.writeLock().unlock();
+            return null;
+        });
+    }
+
+    /**
+     * Starts appending every save and delete to the given log before applying it,
+     * waiting for each to commit under the log's durability mode; null detaches the
+     * current log. The caller keeps ownership of the log and closes it.
+     *
+     * A mutation is applied before its entry commits, so readers can see a write
+     * that is not durable yet. If the commit then fails, the write can't be taken
+     * back: the caller gets the failure and the repository stops accepting writes,
+     * checkpoints and log changes. Recover from the log into a new repository.
+     */
+    public void attachWriteAheadLog(WriteAheadLog<T> log) {
+        exclusivelyLocked(() -> {
+            checkWritable();
+            writeAheadLog = log;
+            return null;
+        });
+    }
+
+    /**
+     * Opens a snapshot for a checkpoint and switches to the next log in the same step,
+     * while writers are excluded: the snapshot holds every mutation logged to the
+     * current log and none of those logged to the one nextLog returns.
+     */
+    public RepositorySnapshot<T> openCheckpointSnapshot(UnaryOperator<WriteAheadLog<T>> nextLog) {
+        Objects.requireNonNull(nextLog, "Next log cannot be null");
+        return exclusivelyLocked(() -> {
+            // A checkpoint would make writes durable that their callers saw fail
+            checkWritable();
+            RepositorySnapshot<T> snapshot = openSnapshot();
+            try {
+                writeAheadLog = nextLog.apply(writeAheadLog);
+            } catch (RuntimeException e) {
+                snapshot.close();
+                throw e;
+            }
+            return snapshot;
+        });
+    }
+
+    /**
+     * Gets the attached write-ahead log, if any.
+     */
+    public Optional<WriteAheadLog<T>> getWriteAheadLog() {
+        return Optional.ofNullable(writeAheadLog);
+    }
+
+    /**
+     * Lazily walks the live storage without copying it or taking a lock. The stream is
+     * weakly consistent: it may or may not reflect writes made while it runs. It stops
+     * early under short-circuiting operations and splits for parallel execution.
+     */
+    @Override
+    public Stream<T> stream() {
+        return storage.values().stream();
+    }
+
+    /**
+     * Scans a consistent view through a bounded heap. Large stores are scanned in
+     * parallel, one heap per fragment, and the partial heaps are merged.
+     */
+    @Override
+    public List<T> topK(Predicate<T> filter, Comparator<? super T> comparator, int k) {
+        if (comparator == null) {
+            throw new IllegalArgumentException("Comparator cannot be null");
         }
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        if (k == 0) return Collections.emptyList();
+
+        boolean parallel = storage.size() >= PARALLEL_SCAN_THRESHOLD;
+        return scan(entities -> StreamSupport.stream(entities.spliterator(), parallel)
+                .filter(filter != null ? filter : entity -> true)
+                .collect(TopK.collector(comparator, k)));
     }
 
     @Override
@@ -153,38 +455,79 @@ public abstract class AbstractRepository<T extends Identifiable> implements Repo
     public Optional<T> findFirst(Predicate<T> filter) {
         if (filter == null) return Optional.empty();
 
-        lock.readLock().lock();
-        try {
-            return storage.values().stream()
-                    .filter(filter)
-                    .findFirst();
-        } finally {
-            lock.readLock().unlock();
-        }
+        return readLocked(() -> storage.values().stream()
+                .filter(filter)
+                .findFirst());
     }
 
     @Override
     public List<T> findByIds(Collection<String> ids) {
         if (ids == null || ids.isEmpty()) return Collections.emptyList();
 
-        lock.readLock().lock();
-        try {
-            return ids.stream()
-                    .map(storage::get)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-        } finally {
-            lock.readLock().unlock();
-        }
+        return readLocked(() -> ids.stream()
+                .map(storage::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
     }
 
     @Override
     public Map<String, T> findAllAsMap() {
-        lock.readLock().lock();
-        try {
-            return new HashMap<>(storage);
-        } finally {
-            lock.readLock().unlock();
+        return scan(entities -> {
+            Map<String, T> result = new HashMap<>();
+            entities.forEach(entity -> result.put(entity.getId(), entity));
+            return result;
+        });
+    }
+
+    /**
+     * Opens a consistent view of the repository at the latest committed version.
+     * Reading it takes no lock; writers keep committing meanwhile. Storage that
+     * decodes on read keeps no version history, so there the view is a copy made
+     * under the read lock.
+     */
+    public RepositorySnapshot<T> openSnapshot() {
+        if (versions == null) {
+            Map<String, T> copy = readLocked(() -> new LinkedHashMap<>(storage));
+            return new RepositorySnapshot<>(modificationVersion.get(),
+                    () -> copy.values().spliterator(), copy::get, () -> { });
+        }
+
+        long version = versions.open();
+        return new RepositorySnapshot<>(version,
+                () -> versions.spliterator(version),
+                id -> versions.get(id, version),
+                () -> versions.close(version));
+    }
+
+    /**
+     * Gets the number of writes committed so far; it changes whenever the contents do.
+     */
+    public long getModificationVersion() {
+        return versions != null ? versions.currentVersion() : modificationVersion.get();
+    }
+
+    /**
+     * Runs a full scan on a snapshot, or under the read lock when there is no version history.
+     */
+    private <R> R scan(Function<Iterable<T>, R> reader) {
+        if (versions == null) {
+            return readLocked(() -> reader.apply(storage.values()));
+        }
+        try (RepositorySnapshot<T> snapshot = openSnapshot()) {
+            return reader.apply(snapshot);
+        }
+    }
+
+    /**
+     * Publishes a write as a new version. Called after the indexes reflect the write,
+     * so a lock-free reader that sees the new version also sees every index change
+     * behind it, and a result cached under an older version is never served again.
+     */
+    private void commitVersion(String id, T value) {
+        if (versions != null) {
+            versions.commit(id, value);
+        } else {
+            modificationVersion.incrementAndGet();
         }
     }
 
@@ -193,34 +536,320 @@ public abstract class AbstractRepository<T extends Identifiable> implements Repo
         return new HashSet<>(storage.keySet());
     }
 
+    /**
+     * Appends to the attached log, if any. Must be called under the lock that orders
+     * the mutation, so the log sees mutations in the order they are applied.
+     */
+    private LogPosition logged(ToLongFunction<WriteAheadLog<T>> append) {
+        checkWritable();
+        WriteAheadLog<T> log = writeAheadLog;
+        return log != null ? new LogPosition(log, append.applyAsLong(log)) : LogPosition.NONE;
+    }
+
+    /**
+     * Waits for an applied mutation to commit. Readers may already have seen it, so a
+     * failure can't be rolled back: the repository stops accepting writes instead.
+     */
+    private void awaitDurable(LogPosition position) {
+        try {
+            position.sync();
+        } catch (RuntimeException e) {
+            if (durabilityFailure == null) {
+                durabilityFailure = e;
+                logger.log(Level.SEVERE, "Write-ahead log commit failed, rejecting further writes", e);
+            }
+            throw e;
+        }
+    }
+
+    private void checkWritable() {
+        RuntimeException failure = durabilityFailure;
+        if (failure != null) {
+            throw new IllegalStateException("Repository rejects writes after a failed log commit", failure);
+        }
+    }
+
+    /**
+     * Stores an entity, binds it to its ordinal and updates the secondary indexes.
+     * Must be called while the entity's key is write-locked.
+     */
+    private T store(T entity) {
+        T previous = storage.put(entity.getId(), entity);
+        Integer ordinal = ordinals.get(entity.getId());
+        int slot = ordinal != null ? ordinal : allocateOrdinal(entity.getId());
+        entityPages[slot >>> ORDINAL_PAGE_SHIFT][slot & ORDINAL_PAGE_MASK] = retainsEntities ? entity : entity.getId();
+        updateSecondaryIndexes(entity, previous);
+        commitVersion(entity.getId(), entity);
+        return previous;
+    }
+
+    /**
+     * Assigns the most recently freed ordinal, or the next unused one, to a new id.
+     */
+    private int allocateOrdinal(String id) {
+        synchronized (ordinalMonitor) {
+            int ordinal = freeOrdinalCount > 0 ? freeOrdinals[--freeOrdinalCount] : nextOrdinal++;
+            int page = ordinal >>> ORDINAL_PAGE_SHIFT;
+            if (page == entityPages.length) {
+                Object[][] grown = Arrays.copyOf(entityPages, page * 2);
+                for (int i = page; i < grown.length; i++) {
+                    grown[i] = new Object[1 << ORDINAL_PAGE_SHIFT];
+                }
+                entityPages = grown;
+            }
+            ordinals.put(id, ordinal);
+            return ordinal;
+        }
+    }
+
+    /**
+     * Returns a deleted entity's ordinal to the free list. Called after the
+     * entity has left every secondary index, so no posting still refers to it.
+     */
+    private void releaseOrdinal(String id) {
+        synchronized (ordinalMonitor) {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal == null) {
+                return;
+            }
+            entityPages[ordinal >>> ORDINAL_PAGE_SHIFT][ordinal & ORDINAL_PAGE_MASK] = null;
+            if (freeOrdinalCount == freeOrdinals.length) {
+                freeOrdinals = Arrays.copyOf(freeOrdinals, freeOrdinalCount * 2);
+            }
+            freeOrdinals[freeOrdinalCount++] = ordinal;
+        }
+    }
+
+    private void resetOrdinals() {
+        synchronized (ordinalMonitor) {
+            ordinals.clear();
+            entityPages = new Object[1][1 << ORDINAL_PAGE_SHIFT];
+            nextOrdinal = 0;
+            freeOrdinalCount = 0;
+        }
+    }
+
+    /**
+     * Gets the dense ordinal of a stored entity, or -1 if the id is not stored.
+     * Ordinals are assigned before updateSecondaryIndexes runs and stay valid
+     * until removeFromSecondaryIndexes has returned; afterwards they may be reused.
+     */
+    protected final int ordinalOf(String id) {
+        Integer ordinal = ordinals.get(id);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * Gets the entity currently bound to an ordinal, or null if the slot is free.
+     */
+    protected final T entityAt(int ordinal) {
+        return entityAt(entityPages, ordinal);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T entityAt(Object[][] pages, int ordinal) {
+        int page = ordinal >>> ORDINAL_PAGE_SHIFT;
+        Object slot = ordinal >= 0 && page < pages.length ? pages[page][ordinal & ORDINAL_PAGE_MASK] : null;
+        return slot instanceof String id ? storage.get(id) : (T) slot;
+    }
+
+    /**
+     * Loads the entities behind a set of ordinals, in ordinal order. The bitmap is
+     * computed under the read lock; stillMatches re-checks each entity because with
+     * lock-free reads an ordinal may have been recycled since the bitmap was built.
+     * All ordinals resolve against one read of the page table, so a bulk load bound
+     * while the query runs is seen entirely or not at all.
+     */
+    protected final List<T> findByOrdinals(Supplier<RoaringBitmap> entityOrdinals, Predicate<T> stillMatches) {
+        return readLocked(() -> {
+            RoaringBitmap bitmap = entityOrdinals.get();
+            Object[][] pages = entityPages;
+            List<T> result = new ArrayList<>(bitmap.cardinality());
+            bitmap.forEach(ordinal -> {
+                T entity = entityAt(pages, ordinal);
+                if (entity != null && stillMatches.test(entity)) {
+                    result.add(entity);
+                }
+            });
+            return result;
+        });
+    }
+
+    /**
+     * Builds the secondary-index entries of part of a bulk load without touching the
+     * live indexes; ordinals[i] is the ordinal reserved for entities.get(i). Runs on a
+     * fork-join worker, concurrently with the fragments of other partitions.
+     * The default defers to updateSecondaryIndexes at publish time.
+     */
+    protected IndexFragment buildIndexFragment(List<T> entities, int[] ordinals) {
+        return new DeferredIndexFragment(entities);
+    }
+
     /**
      * Updates secondary indexes when entity is saved.
      * Subclasses can override to maintain custom indexes.
+     * Always called while the entity's key is write-locked.
      */
     protected abstract void updateSecondaryIndexes(T entity, T previous);
 
     /**
      * Removes entity from secondary indexes when deleted.
      * Subclasses can override to maintain custom indexes.
+     * Always called while the entity's key is write-locked.
      */
     protected abstract void removeFromSecondaryIndexes(T entity);
 
     /**
-     * Gets repository statistics.
+     * Drops every secondary index entry when the repository is cleared.
+     * Called while all writers are excluded.
      */
-    public RepositoryStats getStats() {
+    protected void clearSecondaryIndexes() {
+    }
+
+    /**
+     * Gets the locking strategy of this repository.
+     */
+    public ConcurrencyMode getConcurrencyMode() {
+        return concurrencyMode;
+    }
+
+    /**
+     * Runs a read operation. In STRIPED mode reads are lock-free and see a
+     * weakly consistent view of concurrent writes.
+     */
+    protected final <R> R readLocked(Supplier<R> action) {
+        if (concurrencyMode == ConcurrencyMode.STRIPED) {
+            return action.get();
+        }
+
         lock.readLock().lock();
         try {
-            return new RepositoryStats(
-                    storage.size(),
-                    secondaryIndexes.size(),
-                    getClass().getSimpleName()
-            );
+            return action.get();
         } finally {
             lock.readLock().unlock();
         }
     }
 
+    /**
+     * Runs a write operation on a single key, excluding other writers of that key.
+     */
+    protected final <R> R writeLocked(String id, Supplier<R> action) {
+        Lock writeLock = concurrencyMode == ConcurrencyMode.STRIPED
+                ? stripes[stripeIndex(id)]
+                : lock.writeLock();
+
+        writeLock.lock();
+        try {
+            return action.get();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Runs an operation that must exclude every writer of the repository.
+     */
+    protected final <R> R exclusivelyLocked(Supplier<R> action) {
+        if (concurrencyMode != ConcurrencyMode.STRIPED) {
+            lock.writeLock().lock();
+            try {
+                return action.get();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        // Always acquire stripes in index order to avoid deadlocks
+        int acquired = 0;
+        try {
+            for (Lock stripe : stripes) {
+                stripe.lock();
+                acquired++;
+            }
+            return action.get();
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    private int stripeIndex(String id) {
+        int h = id.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPE_COUNT - 1);
+    }
+
+    /**
+     * Gets repository statistics.
+     */
+    public RepositoryStats getStats() {
+        // Both sizes are constant-time reads of concurrent maps, no lock needed
+        return new RepositoryStats(
+                storage.size(),
+                secondaryIndexes.size(),
+                getClass().getSimpleName()
+        );
+    }
+
+    /**
+     * Secondary-index entries for part of a bulk load, built off to the side.
+     */
+    protected interface IndexFragment {
+
+        /**
+         * Folds a fragment built from another partition of the same load into this one.
+         */
+        void merge(IndexFragment other);
+
+        /**
+         * Adds the entries to the live indexes. Called once, while writers are excluded.
+         */
+        void publish();
+    }
+
+    /**
+     * Fragment that only remembers its entities and indexes them one by one on publish.
+     */
+    private final class DeferredIndexFragment implements IndexFragment {
+        private final List<T> entities;
+
+        private DeferredIndexFragment(List<T> entities) {
+            this.entities = new ArrayList<>(entities);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void merge(IndexFragment other) {
+            entities.addAll(((DeferredIndexFragment) other).entities);
+        }
+
+        @Override
+        public void publish() {
+            entities.forEach(entity -> updateSecondaryIndexes(entity, null));
+        }
+    }
+
+    /**
+     * Where a mutation landed in the write-ahead log, waited on after the lock is released.
+     */
+    private static final class LogPosition {
+        private static final LogPosition NONE = new LogPosition(null, 0);
+
+        private final WriteAheadLog<?> log;
+        private final long lsn;
+
+        private LogPosition(WriteAheadLog<?> log, long lsn) {
+            this.log = log;
+            this.lsn = lsn;
+        }
+
+        private void sync() {
+            if (log != null) {
+                log.sync(lsn);
+            }
+        }
+    }
+
     /**
      * Repository statistics inner class.
      */
@@ -248,4 +877,4 @@ public abstract class AbstractRepository<T extends Identifiable> implements Repo
                     repositoryType, entityCount, indexCount);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,244 @@
+package it.epicode.library.repository;
+
+import it.epicode.library.model.media.AudioBook;
+import it.epicode.library.model.media.Book;
+import it.epicode.library.model.media.DVD;
+import it.epicode.library.model.media.Media;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Columnar shadow copy of the media catalog, one row per repository ordinal.
+ * Attributes live in primitive arrays (bitsets for flags, dictionary codes for
+ * strings) so full-catalog filters and aggregations run as tight loops over
+ * contiguous memory instead of chasing Media objects across the heap.
+ *
+ * Rows are written by MediaRepository while the entity's key is write-locked;
+ * the column lock only guards array growth against concurrent scans.
+ */
+public class MediaColumnStore {
+
+    /**
+     * Int columns available for aggregation.
+     */
+    public enum IntColumn {
+        /** Pages of a book. */
+        PAGES,
+        /** Runtime of a DVD in minutes. */
+        RUNTIME_MINUTES,
+        /** Duration of an audiobook in minutes. */
+        DURATION_MINUTES,
+        /** Acquisition date as epoch day. */
+        ACQUISITION_EPOCH_DAY
+    }
+
+    // Marks a missing value in the int columns
+    static final int NONE = Integer.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] live = new long[INITIAL_CAPACITY / 64];
+    private long[] available = new long[INITIAL_CAPACITY / 64];
+    private byte[] mediaTypes = new byte[INITIAL_CAPACITY];
+    private int[] acquisitionDays = new int[INITIAL_CAPACITY];
+    private int[] authorCodes = new int[INITIAL_CAPACITY];
+    private int[] locationCodes = new int[INITIAL_CAPACITY];
+    private int[] pages = new int[INITIAL_CAPACITY];
+    private int[] runtimeMinutes = new int[INITIAL_CAPACITY];
+    private int[] durationMinutes = new int[INITIAL_CAPACITY];
+    private int rowCount; // highest written ordinal + 1
+
+    // Dictionaries: value -> code and code -> value
+    private final Map<String, Integer> typeCodes = new HashMap<>();
+    private final List<String> types = new ArrayList<>();
+    private final Map<String, Integer> authorDictionary = new HashMap<>();
+    private final List<String> authors = new ArrayList<>();
+    private final Map<String, Integer> locationDictionary = new HashMap<>();
+    private final List<String> locations = new ArrayList<>();
+
+    /**
+     * Writes the row of a stored entity.
+     */
+    public void set(int ordinal, Media media) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(ordinal + 1);
+            rowCount = Math.max(rowCount, ordinal + 1);
+
+            mediaTypes[ordinal] = (byte) encode(media.getMediaType(), typeCodes, types);
+            authorCodes[ordinal] = encode(media.getMainAuthor(), authorDictionary, authors);
+            locationCodes[ordinal] = encode(Objects.toString(media.getLocation(), ""), locationDictionary, locations);
+            acquisitionDays[ordinal] = valueOf(IntColumn.ACQUISITION_EPOCH_DAY, media);
+            pages[ordinal] = valueOf(IntColumn.PAGES, media);
+            runtimeMinutes[ordinal] = valueOf(IntColumn.RUNTIME_MINUTES, media);
+            durationMinutes[ordinal] = valueOf(IntColumn.DURATION_MINUTES, media);
+
+            setBit(available, ordinal, media.isAvailable());
+            setBit(live, ordinal, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks a row as deleted; its ordinal may be written again later.
+     */
+    public void clear(int ordinal) {
+        lock.writeLock().lock();
+        try {
+            if (ordinal < rowCount) {
+                setBit(live, ordinal, false);
+                setBit(available, ordinal, false);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(live, 0L);
+            Arrays.fill(available, 0L);
+            rowCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of live rows per author, optionally restricted by availability.
+     */
+    public Map<String, Integer> countByAuthor(Boolean isAvailable) {
+        lock.readLock().lock();
+        try {
+            int[] counts = countCodes(authorCodes, authors.size(), isAvailable);
+            return decodeCounts(counts, authors);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count, sum, min, max and average of an int column over the live rows that
+     * have a value, optionally restricted to one media type.
+     */
+    public IntSummaryStatistics summarize(IntColumn column, String mediaType) {
+        lock.readLock().lock();
+        try {
+            int[] values = switch (column) {
+                case PAGES -> pages;
+                case RUNTIME_MINUTES -> runtimeMinutes;
+                case DURATION_MINUTES -> durationMinutes;
+                case ACQUISITION_EPOCH_DAY -> acquisitionDays;
+            };
+            int typeCode = -1;
+            if (mediaType != null) {
+                Integer code = typeCodes.get(mediaType);
+                if (code == null) {
+                    return new IntSummaryStatistics();
+                }
+                typeCode = code;
+            }
+
+            IntSummaryStatistics stats = new IntSummaryStatistics();
+            long[] mask = live;
+            byte[] typeColumn = mediaTypes;
+            for (int i = 0; i < rowCount; i++) {
+                int value = values[i];
+                if (value != NONE && (mask[i >>> 6] & (1L << i)) != 0
+                        && (typeCode < 0 || typeColumn[i] == typeCode)) {
+                    stats.accept(value);
+                }
+            }
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Value of an int column for a single entity, or NONE if it has no such attribute.
+     */
+    static int valueOf(IntColumn column, Media media) {
+        return switch (column) {
+            case PAGES -> media instanceof Book book ? book.getPages() : NONE;
+            case RUNTIME_MINUTES -> media instanceof DVD dvd ? dvd.getRuntimeMinutes() : NONE;
+            case DURATION_MINUTES -> media instanceof AudioBook audioBook ? audioBook.getDurationMinutes() : NONE;
+            case ACQUISITION_EPOCH_DAY -> media.getAcquisitionDate() != null
+                    ? (int) media.getAcquisitionDate().toEpochDay()
+                    : NONE;
+        };
+    }
+
+    private int[] countCodes(int[] codes, int dictionarySize, Boolean isAvailable) {
+        long[] mask = isAvailable == null ? live : isAvailable ? available : andNot(live, available);
+        int[] counts = new int[dictionarySize];
+        for (int i = 0; i < rowCount; i++) {
+            if ((mask[i >>> 6] & (1L << i)) != 0) {
+                counts[codes[i]]++;
+            }
+        }
+        return counts;
+    }
+
+    private static Map<String, Integer> decodeCounts(int[] counts, List<String> dictionary) {
+        Map<String, Integer> result = new HashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(dictionary.get(code), counts[code]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Dictionary code of a value, assigning the next code on first use.
+     * Codes are never reclaimed; dictionaries only grow with distinct values.
+     */
+    private static int encode(String value, Map<String, Integer> dictionary, List<String> values) {
+        String key = value != null ? value : "";
+        Integer code = dictionary.get(key);
+        if (code == null) {
+            code = values.size();
+            dictionary.put(key, code);
+            values.add(key);
+        }
+        return code;
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= mediaTypes.length) {
+            return;
+        }
+        int capacity = Math.max(rows, mediaTypes.length * 2);
+        live = Arrays.copyOf(live, (capacity + 63) >>> 6);
+        available = Arrays.copyOf(available, (capacity + 63) >>> 6);
+        mediaTypes = Arrays.copyOf(mediaTypes, capacity);
+        acquisitionDays = Arrays.copyOf(acquisitionDays, capacity);
+        authorCodes = Arrays.copyOf(authorCodes, capacity);
+        locationCodes = Arrays.copyOf(locationCodes, capacity);
+        pages = Arrays.copyOf(pages, capacity);
+        runtimeMinutes = Arrays.copyOf(runtimeMinutes, capacity);
+        durationMinutes = Arrays.copyOf(durationMinutes, capacity);
+    }
+
+    private static void setBit(long[] bits, int index, boolean value) {
+        if (value) {
+            bits[index >>> 6] |= 1L << index;
+        } else {
+            bits[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    private static long[] andNot(long[] a, long[] b) {
+        long[] result = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = a[i] & ~b[i];
+        }
+        return result;
+    }
+}
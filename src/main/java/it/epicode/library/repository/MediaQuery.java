@@ -0,0 +1,187 @@
+package it.epicode.library.repository;
+
+import it.epicode.library.model.media.Media;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Media predicate that keeps its structure, so a query planner can see which
+ * attributes it constrains and answer them from indexes. Tests exactly like the
+ * plain lambda it describes; predicates of unknown shape are wrapped as OPAQUE
+ * nodes that can only be evaluated row by row.
+ */
+public final class MediaQuery implements Predicate<Media> {
+
+    /**
+     * Node kinds; leaves carry an operand, AND and OR carry children.
+     */
+    public enum Kind {
+        /** Media type equals the operand. */
+        TYPE,
+        /** Main author contains the operand, ignoring case. */
+        AUTHOR,
+        /** Title contains the operand, ignoring case. */
+        TITLE,
+        /** Media is available. */
+        AVAILABLE,
+        /** Location contains the operand, ignoring case. */
+        LOCATION,
+        /** Acquired strictly after the operand date. */
+        ACQUIRED_AFTER,
+        /** Acquired strictly before the operand date. */
+        ACQUIRED_BEFORE,
+        /** Every child matches; no children means always true. */
+        AND,
+        /** Some child matches; no children means always false. */
+        OR,
+        /** Arbitrary predicate the planner can't look into. */
+        OPAQUE
+    }
+
+    private final Kind kind;
+    private final Object operand;
+    private final List<MediaQuery> children;
+    private final Predicate<Media> predicate;
+
+    private MediaQuery(Kind kind, Object operand, List<MediaQuery> children, Predicate<Media> predicate) {
+        this.kind = kind;
+        this.operand = operand;
+        this.children = children;
+        this.predicate = predicate;
+    }
+
+    public static MediaQuery type(String mediaType) {
+        Objects.requireNonNull(mediaType, "Media type cannot be null");
+        return new MediaQuery(Kind.TYPE, mediaType, List.of(), media -> media.getMediaType().equals(mediaType));
+    }
+
+    public static MediaQuery authorContains(String author) {
+        String lowerAuthor = Objects.requireNonNull(author, "Author cannot be null").toLowerCase();
+        return new MediaQuery(Kind.AUTHOR, lowerAuthor, List.of(),
+                media -> media.getMainAuthor().toLowerCase().contains(lowerAuthor));
+    }
+
+    public static MediaQuery titleContains(String title) {
+        String lowerTitle = Objects.requireNonNull(title, "Title cannot be null").toLowerCase();
+        return new MediaQuery(Kind.TITLE, lowerTitle, List.of(),
+                media -> media.getTitle().toLowerCase().contains(lowerTitle));
+    }
+
+    public static MediaQuery available() {
+        return new MediaQuery(Kind.AVAILABLE, null, List.of(), Media::isAvailable);
+    }
+
+    public static MediaQuery locationContains(String location) {
+        String lowerLocation = Objects.requireNonNull(location, "Location cannot be null").toLowerCase();
+        return new MediaQuery(Kind.LOCATION, lowerLocation, List.of(),
+                media -> media.getLocation().toLowerCase().contains(lowerLocation));
+    }
+
+    public static MediaQuery acquiredAfter(LocalDate date) {
+        Objects.requireNonNull(date, "Date cannot be null");
+        return new MediaQuery(Kind.ACQUIRED_AFTER, date, List.of(),
+                media -> media.getAcquisitionDate().isAfter(date));
+    }
+
+    public static MediaQuery acquiredBefore(LocalDate date) {
+        Objects.requireNonNull(date, "Date cannot be null");
+        return new MediaQuery(Kind.ACQUIRED_BEFORE, date, List.of(),
+                media -> media.getAcquisitionDate().isBefore(date));
+    }
+
+    /**
+     * Conjunction of the given predicates; nested conjunctions are flattened.
+     */
+    public static MediaQuery and(List<? extends Predicate<Media>> predicates) {
+        List<MediaQuery> operands = combine(Kind.AND, predicates);
+        return new MediaQuery(Kind.AND, null, operands,
+                media -> operands.stream().allMatch(operand -> operand.test(media)));
+    }
+
+    /**
+     * Disjunction of the given predicates; nested disjunctions are flattened.
+     */
+    public static MediaQuery or(List<? extends Predicate<Media>> predicates) {
+        List<MediaQuery> operands = combine(Kind.OR, predicates);
+        return new MediaQuery(Kind.OR, null, operands,
+                media -> operands.stream().anyMatch(operand -> operand.test(media)));
+    }
+
+    /**
+     * Returns the predicate itself if it is already a query, otherwise wraps it as OPAQUE.
+     */
+    public static MediaQuery of(Predicate<Media> predicate) {
+        Objects.requireNonNull(predicate, "Predicate cannot be null");
+        return predicate instanceof MediaQuery query
+                ? query
+                : new MediaQuery(Kind.OPAQUE, null, List.of(), predicate);
+    }
+
+    @Override
+    public boolean test(Media media) {
+        return predicate.test(media);
+    }
+
+    @Override
+    public MediaQuery and(Predicate<? super Media> other) {
+        return and(List.of(this, widen(other)));
+    }
+
+    @Override
+    public MediaQuery or(Predicate<? super Media> other) {
+        return or(List.of(this, widen(other)));
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Leaf operand: the type, the lowercased text or the date; null for other kinds.
+     */
+    public Object getOperand() {
+        return operand;
+    }
+
+    public List<MediaQuery> getChildren() {
+        return children;
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case TYPE -> "type = '" + operand + "'";
+            case AUTHOR -> "author contains '" + operand + "'";
+            case TITLE -> "title contains '" + operand + "'";
+            case AVAILABLE -> "available";
+            case LOCATION -> "location contains '" + operand + "'";
+            case ACQUIRED_AFTER -> "acquired > " + operand;
+            case ACQUIRED_BEFORE -> "acquired < " + operand;
+            case AND -> children.isEmpty() ? "TRUE" : children.stream()
+                    .map(MediaQuery::toString).collect(Collectors.joining(" AND ", "(", ")"));
+            case OR -> children.isEmpty() ? "FALSE" : children.stream()
+                    .map(MediaQuery::toString).collect(Collectors.joining(" OR ", "(", ")"));
+            case OPAQUE -> "<predicate>";
+        };
+    }
+
+    private static MediaQuery widen(Predicate<? super Media> predicate) {
+        Objects.requireNonNull(predicate, "Predicate cannot be null");
+        return predicate instanceof MediaQuery query ? query : of(predicate::test);
+    }
+
+    private static List<MediaQuery> combine(Kind kind, List<? extends Predicate<Media>> predicates) {
+        List<MediaQuery> operands = new ArrayList<>();
+        for (Predicate<Media> predicate : predicates) {
+            MediaQuery query = of(predicate);
+            if (query.kind == kind) {
+                operands.addAll(query.children);
+            } else {
+                operands.add(query);
+            }
+        }
+        return List.copyOf(operands);
+    }
+}
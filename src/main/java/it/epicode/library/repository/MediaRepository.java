@@ -1,22 +1,140 @@
 package it.epicode.library.repository;
 
 import it.epicode.library.model.media.Media;
+import it.epicode.library.repository.index.BitmapIndex;
+import it.epicode.library.repository.index.BkTree;
+import it.epicode.library.repository.index.CompletionTrie;
+import it.epicode.library.repository.index.CounterIndex;
+import it.epicode.library.repository.index.InvertedIndex;
+import it.epicode.library.repository.index.OrderStatisticTree;
+import it.epicode.library.repository.index.RoaringBitmap;
+import it.epicode.library.repository.index.TextNormalizer;
+import it.epicode.library.repository.index.TrigramIndex;
+import it.epicode.library.repository.storage.OffHeapMediaStorage;
+import it.epicode.library.util.LibraryConfig;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class MediaRepository extends AbstractRepository<Media> {
 
+    /**
+     * Sort orders maintained as order-statistic indexes for offset paging and ranks.
+     */
+    public enum SortField {
+        /** Title, ignoring case, then id. */
+        TITLE,
+        /** Main author, ignoring case, then id. */
+        AUTHOR,
+        /** Acquisition date, undated media first, then insertion ordinal. */
+        ACQUISITION_DATE
+    }
+
+    /**
+     * Where the media records are kept.
+     */
+    public enum StorageMode {
+        /** Media objects in a ConcurrentHashMap on the Java heap. */
+        HEAP,
+        /** Encoded records in direct buffers; only the id map stays on the heap. */
+        OFF_HEAP
+    }
+
+    // Largest edit distance accepted by fuzzy search
+    public static final int MAX_FUZZY_DISTANCE = 2;
+
+    private static final String AVAILABLE = "available";
+    private static final String UNAVAILABLE = "unavailable";
+
+    // Acquisition day of media without a date; sorts before every real date
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    // Versions the page token format
+    private static final String PAGE_TOKEN_PREFIX = "t1:";
+
     // Additional indexes for efficient querying
-    private final Map<String, Set<String>> typeIndex = new ConcurrentHashMap<>(); // mediaType -> Set<mediaId>
-    private final Map<String, Set<String>> authorIndex = new ConcurrentHashMap<>(); // author -> Set<mediaId>
-    private final Map<String, Set<String>> availabilityIndex = new ConcurrentHashMap<>(); // "available"/"unavailable" -> Set<mediaId>
+    private final BitmapIndex<String> authorIndex = new BitmapIndex<>(); // author -> ordinals
+
+    // Bitmap indexes over dense ordinals for low-cardinality attributes
+    private final BitmapIndex<String> typeIndex = new BitmapIndex<>(); // mediaType -> ordinals
+    private final BitmapIndex<String> availabilityIndex = new BitmapIndex<>(); // "available"/"unavailable" -> ordinals
+    private final BitmapIndex<String> locationIndex = new BitmapIndex<>(); // location -> ordinals
+
+    // Running counts per attribute value for the statistics endpoints
+    private final CounterIndex<String> typeCounts = new CounterIndex<>();
+    private final CounterIndex<String> availabilityCounts = new CounterIndex<>();
+    private final CounterIndex<String> locationCounts = new CounterIndex<>();
+
+    // Full-text index over normalized title, author and description tokens
+    private final InvertedIndex textIndex = new InvertedIndex();
+
+    // Trigram indexes over lowercased titles and authors for substring queries
+    private final TrigramIndex titleTrigrams = new TrigramIndex();
+    private final TrigramIndex authorTrigrams = new TrigramIndex();
+
+    // Media ordered by lowercased title then id, for keyset pagination
+    private final ConcurrentSkipListMap<String, Integer> titleOrder = new ConcurrentSkipListMap<>(); // titleKey\0id -> ordinal
+
+    // Media ordered by acquisition day then ordinal, for date range walks
+    private final ConcurrentSkipListSet<Long> acquisitionOrder = new ConcurrentSkipListSet<>(); // day<<32|ordinal
+
+    // Positional indexes per sort field
+    private final OrderStatisticTree<String> titleRanks = new OrderStatisticTree<>(Comparator.naturalOrder()); // titleKey\0id
+    private final OrderStatisticTree<String> authorRanks = new OrderStatisticTree<>(Comparator.naturalOrder()); // authorKey\0id
+    private final OrderStatisticTree<Long> dateRanks = new OrderStatisticTree<>(Comparator.naturalOrder()); // day<<32|ordinal
+
+    // Autocomplete over titles and author names, ranked by how many items share them
+    private final CompletionTrie completions = new CompletionTrie();
+
+    // Vocabularies for typo-tolerant lookups: author index keys and title/author words
+    private final BkTree authorTerms = new BkTree();
+    private final BkTree wordTerms = new BkTree();
+
+    private final StorageMode storageMode;
+
+    // Search results tagged with the modification version they were computed at
+    private final QueryResultCache<String, List<Media>> searchCache = new QueryResultCache<>(
+            LibraryConfig.getPositiveInt(LibraryConfig.REPOSITORY_CACHE_SIZE, 1000));
+
+    // Optional columnar copy of the catalog for full scans; null when disabled
+    private final MediaColumnStore columns;
+
+    // Values each entity was indexed under, so removal never depends on in-place mutations.
+    // Unused off-heap: entities handed to the hooks are decoded copies that can't have been mutated.
+    private final Map<String, IndexedFields> indexedFields = new ConcurrentHashMap<>();
 
     public MediaRepository() {
-        super();
-        // Initialize availability index
-        availabilityIndex.put("available", ConcurrentHashMap.newKeySet());
-        availabilityIndex.put("unavailable", ConcurrentHashMap.newKeySet());
+        this(ConcurrencyMode.GLOBAL_LOCK);
+    }
+
+    public MediaRepository(ConcurrencyMode concurrencyMode) {
+        this(concurrencyMode, false);
+    }
+
+    /**
+     * Creates a repository that optionally maintains a MediaColumnStore alongside
+     * the entity map, trading extra writes for faster full-catalog scans.
+     */
+    public MediaRepository(ConcurrencyMode concurrencyMode, boolean columnStoreEnabled) {
+        this(concurrencyMode, columnStoreEnabled, StorageMode.HEAP);
+    }
+
+    /**
+     * Creates a repository with the given storage mode. With OFF_HEAP storage every
+     * read decodes a new Media instance: changes to it are only kept once saved.
+     */
+    public MediaRepository(ConcurrencyMode concurrencyMode, boolean columnStoreEnabled, StorageMode storageMode) {
+        super(concurrencyMode, storageMode == StorageMode.OFF_HEAP
+                ? new OffHeapMediaStorage()
+                : new ConcurrentHashMap<>());
+        this.storageMode = Objects.requireNonNull(storageMode, "Storage mode cannot be null");
+        this.columns = columnStoreEnabled ? new MediaColumnStore() : null;
     }
 
     @Override
@@ -27,113 +145,747 @@ public class MediaRepository extends AbstractRepository<Media> {
         }
 
         // Add to indexes
-        String entityId = entity.getId();
+        IndexedFields fields = IndexedFields.of(entity);
+        int ordinal = ordinalOf(entity.getId());
 
-        // Type index
-        typeIndex.computeIfAbsent(entity.getMediaType(), k -> ConcurrentHashMap.newKeySet())
-                .add(entityId);
+        // Bitmap indexes
+        typeIndex.add(fields.mediaType, ordinal);
+        availabilityIndex.add(fields.available ? AVAILABLE : UNAVAILABLE, ordinal);
+        locationIndex.add(fields.location, ordinal);
+        typeCounts.increment(fields.mediaType);
+        availabilityCounts.increment(fields.available ? AVAILABLE : UNAVAILABLE);
+        locationCounts.increment(fields.location);
 
         // Author index
-        authorIndex.computeIfAbsent(entity.getMainAuthor().toLowerCase(), k -> ConcurrentHashMap.newKeySet())
-                .add(entityId);
+        authorIndex.add(fields.authorKey, ordinal);
 
-        // Availability index
-        String availabilityKey = entity.isAvailable() ? "available" : "unavailable";
-        availabilityIndex.get(availabilityKey).add(entityId);
+        // Full-text, substring, autocomplete and fuzzy indexes
+        textIndex.add(ordinal, fields.terms);
+        titleTrigrams.add(ordinal, fields.titleKey);
+        titleOrder.put(sortKey(fields.titleKey, entity.getId()), ordinal);
+        titleRanks.add(sortKey(fields.titleKey, entity.getId()));
+        authorRanks.add(sortKey(fields.authorKey, entity.getId()));
+        dateRanks.add(dateKey(fields.acquiredDay, ordinal));
+        acquisitionOrder.add(dateKey(fields.acquiredDay, ordinal));
+        authorTrigrams.add(ordinal, fields.authorKey);
+        completions.add(fields.title);
+        completions.add(fields.author);
+        authorTerms.add(fields.authorKey);
+        TextNormalizer.distinctTokens(fields.title, fields.author).forEach(wordTerms::add);
+
+        if (columns != null) {
+            columns.set(ordinal, entity);
+        }
+
+        if (storageMode == StorageMode.HEAP) {
+            indexedFields.put(entity.getId(), fields);
+        }
+    }
+
+    @Override
+    protected IndexFragment buildIndexFragment(List<Media> entities, int[] ordinals) {
+        MediaIndexFragment fragment = new MediaIndexFragment();
+        for (int i = 0; i < ordinals.length; i++) {
+            fragment.add(entities.get(i), ordinals[i]);
+        }
+        return fragment;
     }
 
     @Override
     protected void removeFromSecondaryIndexes(Media entity) {
-        String entityId = entity.getId();
+        IndexedFields fields = storageMode == StorageMode.HEAP
+                ? indexedFields.remove(entity.getId())
+                : IndexedFields.of(entity);
+        if (fields == null) {
+            return;
+        }
 
-        // Remove from type index
-        Set<String> typeSet = typeIndex.get(entity.getMediaType());
-        if (typeSet != null) {
-            typeSet.remove(entityId);
-            if (typeSet.isEmpty()) {
-                typeIndex.remove(entity.getMediaType());
-            }
+        // Remove from bitmap indexes
+        int ordinal = ordinalOf(entity.getId());
+        typeIndex.remove(fields.mediaType, ordinal);
+        availabilityIndex.remove(fields.available ? AVAILABLE : UNAVAILABLE, ordinal);
+        locationIndex.remove(fields.location, ordinal);
+        typeCounts.decrement(fields.mediaType);
+        availabilityCounts.decrement(fields.available ? AVAILABLE : UNAVAILABLE);
+        locationCounts.decrement(fields.location);
+
+        authorIndex.remove(fields.authorKey, ordinal);
+        textIndex.remove(ordinal, fields.terms);
+        titleTrigrams.remove(ordinal, fields.titleKey);
+        titleOrder.remove(sortKey(fields.titleKey, entity.getId()));
+        titleRanks.remove(sortKey(fields.titleKey, entity.getId()));
+        authorRanks.remove(sortKey(fields.authorKey, entity.getId()));
+        dateRanks.remove(dateKey(fields.acquiredDay, ordinal));
+        acquisitionOrder.remove(dateKey(fields.acquiredDay, ordinal));
+        authorTrigrams.remove(ordinal, fields.authorKey);
+        completions.remove(fields.title);
+        completions.remove(fields.author);
+        authorTerms.remove(fields.authorKey);
+        TextNormalizer.distinctTokens(fields.title, fields.author).forEach(wordTerms::remove);
+        if (columns != null) {
+            columns.clear(ordinal);
         }
+    }
 
-        // Remove from author index
-        Set<String> authorSet = authorIndex.get(entity.getMainAuthor().toLowerCase());
-        if (authorSet != null) {
-            authorSet.remove(entityId);
-            if (authorSet.isEmpty()) {
-                authorIndex.remove(entity.getMainAuthor().toLowerCase());
-            }
+    @Override
+    protected void clearSecondaryIndexes() {
+        typeIndex.clear();
+        availabilityIndex.clear();
+        locationIndex.clear();
+        typeCounts.clear();
+        availabilityCounts.clear();
+        locationCounts.clear();
+        authorIndex.clear();
+        textIndex.clear();
+        titleTrigrams.clear();
+        titleOrder.clear();
+        titleRanks.clear();
+        authorRanks.clear();
+        dateRanks.clear();
+        acquisitionOrder.clear();
+        authorTrigrams.clear();
+        completions.clear();
+        authorTerms.clear();
+        wordTerms.clear();
+        indexedFields.clear();
+        searchCache.clear();
+        if (columns != null) {
+            columns.clear();
         }
+    }
 
-        // Remove from availability indexes
-        availabilityIndex.get("available").remove(entityId);
-        availabilityIndex.get("unavailable").remove(entityId);
+    /**
+     * Combines the type and availability filters with a word-level AND.
+     * Returns null when neither filter is set.
+     */
+    private RoaringBitmap filterOrdinals(String mediaType, Boolean available) {
+        if (mediaType == null && available == null) {
+            return null;
+        }
+        if (available == null) {
+            return typeIndex.get(mediaType);
+        }
+        String availabilityKey = available ? AVAILABLE : UNAVAILABLE;
+        return mediaType == null
+                ? availabilityIndex.get(availabilityKey)
+                : availabilityIndex.and(availabilityKey, typeIndex.get(mediaType));
     }
 
     /**
-     * Finds media by type using index for O(1) lookup.
+     * Finds media by type using the type bitmap.
      */
     public List<Media> findByType(String mediaType) {
-        Set<String> mediaIds = typeIndex.getOrDefault(mediaType, Collections.emptySet());
-        return findByIds(mediaIds);
+        return findByOrdinals(() -> typeIndex.get(mediaType), media -> media.getMediaType().equals(mediaType));
+    }
+
+    /**
+     * Finds media stored at exactly the given location.
+     */
+    public List<Media> findByLocation(String location) {
+        String locationKey = Objects.toString(location, "");
+        return findByOrdinals(() -> locationIndex.get(locationKey),
+                media -> Objects.toString(media.getLocation(), "").equals(locationKey));
     }
 
     /**
      * Finds media by author using index.
      */
     public List<Media> findByAuthor(String author) {
-        Set<String> mediaIds = authorIndex.getOrDefault(author.toLowerCase(), Collections.emptySet());
-        return findByIds(mediaIds);
+        String authorKey = author.toLowerCase();
+        return findByOrdinals(() -> authorIndex.get(authorKey),
+                media -> media.getMainAuthor().toLowerCase().equals(authorKey));
     }
 
     /**
      * Finds available media using index.
      */
     public List<Media> findAvailable() {
-        Set<String> mediaIds = availabilityIndex.get("available");
-        return findByIds(mediaIds);
+        return findByOrdinals(() -> availabilityIndex.get(AVAILABLE), Media::isAvailable);
     }
 
     /**
      * Finds unavailable media using index.
      */
     public List<Media> findUnavailable() {
-        Set<String> mediaIds = availabilityIndex.get("unavailable");
-        return findByIds(mediaIds);
+        return findByOrdinals(() -> availabilityIndex.get(UNAVAILABLE), media -> !media.isAvailable());
+    }
+
+    /**
+     * Runs a filter through the query planner when it is a MediaQuery; other
+     * predicates are opaque and fall back to a full scan.
+     */
+    @Override
+    public List<Media> findAll(Predicate<Media> filter) {
+        return filter instanceof MediaQuery ? query(filter) : super.findAll(filter);
+    }
+
+    /**
+     * Answers a filter from index candidates when some index applies; otherwise scans
+     * the catalog. Candidates are re-tested against the whole filter, not just the
+     * residual: stored media can be mutated in place (Collection.addMedia moves them
+     * without a save) and lock-free reads may meet a recycled ordinal, so the index
+     * keys only narrow the search. Media changed in place are indexed under their new
+     * values once saved again.
+     */
+    public List<Media> query(Predicate<Media> filter) {
+        QueryPlan plan = plan(filter);
+        logger.fine(plan::explain);
+        if (plan.isFullScan()) {
+            return super.findAll(filter);
+        }
+        return findByOrdinals(plan.getCandidates(), filter);
+    }
+
+    /**
+     * Plans a filter against the indexes without running it. Indexed conjuncts are
+     * intersected most selective first; the rest become the residual predicate.
+     */
+    public QueryPlan plan(Predicate<Media> filter) {
+        MediaQuery query = MediaQuery.of(Objects.requireNonNull(filter, "Filter cannot be null"));
+        int totalRows = (int) count();
+        Access access = accessFor(query);
+        if (access == null) {
+            return QueryPlan.fullScan(query, totalRows);
+        }
+        return new QueryPlan(query, totalRows, Math.min(access.estimate, totalRows),
+                access.candidates, access.residual, access.steps);
+    }
+
+    /**
+     * Index access path for a query node, or null when no index can narrow it.
+     */
+    private Access accessFor(MediaQuery query) {
+        return switch (query.getKind()) {
+            case TYPE -> {
+                String mediaType = (String) query.getOperand();
+                yield Access.exact(typeCounts.get(mediaType), () -> typeIndex.get(mediaType), "typeIndex", query);
+            }
+            case AVAILABLE -> Access.exact(availabilityCounts.get(AVAILABLE), () -> availabilityIndex.get(AVAILABLE),
+                    "availabilityIndex", query);
+            case LOCATION -> locationAccess(query);
+            case TITLE -> trigramAccess(titleTrigrams, "titleTrigrams", query);
+            case AUTHOR -> trigramAccess(authorTrigrams, "authorTrigrams", query);
+            case ACQUIRED_AFTER -> dateAccess(epochDay((LocalDate) query.getOperand()) + 1, Integer.MAX_VALUE, query);
+            case ACQUIRED_BEFORE -> dateAccess(NO_DATE + 1, epochDay((LocalDate) query.getOperand()) - 1, query);
+            case AND -> conjunctionAccess(query);
+            case OR -> disjunctionAccess(query);
+            case OPAQUE -> null;
+        };
+    }
+
+    /**
+     * Substring match on location: every location key containing the text, united.
+     */
+    private Access locationAccess(MediaQuery query) {
+        String text = (String) query.getOperand();
+        int estimate = locationCounts.counts().entrySet().stream()
+                .filter(entry -> entry.getKey().toLowerCase().contains(text))
+                .mapToInt(Map.Entry::getValue)
+                .sum();
+        return Access.exact(estimate, () -> locationIndex.orAll(locationIndex.keys().stream()
+                .filter(location -> location.toLowerCase().contains(text))
+                .collect(Collectors.toList())), "locationIndex", query);
     }
 
     /**
-     * Advanced search with multiple criteria using Stream API.
+     * Inclusive span of acquisition days, counted through the rank index.
+     */
+    private Access dateAccess(int fromDay, int toDay, MediaQuery query) {
+        long fromKey = dateKey(fromDay, 0);
+        long toKey = dateKey(toDay, -1);
+        int estimate = fromKey > toKey ? 0 : dateRanks.headCount(toKey) - dateRanks.headCount(fromKey);
+        return Access.exact(estimate, () -> fromKey > toKey
+                ? new RoaringBitmap()
+                : ordinalsOf(acquisitionOrder.subSet(fromKey, true, toKey, true)), "acquisitionOrder", query);
+    }
+
+    private static Access trigramAccess(TrigramIndex index, String indexName, MediaQuery query) {
+        String text = (String) query.getOperand();
+        int estimate = index.estimate(text);
+        if (estimate < 0) {
+            return null;
+        }
+        return new Access(estimate, () -> index.candidates(text), query,
+                List.of(indexName + ": " + query + " (~" + estimate + ", superset)"));
+    }
+
+    private Access conjunctionAccess(MediaQuery query) {
+        List<Access> indexed = new ArrayList<>();
+        List<MediaQuery> residuals = new ArrayList<>();
+        for (MediaQuery child : query.getChildren()) {
+            Access access = accessFor(child);
+            if (access == null) {
+                residuals.add(child);
+            } else {
+                indexed.add(access);
+                if (access.residual != null) {
+                    residuals.add(access.residual);
+                }
+            }
+        }
+        if (indexed.isEmpty()) {
+            return null;
+        }
+
+        indexed.sort(Comparator.comparingInt(access -> access.estimate));
+        MediaQuery residual = residuals.isEmpty() ? null
+                : residuals.size() == 1 ? residuals.get(0)
+                : MediaQuery.and(residuals);
+        if (indexed.size() == 1) {
+            Access only = indexed.get(0);
+            return new Access(only.estimate, only.candidates, residual, only.steps);
+        }
+
+        int estimate = indexed.get(0).estimate;
+        Supplier<RoaringBitmap> candidates = () -> {
+            RoaringBitmap result = indexed.get(0).candidates.get();
+            for (int i = 1; i < indexed.size() && !result.isEmpty(); i++) {
+                result = result.and(indexed.get(i).candidates.get());
+            }
+            return result;
+        };
+        return new Access(estimate, candidates, residual, Access.nest("intersect (~" + estimate + "):", indexed));
+    }
+
+    private Access disjunctionAccess(MediaQuery query) {
+        if (query.getChildren().isEmpty()) {
+            return null;
+        }
+        List<Access> branches = new ArrayList<>();
+        boolean exact = true;
+        long estimate = 0;
+        for (MediaQuery child : query.getChildren()) {
+            Access access = accessFor(child);
+            if (access == null) {
+                return null; // one unindexed branch forces a full scan
+            }
+            branches.add(access);
+            exact &= access.residual == null;
+            estimate += access.estimate;
+        }
+
+        int bounded = (int) Math.min(estimate, Integer.MAX_VALUE);
+        Supplier<RoaringBitmap> candidates = () -> {
+            RoaringBitmap result = new RoaringBitmap();
+            for (Access branch : branches) {
+                result = result.or(branch.candidates.get());
+            }
+            return result;
+        };
+        return new Access(bounded, candidates, exact ? null : query,
+                Access.nest("union (~" + bounded + "):", branches));
+    }
+
+    /**
+     * Ordinals of a span of the acquisition index.
+     */
+    private static RoaringBitmap ordinalsOf(Set<Long> dateKeys) {
+        RoaringBitmap ordinals = new RoaringBitmap();
+        for (long key : dateKeys) {
+            ordinals.add((int) key);
+        }
+        return ordinals;
+    }
+
+    /**
+     * Advanced search with multiple criteria.
+     * Matches the query as a case-insensitive substring of title or author; candidates
+     * are narrowed through the indexes first and only the survivors are verified.
      */
     public List<Media> search(String query, String mediaType, Boolean available) {
-        return findAll().stream()
-                .filter(media -> {
-                    // Text search in title and author
-                    boolean matchesQuery = query == null || query.trim().isEmpty() ||
-                            media.getTitle().toLowerCase().contains(query.toLowerCase()) ||
-                            media.getMainAuthor().toLowerCase().contains(query.toLowerCase());
-
-                    // Type filter
-                    boolean matchesType = mediaType == null ||
-                            media.getMediaType().equals(mediaType);
-
-                    // Availability filter
-                    boolean matchesAvailability = available == null ||
-                            media.isAvailable() == available;
-
-                    return matchesQuery && matchesType && matchesAvailability;
-                })
+        boolean hasQuery = query != null && !query.trim().isEmpty();
+        String lowerQuery = hasQuery ? query.toLowerCase() : null;
+        String cacheKey = (lowerQuery != null ? lowerQuery : "") + '\0' + mediaType + '\0' + available;
+
+        List<Media> results = searchCache.get(cacheKey, this::getModificationVersion,
+                () -> searchCandidates(lowerQuery, mediaType, available).stream()
+                        .filter(media -> matchesSearch(media, lowerQuery, mediaType, available))
+                        .collect(Collectors.toUnmodifiableList()));
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Gets hit, miss and eviction counts of the search result cache.
+     */
+    public QueryResultCache.CacheStats getSearchCacheStats() {
+        return searchCache.getStats();
+    }
+
+    /**
+     * Paginated variant of search, ordered by title (case-insensitive) then id.
+     * Pages are addressed by keyset: the token encodes the last sort key returned,
+     * so a deep page resumes right after it instead of re-evaluating earlier results.
+     * The walk over the title order stops as soon as the page is filled; when the
+     * indexes narrow the candidates to a small share of the catalog they are
+     * sorted directly instead.
+     */
+    public SearchPage<Media> searchPage(String query, String mediaType, Boolean available,
+                                        int pageSize, String pageToken) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        boolean hasQuery = query != null && !query.trim().isEmpty();
+        String lowerQuery = hasQuery ? query.toLowerCase() : null;
+        String after = pageToken != null ? decodePageToken(pageToken) : null;
+        RoaringBitmap candidates = candidateOrdinals(lowerQuery, mediaType, available);
+
+        if (candidates != null && (long) candidates.cardinality() * 8 < titleOrder.size()) {
+            return readLocked(() -> pageOfCandidates(candidates, lowerQuery, mediaType, available, pageSize, after));
+        }
+
+        return readLocked(() -> {
+            NavigableMap<String, Integer> keys = after != null ? titleOrder.tailMap(after, false) : titleOrder;
+            List<Media> items = new ArrayList<>(pageSize);
+            String lastKey = null;
+            for (Map.Entry<String, Integer> entry : keys.entrySet()) {
+                int ordinal = entry.getValue();
+                if (candidates != null && !candidates.contains(ordinal)) {
+                    continue;
+                }
+                Media media = entityAt(ordinal);
+                // The id check skips entries whose ordinal was recycled under a concurrent delete
+                if (media == null || !entry.getKey().endsWith(media.getId())
+                        || !matchesSearch(media, lowerQuery, mediaType, available)) {
+                    continue;
+                }
+                if (items.size() == pageSize) {
+                    return new SearchPage<>(items, encodePageToken(lastKey));
+                }
+                items.add(media);
+                lastKey = entry.getKey();
+            }
+            return new SearchPage<>(items, null);
+        });
+    }
+
+    private SearchPage<Media> pageOfCandidates(RoaringBitmap candidates, String lowerQuery, String mediaType,
+                                               Boolean available, int pageSize, String after) {
+        TreeMap<String, Media> sorted = new TreeMap<>();
+        candidates.forEach(ordinal -> {
+            Media media = entityAt(ordinal);
+            if (media != null) {
+                String key = sortKey(media.getTitle().toLowerCase(), media.getId());
+                if (after == null || key.compareTo(after) > 0) {
+                    sorted.put(key, media);
+                }
+            }
+        });
+
+        List<Media> items = new ArrayList<>(pageSize);
+        String lastKey = null;
+        for (Map.Entry<String, Media> entry : sorted.entrySet()) {
+            if (!matchesSearch(entry.getValue(), lowerQuery, mediaType, available)) {
+                continue;
+            }
+            if (items.size() == pageSize) {
+                return new SearchPage<>(items, encodePageToken(lastKey));
+            }
+            items.add(entry.getValue());
+            lastKey = entry.getKey();
+        }
+        return new SearchPage<>(items, null);
+    }
+
+    private static boolean matchesSearch(Media media, String lowerQuery, String mediaType, Boolean available) {
+        // Text search in title and author
+        boolean matchesQuery = lowerQuery == null ||
+                media.getTitle().toLowerCase().contains(lowerQuery) ||
+                media.getMainAuthor().toLowerCase().contains(lowerQuery);
+
+        // Type filter
+        boolean matchesType = mediaType == null ||
+                media.getMediaType().equals(mediaType);
+
+        // Availability filter
+        boolean matchesAvailability = available == null ||
+                media.isAvailable() == available;
+
+        return matchesQuery && matchesType && matchesAvailability;
+    }
+
+    /**
+     * Page of media in a maintained sort order, starting at any offset.
+     * Costs O(log n + limit): no sort and no skip over earlier items.
+     */
+    public List<Media> findPage(SortField field, boolean ascending, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit cannot be negative");
+        }
+        OrderStatisticTree<?> ranks = ranksOf(field);
+        int size = ranks.size();
+        if (offset >= size || limit == 0) {
+            return Collections.emptyList();
+        }
+
+        int count = Math.min(limit, size - offset);
+        List<?> keys = ascending ? ranks.range(offset, count) : ranks.range(size - offset - count, count);
+        List<Media> page = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            Media media = resolveRankKey(field, key);
+            if (media != null) {
+                page.add(media);
+            }
+        }
+        if (!ascending) {
+            Collections.reverse(page);
+        }
+        return page;
+    }
+
+    /**
+     * Media at a zero-based position in a sort order, in O(log n).
+     */
+    public Optional<Media> findAtRank(SortField field, boolean ascending, int rank) {
+        OrderStatisticTree<?> ranks = ranksOf(field);
+        int size = ranks.size();
+        if (rank < 0 || rank >= size) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(resolveRankKey(field, ranks.select(ascending ? rank : size - 1 - rank)));
+    }
+
+    /**
+     * Zero-based position of a media item in a sort order, in O(log n); -1 if not stored.
+     */
+    public int rankOf(SortField field, boolean ascending, String id) {
+        int ordinal = id != null ? ordinalOf(id) : -1;
+        IndexedFields fields = ordinal >= 0 ? fieldsOf(id) : null;
+        if (fields == null) {
+            return -1;
+        }
+        int rank = switch (field) {
+            case TITLE -> titleRanks.rank(sortKey(fields.titleKey, id));
+            case AUTHOR -> authorRanks.rank(sortKey(fields.authorKey, id));
+            case ACQUISITION_DATE -> dateRanks.rank(dateKey(fields.acquiredDay, ordinal));
+        };
+        return rank < 0 || ascending ? rank : ranksOf(field).size() - 1 - rank;
+    }
+
+    private OrderStatisticTree<?> ranksOf(SortField field) {
+        return switch (Objects.requireNonNull(field, "Sort field cannot be null")) {
+            case TITLE -> titleRanks;
+            case AUTHOR -> authorRanks;
+            case ACQUISITION_DATE -> dateRanks;
+        };
+    }
+
+    /**
+     * Resolves a rank key to its media, or null if the entry changed since the key was
+     * read. Title and author keys name the id; a date key names an ordinal, which may
+     * have been recycled, so the entity found there must still be indexed under the key.
+     */
+    private Media resolveRankKey(SortField field, Object key) {
+        if (field == SortField.ACQUISITION_DATE) {
+            long dateKey = (Long) key;
+            int ordinal = (int) dateKey;
+            Media media = entityAt(ordinal);
+            if (media == null || ordinalOf(media.getId()) != ordinal) {
+                return null;
+            }
+            IndexedFields fields = fieldsOf(media.getId());
+            return fields != null && dateKey(fields.acquiredDay, ordinal) == dateKey ? media : null;
+        }
+        String sortKey = (String) key;
+        return storage.get(sortKey.substring(sortKey.lastIndexOf('\0') + 1));
+    }
+
+    /**
+     * Values an entity is currently indexed under.
+     */
+    private IndexedFields fieldsOf(String id) {
+        if (storageMode == StorageMode.HEAP) {
+            return indexedFields.get(id);
+        }
+        Media media = storage.get(id);
+        return media != null ? IndexedFields.of(media) : null;
+    }
+
+    private static String sortKey(String titleKey, String id) {
+        return titleKey + '\0' + id;
+    }
+
+    /**
+     * Resolves up to limit media from a span of the acquisition index, in walk order.
+     * Entries are re-checked because an ordinal may be recycled while the walk runs.
+     */
+    private List<Media> walkAcquisitions(NavigableSet<Long> span, int limit, Predicate<Media> stillMatches) {
+        return readLocked(() -> {
+            List<Media> result = new ArrayList<>();
+            for (long key : span) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                Media media = entityAt((int) key);
+                if (media != null && stillMatches.test(media)) {
+                    result.add(media);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Epoch day of a date, clamped into int range above NO_DATE.
+     */
+    private static int epochDay(LocalDate date) {
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE - 1, date.toEpochDay()));
+    }
+
+    private static long dateKey(int acquiredDay, int ordinal) {
+        return ((long) acquiredDay << 32) | (ordinal & 0xFFFFFFFFL);
+    }
+
+    private static String encodePageToken(String sortKey) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PAGE_TOKEN_PREFIX + sortKey).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodePageToken(String pageToken) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+            if (decoded.startsWith(PAGE_TOKEN_PREFIX)) {
+                return decoded.substring(PAGE_TOKEN_PREFIX.length());
+            }
+        } catch (IllegalArgumentException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid page token");
+    }
+
+    /**
+     * Keyword search on the full-text index. Every query token is matched as a whole
+     * normalized word of title, author or description; matchAll selects AND vs OR.
+     */
+    public List<Media> searchKeywords(String query, boolean matchAll) {
+        List<String> terms = TextNormalizer.tokenize(query);
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return findByOrdinals(() -> matchAll ? textIndex.matchAll(terms) : textIndex.matchAny(terms), media -> {
+            Set<String> mediaTerms = IndexedFields.termsOf(media);
+            return matchAll ? mediaTerms.containsAll(terms) : terms.stream().anyMatch(mediaTerms::contains);
+        });
+    }
+
+    /**
+     * Finds media whose title contains the text, ignoring case.
+     * Same semantics as IteratorFactory.Filters.byTitle, answered from the trigram index.
+     */
+    public List<Media> findByTitleContaining(String title) {
+        String lowerTitle = title.toLowerCase();
+        RoaringBitmap mediaOrdinals = titleTrigrams.candidates(lowerTitle);
+        Collection<Media> candidates = mediaOrdinals != null
+                ? findByOrdinals(() -> mediaOrdinals, media -> true)
+                : storage.values();
+        return candidates.stream()
+                .filter(media -> media.getTitle().toLowerCase().contains(lowerTitle))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds media whose author contains the text, ignoring case.
+     * Same semantics as IteratorFactory.Filters.byAuthor, answered from the trigram index.
+     */
+    public List<Media> findByAuthorContaining(String author) {
+        String lowerAuthor = author.toLowerCase();
+        RoaringBitmap mediaOrdinals = authorTrigrams.candidates(lowerAuthor);
+        Collection<Media> candidates = mediaOrdinals != null
+                ? findByOrdinals(() -> mediaOrdinals, media -> true)
+                : storage.values();
+        return candidates.stream()
+                .filter(media -> media.getMainAuthor().toLowerCase().contains(lowerAuthor))
                 .collect(Collectors.toList());
     }
 
     /**
-     * Gets media type statistics using Collections.
+     * Autocomplete suggestions for titles and author names starting with the prefix.
+     * Case and accents are ignored; phrases shared by more items rank first.
+     * Costs O(prefix length).
+     *
+     * @throws IllegalArgumentException if limit exceeds CompletionTrie.DEFAULT_TOP_K
+     */
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return completions.suggest(prefix, limit);
+    }
+
+    /**
+     * Typo-tolerant search. Returns media whose author is within maxDistance edits
+     * of the query, or whose title/author words fuzzily match every query word.
+     * Word tolerance shrinks for short words: none up to 2 characters, one edit
+     * up to 5 characters, otherwise maxDistance.
+     */
+    public List<Media> fuzzySearch(String query, int maxDistance) {
+        if (maxDistance < 0 || maxDistance > MAX_FUZZY_DISTANCE) {
+            throw new IllegalArgumentException("Fuzzy distance must be between 0 and " + MAX_FUZZY_DISTANCE);
+        }
+        if (query == null || query.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> authorKeys = authorTerms.search(query.trim().toLowerCase(), maxDistance);
+        // Indexed words within tolerance of each query word
+        List<List<String>> wordVariants = new ArrayList<>();
+        for (String word : TextNormalizer.tokenize(query)) {
+            int tolerance = Math.min(maxDistance, word.length() <= 2 ? 0 : word.length() <= 5 ? 1 : 2);
+            wordVariants.add(wordTerms.search(word, tolerance));
+        }
+
+        return findByOrdinals(() -> {
+            RoaringBitmap mediaOrdinals = authorIndex.orAll(authorKeys);
+            RoaringBitmap wordMatches = null;
+            for (List<String> variants : wordVariants) {
+                RoaringBitmap wordOrdinals = textIndex.matchAny(variants);
+                wordMatches = wordMatches == null ? wordOrdinals : wordMatches.and(wordOrdinals);
+                if (wordMatches.isEmpty()) {
+                    break;
+                }
+            }
+            return wordMatches != null ? mediaOrdinals.or(wordMatches) : mediaOrdinals;
+        }, media -> {
+            if (authorKeys.contains(media.getMainAuthor().toLowerCase())) {
+                return true;
+            }
+            Set<String> mediaTerms = IndexedFields.termsOf(media);
+            return !wordVariants.isEmpty()
+                    && wordVariants.stream().allMatch(variants -> variants.stream().anyMatch(mediaTerms::contains));
+        });
+    }
+
+    /**
+     * Picks the smallest superset of the search result the indexes can provide.
+     * A query of at least three characters is narrowed by intersecting trigram
+     * posting lists of titles and authors; the type and availability filters are
+     * evaluated on their bitmaps and applied to those candidates before any entity is loaded.
+     */
+    private Collection<Media> searchCandidates(String query, String mediaType, Boolean available) {
+        RoaringBitmap candidates = candidateOrdinals(query != null ? query.toLowerCase() : null, mediaType, available);
+        return candidates != null ? findByOrdinals(() -> candidates, media -> true) : storage.values();
+    }
+
+    /**
+     * Ordinals that may match the search, or null when the indexes can't narrow it.
+     */
+    private RoaringBitmap candidateOrdinals(String lowerQuery, String mediaType, Boolean available) {
+        RoaringBitmap filter = filterOrdinals(mediaType, available);
+        if (lowerQuery != null) {
+            RoaringBitmap titleOrdinals = titleTrigrams.candidates(lowerQuery);
+            if (titleOrdinals != null) {
+                RoaringBitmap mediaOrdinals = titleOrdinals.or(authorTrigrams.candidates(lowerQuery));
+                return filter != null ? mediaOrdinals.and(filter) : mediaOrdinals;
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Gets media type statistics from the running per-type counters.
      */
     public Map<String, Integer> getTypeStatistics() {
-        return typeIndex.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> entry.getValue().size()
-                ));
+        return typeCounts.counts();
     }
 
     /**
@@ -141,9 +893,280 @@ public class MediaRepository extends AbstractRepository<Media> {
      */
     public Map<String, Integer> getAvailabilityStatistics() {
         Map<String, Integer> stats = new HashMap<>();
-        stats.put("available", availabilityIndex.get("available").size());
-        stats.put("unavailable", availabilityIndex.get("unavailable").size());
+        stats.put(AVAILABLE, availabilityCounts.get(AVAILABLE));
+        stats.put(UNAVAILABLE, availabilityCounts.get(UNAVAILABLE));
         stats.put("total", storage.size());
         return stats;
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the number of media stored at each location.
+     */
+    public Map<String, Integer> getLocationStatistics() {
+        return locationCounts.counts();
+    }
+
+    /**
+     * Gets the number of available media per type, intersecting bitmaps without loading entities.
+     */
+    public Map<String, Integer> getAvailableCountByType() {
+        RoaringBitmap availableOrdinals = availabilityIndex.get(AVAILABLE);
+        Map<String, Integer> stats = new HashMap<>();
+        for (String mediaType : typeIndex.keys()) {
+            stats.put(mediaType, typeIndex.andCardinality(mediaType, availableOrdinals));
+        }
+        return stats;
+    }
+
+    /**
+     * Counts media matching the type and availability filters; null means any.
+     */
+    public int countMatching(String mediaType, Boolean available) {
+        RoaringBitmap filter = filterOrdinals(mediaType, available);
+        return filter != null ? filter.cardinality() : (int) count();
+    }
+
+    /**
+     * Gets where this repository keeps its media records.
+     */
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    /**
+     * Checks whether this repository maintains a columnar copy of the catalog.
+     */
+    public boolean isColumnStoreEnabled() {
+        return columns != null;
+    }
+
+    /**
+     * Finds media acquired within the inclusive date range, oldest first, optionally
+     * filtered by availability (null means any). Walks only the matching span of the
+     * acquisition index.
+     */
+    public List<Media> findAcquiredBetween(LocalDate from, LocalDate to, Boolean available) {
+        Objects.requireNonNull(from, "From date cannot be null");
+        Objects.requireNonNull(to, "To date cannot be null");
+        if (from.isAfter(to)) {
+            return Collections.emptyList();
+        }
+
+        Predicate<Media> matches = media -> media.getAcquisitionDate() != null
+                && !media.getAcquisitionDate().isBefore(from)
+                && !media.getAcquisitionDate().isAfter(to)
+                && (available == null || media.isAvailable() == available);
+        return walkAcquisitions(acquisitionOrder.subSet(
+                dateKey(epochDay(from), 0), true, dateKey(epochDay(to), -1), true), Integer.MAX_VALUE, matches);
+    }
+
+    /**
+     * Gets up to limit media acquired in the last given number of days, newest first.
+     */
+    public List<Media> findRecentAcquisitions(int days, int limit) {
+        if (days < 0 || limit < 0) {
+            throw new IllegalArgumentException("Days and limit cannot be negative");
+        }
+
+        LocalDate cutoff = LocalDate.now().minusDays(days);
+        Predicate<Media> matches = media -> media.getAcquisitionDate() != null
+                && media.getAcquisitionDate().isAfter(cutoff);
+        return walkAcquisitions(acquisitionOrder.tailSet(dateKey(epochDay(cutoff) + 1, 0)).descendingSet(),
+                limit, matches);
+    }
+
+    /**
+     * Gets the number of media per author, optionally filtered by availability.
+     */
+    public Map<String, Integer> getAuthorStatistics(Boolean available) {
+        if (columns != null) {
+            return columns.countByAuthor(available);
+        }
+        return readLocked(() -> storage.values().stream()
+                .filter(media -> available == null || media.isAvailable() == available)
+                .collect(Collectors.groupingBy(Media::getMainAuthor, Collectors.summingInt(media -> 1))));
+    }
+
+    /**
+     * Summarizes pages, runtimes, durations or acquisition days over the catalog,
+     * optionally restricted to one media type (null means any).
+     */
+    public IntSummaryStatistics summarize(MediaColumnStore.IntColumn column, String mediaType) {
+        if (columns != null) {
+            return columns.summarize(column, mediaType);
+        }
+        return readLocked(() -> storage.values().stream()
+                .filter(media -> mediaType == null || media.getMediaType().equals(mediaType))
+                .mapToInt(media -> MediaColumnStore.valueOf(column, media))
+                .filter(value -> value != MediaColumnStore.NONE)
+                .summaryStatistics());
+    }
+
+    /**
+     * Immutable copy of the attribute values an entity was indexed under.
+     */
+    private static final class IndexedFields {
+        private final String mediaType;
+        private final String title;
+        private final String author;
+        private final String titleKey;
+        private final String authorKey;
+        private final String location;
+        private final boolean available;
+        private final int acquiredDay; // epoch day, NO_DATE if unknown
+        private final Set<String> terms;
+
+        private IndexedFields(String mediaType, String title, String author, String location,
+                              boolean available, LocalDate acquired, Set<String> terms) {
+            this.mediaType = mediaType;
+            this.title = title;
+            this.author = author;
+            this.titleKey = title.toLowerCase();
+            this.authorKey = author.toLowerCase();
+            this.location = location;
+            this.available = available;
+            this.acquiredDay = acquired != null ? epochDay(acquired) : NO_DATE;
+            this.terms = terms;
+        }
+
+        static IndexedFields of(Media media) {
+            return new IndexedFields(media.getMediaType(),
+                    media.getTitle(),
+                    media.getMainAuthor(),
+                    Objects.toString(media.getLocation(), ""),
+                    media.isAvailable(),
+                    media.getAcquisitionDate(),
+                    termsOf(media));
+        }
+
+        /**
+         * Normalized words of title, author and description, as held by the full-text index.
+         */
+        static Set<String> termsOf(Media media) {
+            return TextNormalizer.distinctTokens(media.getTitle(), media.getMainAuthor(), media.getDescription());
+        }
+    }
+
+
+    /**
+     * Index entries for one partition of a bulk load, held in private instances of
+     * the same index structures and merged into the live ones on publish.
+     */
+    private final class MediaIndexFragment implements IndexFragment {
+        private final BitmapIndex<String> types = new BitmapIndex<>();
+        private final BitmapIndex<String> availability = new BitmapIndex<>();
+        private final BitmapIndex<String> locations = new BitmapIndex<>();
+        private final BitmapIndex<String> authors = new BitmapIndex<>();
+        private final InvertedIndex text = new InvertedIndex();
+        private final TrigramIndex titleGrams = new TrigramIndex();
+        private final TrigramIndex authorGrams = new TrigramIndex();
+        private final Map<String, Integer> titleKeys = new HashMap<>(); // sort key -> ordinal
+        private final List<String> authorKeys = new ArrayList<>();
+        private final List<Long> dateKeys = new ArrayList<>();
+        private final Map<String, Integer> phrases = new HashMap<>(); // completion phrase -> occurrences
+        private final Map<String, Integer> authorVocabulary = new HashMap<>(); // term -> uses
+        private final Map<String, Integer> wordVocabulary = new HashMap<>(); // term -> uses
+        private final Map<String, IndexedFields> fields = new HashMap<>();
+        private final Map<Integer, Media> rows = new HashMap<>(); // ordinal -> media, for the column store
+
+        private void add(Media entity, int ordinal) {
+            IndexedFields indexed = IndexedFields.of(entity);
+            types.add(indexed.mediaType, ordinal);
+            availability.add(indexed.available ? AVAILABLE : UNAVAILABLE, ordinal);
+            locations.add(indexed.location, ordinal);
+            authors.add(indexed.authorKey, ordinal);
+            text.add(ordinal, indexed.terms);
+            titleGrams.add(ordinal, indexed.titleKey);
+            authorGrams.add(ordinal, indexed.authorKey);
+            titleKeys.put(sortKey(indexed.titleKey, entity.getId()), ordinal);
+            authorKeys.add(sortKey(indexed.authorKey, entity.getId()));
+            dateKeys.add(dateKey(indexed.acquiredDay, ordinal));
+            phrases.merge(indexed.title, 1, Integer::sum);
+            phrases.merge(indexed.author, 1, Integer::sum);
+            authorVocabulary.merge(indexed.authorKey, 1, Integer::sum);
+            TextNormalizer.distinctTokens(indexed.title, indexed.author)
+                    .forEach(word -> wordVocabulary.merge(word, 1, Integer::sum));
+            if (columns != null) {
+                rows.put(ordinal, entity);
+            }
+            if (storageMode == StorageMode.HEAP) {
+                fields.put(entity.getId(), indexed);
+            }
+        }
+
+        @Override
+        public void merge(IndexFragment other) {
+            MediaIndexFragment fragment = (MediaIndexFragment) other;
+            types.merge(fragment.types);
+            availability.merge(fragment.availability);
+            locations.merge(fragment.locations);
+            authors.merge(fragment.authors);
+            text.merge(fragment.text);
+            titleGrams.merge(fragment.titleGrams);
+            authorGrams.merge(fragment.authorGrams);
+            titleKeys.putAll(fragment.titleKeys);
+            authorKeys.addAll(fragment.authorKeys);
+            dateKeys.addAll(fragment.dateKeys);
+            fragment.phrases.forEach((phrase, occurrences) -> phrases.merge(phrase, occurrences, Integer::sum));
+            fragment.authorVocabulary.forEach((term, uses) -> authorVocabulary.merge(term, uses, Integer::sum));
+            fragment.wordVocabulary.forEach((term, uses) -> wordVocabulary.merge(term, uses, Integer::sum));
+            fields.putAll(fragment.fields);
+            rows.putAll(fragment.rows);
+        }
+
+        @Override
+        public void publish() {
+            typeIndex.merge(types);
+            availabilityIndex.merge(availability);
+            locationIndex.merge(locations);
+            types.cardinalities().forEach(typeCounts::add);
+            availability.cardinalities().forEach(availabilityCounts::add);
+            locations.cardinalities().forEach(locationCounts::add);
+            authorIndex.merge(authors);
+            textIndex.merge(text);
+            titleTrigrams.merge(titleGrams);
+            authorTrigrams.merge(authorGrams);
+            titleOrder.putAll(titleKeys);
+            titleRanks.addAll(titleKeys.keySet());
+            authorRanks.addAll(authorKeys);
+            dateRanks.addAll(dateKeys);
+            acquisitionOrder.addAll(dateKeys);
+            phrases.forEach(completions::add);
+            authorVocabulary.forEach(authorTerms::add);
+            wordVocabulary.forEach(wordTerms::add);
+            if (columns != null) {
+                rows.forEach(columns::set);
+            }
+            indexedFields.putAll(fields);
+        }
+    }
+
+    /**
+     * Candidate ordinals for a query node with their estimated count, the part of
+     * the node they don't answer exactly, and the plan steps that produce them.
+     */
+    private static final class Access {
+        private final int estimate;
+        private final Supplier<RoaringBitmap> candidates;
+        private final MediaQuery residual; // null when the candidates are exact
+        private final List<String> steps;
+
+        private Access(int estimate, Supplier<RoaringBitmap> candidates, MediaQuery residual, List<String> steps) {
+            this.estimate = estimate;
+            this.candidates = candidates;
+            this.residual = residual;
+            this.steps = steps;
+        }
+
+        static Access exact(int estimate, Supplier<RoaringBitmap> candidates, String indexName, MediaQuery query) {
+            return new Access(estimate, candidates, null, List.of(indexName + ": " + query + " (~" + estimate + ")"));
+        }
+
+        static List<String> nest(String header, List<Access> parts) {
+            List<String> steps = new ArrayList<>();
+            steps.add(header);
+            parts.forEach(part -> part.steps.forEach(step -> steps.add("  " + step)));
+            return steps;
+        }
+    }
+}
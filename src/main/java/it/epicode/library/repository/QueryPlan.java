@@ -0,0 +1,84 @@
+package it.epicode.library.repository;
+
+import it.epicode.library.repository.index.RoaringBitmap;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * How MediaRepository will answer a MediaQuery: either a full scan, or a set of
+ * candidate ordinals built from indexes plus a residual predicate checked on
+ * each candidate. Plans are cheap to build; nothing runs until the repository
+ * executes them.
+ */
+public class QueryPlan {
+
+    private final MediaQuery query;
+    private final int totalRows;
+    private final int estimatedRows;
+    private final Supplier<RoaringBitmap> candidates; // null for a full scan
+    private final MediaQuery residual; // null when the indexes answer the query exactly
+    private final List<String> steps;
+
+    QueryPlan(MediaQuery query, int totalRows, int estimatedRows, Supplier<RoaringBitmap> candidates,
+              MediaQuery residual, List<String> steps) {
+        this.query = query;
+        this.totalRows = totalRows;
+        this.estimatedRows = estimatedRows;
+        this.candidates = candidates;
+        this.residual = residual;
+        this.steps = List.copyOf(steps);
+    }
+
+    static QueryPlan fullScan(MediaQuery query, int totalRows) {
+        return new QueryPlan(query, totalRows, totalRows, null, query, List.of());
+    }
+
+    public MediaQuery getQuery() {
+        return query;
+    }
+
+    public boolean isFullScan() {
+        return candidates == null;
+    }
+
+    /**
+     * Upper bound on the rows the plan loads and checks.
+     */
+    public int getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    /**
+     * Part of the query the indexes don't answer, checked row by row.
+     */
+    public Optional<MediaQuery> getResidual() {
+        return Optional.ofNullable(residual);
+    }
+
+    Supplier<RoaringBitmap> getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Human-readable plan, one step per line, suitable for logging.
+     */
+    public String explain() {
+        StringBuilder out = new StringBuilder();
+        out.append("Query: ").append(query).append('\n');
+        if (isFullScan()) {
+            out.append("Access: full scan of ").append(totalRows).append(" rows\n");
+        } else {
+            out.append("Access: index candidates, ~").append(estimatedRows)
+                    .append(" of ").append(totalRows).append(" rows\n");
+            steps.forEach(step -> out.append("  ").append(step).append('\n'));
+        }
+        out.append("Residual: ").append(residual != null ? residual : "none");
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+}
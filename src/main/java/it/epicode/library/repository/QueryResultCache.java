@@ -0,0 +1,189 @@
+package it.epicode.library.repository;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of query results with segmented-LRU eviction.
+ * New entries enter a probation segment; a second hit promotes them to a protected
+ * segment holding most of the capacity, so a burst of one-off queries only churns
+ * probation and cannot flush the popular ones. Entries demoted from protected get
+ * another chance in probation before they are evicted.
+ *
+ * Every entry is tagged with the data version it was computed at and is only served
+ * while that version is still current, so a write anywhere makes older results miss.
+ *
+ * @param <K> the query key type
+ * @param <V> the result type
+ */
+public class QueryResultCache<K, V> {
+
+    // Share of the capacity reserved for entries that were hit at least twice
+    private static final double PROTECTED_SHARE = 0.8;
+
+    private final int capacity;
+    private final int protectedCapacity;
+
+    // Access-ordered, least recently used first; guarded by this
+    private final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entry<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public QueryResultCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.protectedCapacity = (int) (capacity * PROTECTED_SHARE);
+    }
+
+    /**
+     * Returns the cached result for a key if it was computed at the current version,
+     * otherwise computes it and caches it under the version read before computing.
+     */
+    public V get(K key, LongSupplier currentVersion, Supplier<V> compute) {
+        Objects.requireNonNull(key, "Key cannot be null");
+        long version = currentVersion.getAsLong();
+        V cached = lookup(key, version);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        V result = compute.get();
+        if (result != null) {
+            put(key, new Entry<>(version, result));
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return probation.size() + protectedSegment.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized void clear() {
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    /**
+     * Gets the hit, miss and eviction counts since the cache was created.
+     */
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size(), capacity);
+    }
+
+    private synchronized V lookup(K key, long version) {
+        Entry<V> entry = protectedSegment.get(key);
+        if (entry == null) {
+            entry = probation.remove(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.version == version) {
+                promote(key, entry);
+            }
+        }
+        if (entry.version != version) {
+            // Computed before a later write; never served again
+            protectedSegment.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    private synchronized void put(K key, Entry<V> entry) {
+        if (protectedSegment.containsKey(key)) {
+            protectedSegment.put(key, entry);
+            return;
+        }
+        probation.put(key, entry);
+        evictOverflow();
+    }
+
+    /**
+     * Moves a probation entry into protected, demoting protected's least recent entry
+     * back to probation when protected is full. Must hold the monitor.
+     */
+    private void promote(K key, Entry<V> entry) {
+        protectedSegment.put(key, entry);
+        if (protectedSegment.size() > protectedCapacity) {
+            Iterator<Map.Entry<K, Entry<V>>> eldest = protectedSegment.entrySet().iterator();
+            Map.Entry<K, Entry<V>> demoted = eldest.next();
+            eldest.remove();
+            probation.put(demoted.getKey(), demoted.getValue());
+        }
+        evictOverflow();
+    }
+
+    /**
+     * Evicts least recently used probation entries while over capacity. Must hold the monitor.
+     */
+    private void evictOverflow() {
+        Iterator<K> eldest = probation.keySet().iterator();
+        while (probation.size() + protectedSegment.size() > capacity && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final long version;
+        private final V value;
+
+        private Entry(long version, V value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Point-in-time cache metrics.
+     */
+    public static class CacheStats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+        private final int capacity;
+
+        public CacheStats(long hits, long misses, long evictions, int size, int capacity) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+            this.capacity = capacity;
+        }
+
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public int getSize() { return size; }
+        public int getCapacity() { return capacity; }
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests > 0 ? (double) hits / requests : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("CacheStats{hits=%d, misses=%d, evictions=%d, size=%d/%d, hitRate=%.2f}",
+                    hits, misses, evictions, size, capacity, getHitRate());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package it.epicode.library.repository;
 
 import java.util.*;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Generic repository interface defining basic CRUD operations.
@@ -25,4 +26,15 @@ public interface Repository<T extends Identifiable> {
     List<T> findByIds(Collection<String> ids);
     Map<String, T> findAllAsMap();
     Set<String> getAllIds();
+
+    /**
+     * Lazily streams the stored entities without materializing a copy of the store.
+     */
+    Stream<T> stream();
+
+    /**
+     * Gets the first k entities matching the filter in comparator order,
+     * without sorting or copying the whole store.
+     */
+    List<T> topK(Predicate<T> filter, Comparator<? super T> comparator, int k);
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package it.epicode.library.repository;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Consistent, read-only view of a repository at one modification version.
+ * Iterating takes no lock and is not affected by writes committed after the
+ * snapshot was opened. The view fixes which entity instances are visible;
+ * entities mutated in place are shared with the live repository, so writers
+ * should save a changed copy instead, as LibraryService does.
+ *
+ * Close the snapshot when done so that the versions it pins can be reclaimed.
+ */
+public class RepositorySnapshot<T extends Identifiable> implements Iterable<T>, AutoCloseable {
+
+    private final long version;
+    private final Supplier<Spliterator<T>> spliterator;
+    private final Function<String, T> lookup;
+    private final Runnable onClose;
+    private boolean closed;
+
+    RepositorySnapshot(long version, Supplier<Spliterator<T>> spliterator, Function<String, T> lookup,
+                       Runnable onClose) {
+        this.version = version;
+        this.spliterator = spliterator;
+        this.lookup = lookup;
+        this.onClose = onClose;
+    }
+
+    /**
+     * Gets the modification version this snapshot reflects.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Finds an entity as it was at the snapshot's version.
+     */
+    public Optional<T> findById(String id) {
+        checkOpen();
+        return id != null ? Optional.ofNullable(lookup.apply(id)) : Optional.empty();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        checkOpen();
+        return spliterator.get();
+    }
+
+    /**
+     * Lazy stream over the snapshot; call parallel() to split the walk across threads.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Copies the snapshot into a new list.
+     */
+    public List<T> toList() {
+        List<T> result = new ArrayList<>();
+        forEach(result::add);
+        return result;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            onClose.run();
+        }
+    }
+
+    private synchronized void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Snapshot at version " + version + " is closed");
+        }
+    }
+}
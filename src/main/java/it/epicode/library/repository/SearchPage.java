@@ -0,0 +1,32 @@
+package it.epicode.library.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One page of a keyset-paginated search.
+ * The continuation token is opaque; pass it back to fetch the following page.
+ */
+public class SearchPage<T> {
+    private final List<T> items;
+    private final String nextPageToken;
+
+    public SearchPage(List<T> items, String nextPageToken) {
+        this.items = List.copyOf(items);
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<T> getItems() { return items; }
+
+    /**
+     * Token for the next page, empty on the last page.
+     */
+    public Optional<String> getNextPageToken() { return Optional.ofNullable(nextPageToken); }
+
+    public boolean hasNextPage() { return nextPageToken != null; }
+
+    @Override
+    public String toString() {
+        return String.format("SearchPage{items=%d, hasNext=%s}", items.size(), hasNextPage());
+    }
+}
@@ -7,7 +7,18 @@ import java.util.concurrent.ConcurrentHashMap;
 public class UserRepository extends AbstractRepository<User> {
 
     // Email index for unique email constraint
-    private final Map<String, String> emailIndex = new ConcurrentHashMap<>(); // email -> userId
+    private final Map<String, Integer> emailIndex = new ConcurrentHashMap<>(); // email -> user ordinal
+
+    // Email each user was indexed under, so removal never depends on in-place mutations
+    private final Map<String, String> indexedEmails = new ConcurrentHashMap<>(); // userId -> email
+
+    public UserRepository() {
+        this(ConcurrencyMode.GLOBAL_LOCK);
+    }
+
+    public UserRepository(ConcurrencyMode concurrencyMode) {
+        super(concurrencyMode);
+    }
 
     @Override
     protected void updateSecondaryIndexes(User entity, User previous) {
@@ -17,12 +28,24 @@ public class UserRepository extends AbstractRepository<User> {
         }
 
         // Add to email index
-        emailIndex.put(entity.getEmail().toLowerCase(), entity.getId());
+        String emailKey = entity.getEmail().toLowerCase();
+        emailIndex.put(emailKey, ordinalOf(entity.getId()));
+        indexedEmails.put(entity.getId(), emailKey);
     }
 
     @Override
     protected void removeFromSecondaryIndexes(User entity) {
-        emailIndex.remove(entity.getEmail().toLowerCase());
+        String emailKey = indexedEmails.remove(entity.getId());
+        if (emailKey != null) {
+            // Only drop the mapping if it still points to this user
+            emailIndex.remove(emailKey, ordinalOf(entity.getId()));
+        }
+    }
+
+    @Override
+    protected void clearSecondaryIndexes() {
+        emailIndex.clear();
+        indexedEmails.clear();
     }
 
     /**
@@ -31,8 +54,15 @@ public class UserRepository extends AbstractRepository<User> {
     public Optional<User> findByEmail(String email) {
         if (email == null) return Optional.empty();
 
-        String userId = emailIndex.get(email.toLowerCase());
-        return userId != null ? findById(userId) : Optional.empty();
+        String emailKey = email.toLowerCase();
+        return readLocked(() -> {
+            Integer ordinal = emailIndex.get(emailKey);
+            User user = ordinal != null ? entityAt(ordinal) : null;
+            // A recycled ordinal may point to another user under lock-free reads
+            return user != null && user.getEmail().equalsIgnoreCase(emailKey)
+                    ? Optional.of(user)
+                    : Optional.empty();
+        });
     }
 
     /**
@@ -48,4 +78,4 @@ public class UserRepository extends AbstractRepository<User> {
     public boolean emailExists(String email) {
         return email != null && emailIndex.containsKey(email.toLowerCase());
     }
-}
\ No newline at end of file
+}
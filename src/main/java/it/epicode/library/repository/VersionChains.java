@@ -0,0 +1,250 @@
+package it.epicode.library.repository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Multi-version history of a repository's contents.
+ * Every committed write pushes a new version onto the entity's chain (newest first,
+ * with null values marking deletes), so a reader pinned to a version number finds
+ * each entity's state at that version without any lock.
+ *
+ * Version numbers come from an atomic counter and are published in order: a commit
+ * pushes its chain entry, then waits only for commits numbered before it to publish.
+ * Callers order commits of the same id (the id's write lock), so chains need no
+ * shared lock. Versions no open reader can see are unlinked from a chain when the
+ * id is written again; chains still holding such versions are queued and pruned
+ * one id at a time when a reader closes, never under a lock writers wait on.
+ */
+class VersionChains<T> {
+
+    private final Map<String, Version<T>> chains = new ConcurrentHashMap<>(); // id -> newest version
+
+    private final AtomicLong nextVersion = new AtomicLong();
+    private volatile long committedVersion; // every version up to this one is pushed
+
+    // Registers readers; never taken by commits except commitClear
+    private final Object readerMonitor = new Object();
+    private final TreeMap<Long, Integer> openReaders = new TreeMap<>(); // version -> readers, guarded by readerMonitor
+    // Lower bound of every open or opening reader's version, Long.MAX_VALUE when none
+    private volatile long oldestReader = Long.MAX_VALUE;
+
+    // Ids whose chain still holds versions an open reader could see
+    private final Queue<String> reclaimQueue = new ConcurrentLinkedQueue<>();
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Commits a new value for an id (null for a delete) and returns its version.
+     * Commits of the same id must not run concurrently.
+     */
+    long commit(String id, T value) {
+        long version = nextVersion.incrementAndGet();
+        try {
+            chains.compute(id, (key, head) -> new Version<>(version, value, head));
+        } finally {
+            publish(version);
+        }
+        prune(id);
+        return version;
+    }
+
+    /**
+     * Commits new values for many ids as one version; readers see all of them or none.
+     */
+    long commitAll(Map<String, T> values) {
+        long version = nextVersion.incrementAndGet();
+        try {
+            values.forEach((id, value) -> chains.compute(id, (key, head) -> new Version<>(version, value, head)));
+        } finally {
+            publish(version);
+        }
+        values.keySet().forEach(this::prune);
+        return version;
+    }
+
+    /**
+     * Commits a delete of every id as one version. Must not run concurrently with other commits.
+     */
+    long commitClear() {
+        synchronized (readerMonitor) {
+            long version = nextVersion.incrementAndGet();
+            if (openReaders.isEmpty()) {
+                // Readers opening now wait for the monitor, so none can pin a cleared version
+                chains.clear();
+                reclaimQueue.clear();
+                queued.clear();
+            } else {
+                chains.replaceAll((id, head) -> new Version<>(version, null, head));
+                chains.keySet().forEach(this::enqueue);
+            }
+            publish(version);
+            return version;
+        }
+    }
+
+    /**
+     * Pins the latest committed version for a reader.
+     */
+    long open() {
+        synchronized (readerMonitor) {
+            // Lower the bound before reading the version, so a concurrent prune either
+            // sees the bound or ran against a version no newer than the one read here
+            oldestReader = Math.min(oldestReader, committedVersion);
+            long version = committedVersion;
+            openReaders.merge(version, 1, Integer::sum);
+            oldestReader = openReaders.firstKey();
+            return version;
+        }
+    }
+
+    /**
+     * Releases a reader, then prunes the chains that were waiting for older readers to leave.
+     */
+    void close(long version) {
+        synchronized (readerMonitor) {
+            openReaders.computeIfPresent(version, (v, readers) -> readers > 1 ? readers - 1 : null);
+            oldestReader = openReaders.isEmpty() ? Long.MAX_VALUE : openReaders.firstKey();
+        }
+        // Each id is pruned on its own; writers of other ids never wait for this
+        for (int pending = reclaimQueue.size(); pending > 0; pending--) {
+            String id = reclaimQueue.poll();
+            if (id == null) {
+                break;
+            }
+            queued.remove(id);
+            prune(id);
+        }
+    }
+
+    long currentVersion() {
+        return committedVersion;
+    }
+
+    /**
+     * State of an id at a version, or null if it did not exist then.
+     */
+    T get(String id, long version) {
+        Version<T> node = chains.get(id);
+        while (node != null && node.version > version) {
+            node = node.next;
+        }
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * Lazily walks the entities that existed at a version; splits like the chain map
+     * so the walk can run in parallel.
+     */
+    Spliterator<T> spliterator(long version) {
+        return new VersionSpliterator<>(chains.values().spliterator(), version);
+    }
+
+    /**
+     * Makes a pushed version visible once every earlier version is, so a reader
+     * pinned to the committed version finds all of its chain entries.
+     */
+    private void publish(long version) {
+        while (committedVersion != version - 1) {
+            Thread.yield();
+        }
+        committedVersion = version;
+    }
+
+    /**
+     * Unlinks the versions of a chain no open reader can see: everything after the
+     * newest version at or below the oldest reader's version. Queues the id again
+     * if a reader still holds older versions.
+     */
+    private void prune(String id) {
+        // Committed version first: a reader that registers after the bound is read
+        // pins a version at least this new
+        long committed = committedVersion;
+        long horizon = Math.min(committed, oldestReader);
+        Version<T> pruned = chains.computeIfPresent(id, (key, head) -> {
+            Version<T> node = head;
+            while (node.version > horizon && node.next != null) {
+                node = node.next;
+            }
+            node.next = null;
+            // A lone delete is what every reader would see anyway
+            return head.next == null && head.value == null ? null : head;
+        });
+        if (pruned != null && pruned.next != null) {
+            enqueue(id);
+        }
+    }
+
+    private void enqueue(String id) {
+        if (queued.add(id)) {
+            reclaimQueue.add(id);
+        }
+    }
+
+    /**
+     * Resolves each chain of a chain-map spliterator to its value at a version, skipping absent ones.
+     */
+    private static final class VersionSpliterator<T> implements Spliterator<T> {
+        private final Spliterator<Version<T>> heads;
+        private final long version;
+        private T current;
+
+        private VersionSpliterator(Spliterator<Version<T>> heads, long version) {
+            this.heads = heads;
+            this.version = version;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            current = null;
+            while (current == null && heads.tryAdvance(head -> {
+                Version<T> node = head;
+                while (node != null && node.version > version) {
+                    node = node.next;
+                }
+                current = node != null ? node.value : null;
+            })) {
+                // keep advancing past entities absent at this version
+            }
+            if (current == null) {
+                return false;
+            }
+            action.accept(current);
+            current = null;
+            return true;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            Spliterator<Version<T>> split = heads.trySplit();
+            return split != null ? new VersionSpliterator<>(split, version) : null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return heads.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL | CONCURRENT;
+        }
+    }
+
+    /**
+     * One committed state of an entity.
+     */
+    private static final class Version<T> {
+        private final long version;
+        private final T value; // null for a delete
+        private volatile Version<T> next; // older version
+
+        private Version(long version, T value, Version<T> next) {
+            this.version = version;
+            this.value = value;
+            this.next = next;
+        }
+    }
+}
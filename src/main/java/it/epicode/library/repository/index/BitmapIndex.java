@@ -0,0 +1,257 @@
+package it.epicode.library.repository.index;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap index mapping keys to the ordinals of the entities holding them.
+ * Used both for low-cardinality attributes (type, availability, location), where
+ * filters combine with word-level set operations and counts come from bitmap
+ * cardinalities, and as posting lists for the text indexes.
+ *
+ * Bitmaps are mutable, so all access goes through a read/write lock and callers
+ * only ever receive copies or freshly computed results. The lock is per index,
+ * not per key: every writer touching an index takes the same write lock, so
+ * index maintenance serializes even when the repository runs in STRIPED mode.
+ *
+ * @param <K> the key type
+ */
+public class BitmapIndex<K> {
+
+    private final Map<K, RoaringBitmap> bitmaps = new HashMap<>(); // key -> ordinals
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void add(K key, int ordinal) {
+        lock.writeLock().lock();
+        try {
+            bitmaps.computeIfAbsent(key, k -> new RoaringBitmap()).add(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an ordinal under several keys in one critical section.
+     */
+    public void addAll(Collection<K> keys, int ordinal) {
+        lock.writeLock().lock();
+        try {
+            for (K key : keys) {
+                bitmaps.computeIfAbsent(key, k -> new RoaringBitmap()).add(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds every posting of another index, e.g. a fragment built by a bulk load.
+     */
+    public void merge(BitmapIndex<K> other) {
+        if (other == this) {
+            return;
+        }
+        other.lock.readLock().lock();
+        lock.writeLock().lock();
+        try {
+            other.bitmaps.forEach((key, bitmap) -> {
+                RoaringBitmap current = bitmaps.get(key);
+                bitmaps.put(key, current != null ? current.or(bitmap) : bitmap.copy());
+            });
+        } finally {
+            lock.writeLock().unlock();
+            other.lock.readLock().unlock();
+        }
+    }
+
+    public void remove(K key, int ordinal) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(key, ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an ordinal from several keys in one critical section.
+     */
+    public void removeAll(Collection<K> keys, int ordinal) {
+        lock.writeLock().lock();
+        try {
+            for (K key : keys) {
+                removeUnlocked(key, ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copy of the ordinals indexed under a key; empty if the key is unknown.
+     */
+    public RoaringBitmap get(K key) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap bitmap = bitmaps.get(key);
+            return bitmap != null ? bitmap.copy() : new RoaringBitmap();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Intersection of a key's ordinals with the given bitmap, without copying the key's bitmap.
+     */
+    public RoaringBitmap and(K key, RoaringBitmap other) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap bitmap = bitmaps.get(key);
+            return bitmap != null ? bitmap.and(other) : new RoaringBitmap();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ordinals indexed under every key. Intersection starts from the smallest
+     * bitmap so the cost is bounded by its size.
+     */
+    public RoaringBitmap andAll(Collection<K> keys) {
+        lock.readLock().lock();
+        try {
+            List<RoaringBitmap> selected = new ArrayList<>(keys.size());
+            for (K key : new HashSet<>(keys)) {
+                RoaringBitmap bitmap = bitmaps.get(key);
+                if (bitmap == null) {
+                    return new RoaringBitmap();
+                }
+                selected.add(bitmap);
+            }
+            if (selected.isEmpty()) {
+                return new RoaringBitmap();
+            }
+            selected.sort(Comparator.comparingInt(RoaringBitmap::cardinality));
+
+            RoaringBitmap result = selected.get(0).copy();
+            for (int i = 1; i < selected.size() && !result.isEmpty(); i++) {
+                result = result.and(selected.get(i));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ordinals indexed under at least one key.
+     */
+    public RoaringBitmap orAll(Collection<K> keys) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = new RoaringBitmap();
+            for (K key : keys) {
+                RoaringBitmap bitmap = bitmaps.get(key);
+                if (bitmap != null) {
+                    result = result.or(bitmap);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether any ordinal is indexed under the key.
+     */
+    public boolean contains(K key) {
+        lock.readLock().lock();
+        try {
+            return bitmaps.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of ordinals indexed under a key.
+     */
+    public int cardinality(K key) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap bitmap = bitmaps.get(key);
+            return bitmap != null ? bitmap.cardinality() : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of ordinals indexed under a key that are also in the given bitmap.
+     */
+    public int andCardinality(K key, RoaringBitmap other) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap bitmap = bitmaps.get(key);
+            return bitmap != null ? bitmap.andCardinality(other) : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cardinality of every key.
+     */
+    public Map<K, Integer> cardinalities() {
+        lock.readLock().lock();
+        try {
+            Map<K, Integer> counts = new HashMap<>();
+            bitmaps.forEach((key, bitmap) -> counts.put(key, bitmap.cardinality()));
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<K> keys() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(bitmaps.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of distinct keys.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return bitmaps.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            bitmaps.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeUnlocked(K key, int ordinal) {
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package it.epicode.library.repository.index;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Burkhard-Keller tree over a term vocabulary for typo-tolerant lookups.
+ * The triangle inequality of the edit distance lets a query within distance k
+ * skip every subtree whose edge label is outside [d - k, d + k], so only a small
+ * part of the vocabulary is compared.
+ *
+ * Each term counts the entries that use it. A term whose count drops to zero stays
+ * in the tree as a dead node that searches skip, until dead nodes make up half of
+ * the tree; the tree is then rebuilt from the live terms, so its size and search
+ * cost follow the live vocabulary under churn. Searches run without a lock.
+ */
+public class BkTree {
+
+    // Smallest tree worth rebuilding to drop dead terms
+    private static final int MIN_REBUILD_SIZE = 64;
+
+    private volatile Node root;
+    private final Map<String, Integer> occurrences = new ConcurrentHashMap<>(); // live term -> uses
+    private int size; // nodes in the tree, live or dead; guarded by this
+
+    /**
+     * Adds one use of a term.
+     */
+    public void add(String term) {
+        add(term, 1);
+    }
+
+    /**
+     * Adds uses of a term, inserting it into the tree unless it is already there.
+     */
+    public synchronized void add(String term, int uses) {
+        if (term == null || term.isEmpty() || uses <= 0) {
+            return;
+        }
+        if (occurrences.merge(term, uses, Integer::sum) != uses) {
+            return;
+        }
+        if (root == null) {
+            root = new Node(term);
+            size = 1;
+        } else if (insert(root, term)) {
+            size++;
+        }
+    }
+
+    /**
+     * Removes one use of a term. Once dead terms outnumber live ones the tree is rebuilt.
+     */
+    public synchronized void remove(String term) {
+        if (term == null || occurrences.computeIfPresent(term, (t, uses) -> uses > 1 ? uses - 1 : null) != null) {
+            return;
+        }
+        if (size >= MIN_REBUILD_SIZE && size - occurrences.size() > size / 2) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Returns the live terms within maxDistance edits of the query.
+     */
+    public List<String> search(String query, int maxDistance) {
+        List<String> matches = new ArrayList<>();
+        Node start = root;
+        if (start == null || query == null) {
+            return matches;
+        }
+
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(start);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(query, node.term);
+            if (distance <= maxDistance && occurrences.containsKey(node.term)) {
+                matches.add(node.term);
+            }
+            for (Map.Entry<Integer, Node> edge : node.children.entrySet()) {
+                int label = edge.getKey();
+                if (label >= distance - maxDistance && label <= distance + maxDistance) {
+                    pending.push(edge.getValue());
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Number of terms in the tree, including dead terms not yet dropped by a rebuild.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Number of terms with at least one use.
+     */
+    public int liveSize() {
+        return occurrences.size();
+    }
+
+    public synchronized void clear() {
+        root = null;
+        size = 0;
+        occurrences.clear();
+    }
+
+    /**
+     * Builds a tree of the live terms off to the side and swaps it in, so searches
+     * running meanwhile keep walking the old one.
+     */
+    private void rebuild() {
+        Node rebuilt = null;
+        int count = 0;
+        for (String term : occurrences.keySet()) {
+            if (rebuilt == null) {
+                rebuilt = new Node(term);
+                count = 1;
+            } else if (insert(rebuilt, term)) {
+                count++;
+            }
+        }
+        root = rebuilt;
+        size = count;
+    }
+
+    /**
+     * Inserts a term below a root; returns false if it is already in the tree.
+     */
+    private static boolean insert(Node root, String term) {
+        Node node = root;
+        while (true) {
+            int distance = distance(term, node.term);
+            if (distance == 0) {
+                return false;
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new Node(term));
+                return true;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Levenshtein distance with two rolling rows.
+     */
+    static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static final class Node {
+        private final String term;
+        private final Map<Integer, Node> children = new ConcurrentHashMap<>(); // edit distance -> child
+
+        private Node(String term) {
+            this.term = term;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package it.epicode.library.repository.index;
+
+import java.util.*;
+
+/**
+ * Prefix trie for autocomplete over normalized phrases (titles, author names).
+ * Every node keeps a precomputed list of its best completions ranked by weight,
+ * so a lookup costs O(prefix length) regardless of the number of phrases.
+ *
+ * Readers are lock-free: child tables and completion lists are immutable arrays
+ * published through volatile fields. Writers are serialized on the trie.
+ */
+public class CompletionTrie {
+
+    public static final int DEFAULT_TOP_K = 10;
+
+    private static final Completion[] NO_COMPLETIONS = new Completion[0];
+
+    private static final Comparator<Completion> RANKING =
+            Comparator.comparingInt((Completion c) -> c.weight).reversed()
+                    .thenComparing(c -> c.key);
+
+    private final int topK;
+    private final Node root = new Node();
+
+    public CompletionTrie() {
+        this(DEFAULT_TOP_K);
+    }
+
+    public CompletionTrie(int topK) {
+        if (topK <= 0) throw new IllegalArgumentException("Top-k must be positive");
+        this.topK = topK;
+    }
+
+    /**
+     * Adds one occurrence of a phrase, increasing its weight by one.
+     */
+    public void add(String phrase) {
+        add(phrase, 1);
+    }
+
+    /**
+     * Adds several occurrences of a phrase at once, refreshing its path a single time.
+     */
+    public synchronized void add(String phrase, int occurrences) {
+        if (occurrences <= 0) {
+            return;
+        }
+        String key = TextNormalizer.normalize(phrase).trim();
+        if (key.isEmpty()) {
+            return;
+        }
+
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].childOrCreate(key.charAt(i));
+        }
+
+        Node terminal = path[key.length()];
+        Completion current = terminal.completion;
+        terminal.completion = current == null
+                ? new Completion(key, phrase.trim(), occurrences)
+                : new Completion(key, current.phrase, current.weight + occurrences);
+
+        refreshPath(path, key);
+    }
+
+    /**
+     * Removes one occurrence of a phrase; the phrase disappears once its weight reaches zero.
+     */
+    public synchronized void remove(String phrase) {
+        String key = TextNormalizer.normalize(phrase).trim();
+        if (key.isEmpty()) {
+            return;
+        }
+
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].child(key.charAt(i));
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+
+        Node terminal = path[key.length()];
+        Completion current = terminal.completion;
+        if (current == null) {
+            return;
+        }
+        terminal.completion = current.weight > 1
+                ? new Completion(key, current.phrase, current.weight - 1)
+                : null;
+
+        // Prune nodes left without completions or children
+        for (int i = key.length(); i > 0; i--) {
+            Node node = path[i];
+            if (node.completion != null || node.children.keys.length > 0) {
+                break;
+            }
+            path[i - 1].removeChild(key.charAt(i - 1));
+        }
+
+        refreshPath(path, key);
+    }
+
+    /**
+     * Returns up to limit phrases starting with the prefix, most frequent first.
+     * The prefix is normalized and trimmed like the stored keys.
+     *
+     * @throws IllegalArgumentException if limit exceeds the top-k kept per node
+     */
+    public List<String> suggest(String prefix, int limit) {
+        if (limit > topK) {
+            throw new IllegalArgumentException("Limit " + limit + " exceeds the " + topK + " completions kept per node");
+        }
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        String key = TextNormalizer.normalize(prefix).trim();
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) {
+            return Collections.emptyList();
+        }
+
+        Completion[] best = node.best;
+        int size = Math.min(limit, best.length);
+        List<String> suggestions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            suggestions.add(best[i].phrase);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Maximum number of completions precomputed per node.
+     */
+    public int getTopK() {
+        return topK;
+    }
+
+    public synchronized void clear() {
+        root.children = Children.EMPTY;
+        root.completion = null;
+        root.best = NO_COMPLETIONS;
+    }
+
+    /**
+     * Recomputes the ranked completions bottom-up along a path. A node's best
+     * completions are drawn from its own phrase and its children's best lists only.
+     */
+    private void refreshPath(Node[] path, String key) {
+        for (int i = key.length(); i >= 0; i--) {
+            Node node = path[i];
+            if (i > 0 && node != path[i - 1].child(key.charAt(i - 1))) {
+                continue; // pruned
+            }
+
+            List<Completion> candidates = new ArrayList<>();
+            if (node.completion != null) {
+                candidates.add(node.completion);
+            }
+            for (Node child : node.children.nodes) {
+                candidates.addAll(Arrays.asList(child.best));
+            }
+            candidates.sort(RANKING);
+            node.best = candidates.subList(0, Math.min(topK, candidates.size()))
+                    .toArray(NO_COMPLETIONS);
+        }
+    }
+
+    /**
+     * Ranked phrase with its normalized key.
+     */
+    private static final class Completion {
+        private final String key;
+        private final String phrase;
+        private final int weight;
+
+        private Completion(String key, String phrase, int weight) {
+            this.key = key;
+            this.phrase = phrase;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Immutable, sorted child table.
+     */
+    private static final class Children {
+        private static final Children EMPTY = new Children(new char[0], new Node[0]);
+
+        private final char[] keys;
+        private final Node[] nodes;
+
+        private Children(char[] keys, Node[] nodes) {
+            this.keys = keys;
+            this.nodes = nodes;
+        }
+    }
+
+    private static final class Node {
+        private volatile Children children = Children.EMPTY;
+        private volatile Completion completion;
+        private volatile Completion[] best = NO_COMPLETIONS;
+
+        Node child(char c) {
+            Children table = children;
+            int index = Arrays.binarySearch(table.keys, c);
+            return index >= 0 ? table.nodes[index] : null;
+        }
+
+        Node childOrCreate(char c) {
+            Children table = children;
+            int index = Arrays.binarySearch(table.keys, c);
+            if (index >= 0) {
+                return table.nodes[index];
+            }
+
+            int insertAt = -index - 1;
+            char[] keys = new char[table.keys.length + 1];
+            Node[] nodes = new Node[keys.length];
+            System.arraycopy(table.keys, 0, keys, 0, insertAt);
+            System.arraycopy(table.nodes, 0, nodes, 0, insertAt);
+            System.arraycopy(table.keys, insertAt, keys, insertAt + 1, table.keys.length - insertAt);
+            System.arraycopy(table.nodes, insertAt, nodes, insertAt + 1, table.nodes.length - insertAt);
+
+            Node created = new Node();
+            keys[insertAt] = c;
+            nodes[insertAt] = created;
+            children = new Children(keys, nodes);
+            return created;
+        }
+
+        void removeChild(char c) {
+            Children table = children;
+            int index = Arrays.binarySearch(table.keys, c);
+            if (index < 0) {
+                return;
+            }
+
+            char[] keys = new char[table.keys.length - 1];
+            Node[] nodes = new Node[keys.length];
+            System.arraycopy(table.keys, 0, keys, 0, index);
+            System.arraycopy(table.nodes, 0, nodes, 0, index);
+            System.arraycopy(table.keys, index + 1, keys, index, keys.length - index);
+            System.arraycopy(table.nodes, index + 1, nodes, index, nodes.length - index);
+            children = new Children(keys, nodes);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package it.epicode.library.repository.index;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running count of entities per key, maintained by the index hooks.
+ * Counters are LongAdders, so concurrent increments on different keys don't
+ * contend, and reading every count costs one pass over the distinct keys.
+ *
+ * Counts are exact once writers are quiescent; a reader racing with a write
+ * may see the decrement of an update before its increment.
+ *
+ * @param <K> the key type
+ */
+public class CounterIndex<K> {
+
+    private final Map<K, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public void increment(K key) {
+        counters.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Adds a delta to a key's count in one step.
+     */
+    public void add(K key, long delta) {
+        counters.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+    }
+
+    public void decrement(K key) {
+        LongAdder counter = counters.get(key);
+        if (counter != null) {
+            counter.decrement();
+        }
+    }
+
+    /**
+     * Current count for a key, zero if it was never counted.
+     */
+    public int get(K key) {
+        LongAdder counter = counters.get(key);
+        return counter != null ? counter.intValue() : 0;
+    }
+
+    /**
+     * Current count per key, leaving out keys that dropped to zero.
+     */
+    public Map<K, Integer> counts() {
+        Map<K, Integer> result = new HashMap<>();
+        counters.forEach((key, counter) -> {
+            int count = counter.intValue();
+            if (count > 0) {
+                result.put(key, count);
+            }
+        });
+        return result;
+    }
+
+    public void clear() {
+        counters.clear();
+    }
+}
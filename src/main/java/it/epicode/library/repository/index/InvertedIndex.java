@@ -0,0 +1,73 @@
+package it.epicode.library.repository.index;
+
+import java.util.*;
+
+/**
+ * Incrementally maintained inverted index mapping normalized terms to entity ordinals.
+ * Posting lists are compressed bitmaps, so query cost is proportional to the
+ * posting lists involved, not to the number of entities.
+ */
+public class InvertedIndex {
+
+    private final BitmapIndex<String> postings = new BitmapIndex<>(); // term -> ordinals
+
+    /**
+     * Indexes an entity under the given normalized terms.
+     */
+    public void add(int ordinal, Collection<String> terms) {
+        postings.addAll(terms, ordinal);
+    }
+
+    /**
+     * Adds every posting of another index, e.g. a fragment built by a bulk load.
+     */
+    public void merge(InvertedIndex other) {
+        postings.merge(other.postings);
+    }
+
+    /**
+     * Removes an entity from the given terms, dropping empty posting lists.
+     */
+    public void remove(int ordinal, Collection<String> terms) {
+        postings.removeAll(terms, ordinal);
+    }
+
+    /**
+     * Returns the ordinals indexed under a single term.
+     */
+    public RoaringBitmap lookup(String term) {
+        return postings.get(term);
+    }
+
+    /**
+     * Checks whether any entity is indexed under the term.
+     */
+    public boolean contains(String term) {
+        return postings.contains(term);
+    }
+
+    /**
+     * AND query: ordinals indexed under every term, intersected from the shortest posting list.
+     */
+    public RoaringBitmap matchAll(Collection<String> terms) {
+        return postings.andAll(terms);
+    }
+
+    /**
+     * OR query: ordinals indexed under at least one term.
+     */
+    public RoaringBitmap matchAny(Collection<String> terms) {
+        return postings.orAll(terms);
+    }
+
+    /**
+     * Number of distinct terms in the dictionary.
+     */
+    public int termCount() {
+        return postings.size();
+    }
+
+    public void clear() {
+        postings.clear();
+    }
+}
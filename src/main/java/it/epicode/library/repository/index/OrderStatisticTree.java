@@ -0,0 +1,356 @@
+package it.epicode.library.repository.index;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Sorted set of distinct keys that also answers positional queries.
+ * Backed by a treap whose nodes record their subtree size, so insert, remove,
+ * "key at rank k" and "rank of key" all take expected O(log n), and reading
+ * a run of c keys from any rank takes O(log n + c).
+ *
+ * Access is guarded by a read/write lock.
+ *
+ * @param <K> the key type
+ */
+public class OrderStatisticTree<K> {
+
+    private final Comparator<? super K> comparator;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node<K> root;
+
+    public OrderStatisticTree(Comparator<? super K> comparator) {
+        this.comparator = Objects.requireNonNull(comparator, "Comparator cannot be null");
+    }
+
+    /**
+     * Adds a key; returns false if it was already present.
+     */
+    public boolean add(K key) {
+        lock.writeLock().lock();
+        try {
+            if (find(key) != null) {
+                return false;
+            }
+            Split<K> parts = split(root, key);
+            root = merge(merge(parts.below, new Node<>(key)), parts.atOrAbove);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds many keys at once. A large batch is merged with the existing keys in
+     * sort order and the tree rebuilt in linear time instead of inserted key by key.
+     */
+    public void addAll(Collection<? extends K> keys) {
+        List<K> incoming = new ArrayList<>(keys);
+        incoming.sort(comparator);
+
+        lock.writeLock().lock();
+        try {
+            int existing = size(root);
+            if (incoming.size() < existing / 16) {
+                for (K key : incoming) {
+                    if (find(key) == null) {
+                        Split<K> parts = split(root, key);
+                        root = merge(merge(parts.below, new Node<>(key)), parts.atOrAbove);
+                    }
+                }
+                return;
+            }
+
+            List<K> current = new ArrayList<>(existing);
+            collect(root, 0, existing, current);
+            root = build(mergeSorted(current, incoming));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a key; returns false if it was not present.
+     */
+    public boolean remove(K key) {
+        lock.writeLock().lock();
+        try {
+            if (find(key) == null) {
+                return false;
+            }
+            root = erase(root, key);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Zero-based position of a key in sort order, or -1 if it is not present.
+     */
+    public int rank(K key) {
+        lock.readLock().lock();
+        try {
+            int rank = 0;
+            Node<K> node = root;
+            while (node != null) {
+                int c = comparator.compare(key, node.key);
+                if (c < 0) {
+                    node = node.left;
+                } else {
+                    rank += size(node.left);
+                    if (c == 0) {
+                        return rank;
+                    }
+                    rank++;
+                    node = node.right;
+                }
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of keys that sort strictly before the given key, present or not.
+     */
+    public int headCount(K key) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            Node<K> node = root;
+            while (node != null) {
+                if (comparator.compare(key, node.key) <= 0) {
+                    node = node.left;
+                } else {
+                    count += size(node.left) + 1;
+                    node = node.right;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Key at a zero-based position in sort order.
+     *
+     * @throws IndexOutOfBoundsException if the rank is outside [0, size)
+     */
+    public K select(int rank) {
+        lock.readLock().lock();
+        try {
+            Objects.checkIndex(rank, size(root));
+            Node<K> node = root;
+            while (true) {
+                int leftSize = size(node.left);
+                if (rank < leftSize) {
+                    node = node.left;
+                } else if (rank == leftSize) {
+                    return node.key;
+                } else {
+                    rank -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to count keys in sort order starting at a zero-based rank.
+     */
+    public List<K> range(int fromRank, int count) {
+        if (fromRank < 0 || count < 0) {
+            throw new IllegalArgumentException("Rank and count cannot be negative");
+        }
+        lock.readLock().lock();
+        try {
+            List<K> result = new ArrayList<>(Math.min(count, Math.max(0, size(root) - fromRank)));
+            collect(root, fromRank, count, result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Node<K> find(K key) {
+        Node<K> node = root;
+        while (node != null) {
+            int c = comparator.compare(key, node.key);
+            if (c == 0) {
+                return node;
+            }
+            node = c < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Splits a subtree into keys below the given key and keys at or above it.
+     */
+    private Split<K> split(Node<K> node, K key) {
+        if (node == null) {
+            return new Split<>();
+        }
+        if (comparator.compare(node.key, key) < 0) {
+            Split<K> parts = split(node.right, key);
+            node.right = parts.below;
+            update(node);
+            parts.below = node;
+            return parts;
+        }
+        Split<K> parts = split(node.left, key);
+        node.left = parts.atOrAbove;
+        update(node);
+        parts.atOrAbove = node;
+        return parts;
+    }
+
+    /**
+     * Joins two subtrees where every key of the first sorts before every key of the second.
+     */
+    private Node<K> merge(Node<K> left, Node<K> right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private Node<K> erase(Node<K> node, K key) {
+        int c = comparator.compare(key, node.key);
+        if (c == 0) {
+            return merge(node.left, node.right);
+        }
+        if (c < 0) {
+            node.left = erase(node.left, key);
+        } else {
+            node.right = erase(node.right, key);
+        }
+        update(node);
+        return node;
+    }
+
+    private void collect(Node<K> node, int fromRank, int count, List<K> out) {
+        if (node == null || out.size() >= count) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (fromRank < leftSize) {
+            collect(node.left, fromRank, count, out);
+        }
+        if (out.size() < count && fromRank <= leftSize) {
+            out.add(node.key);
+        }
+        collect(node.right, Math.max(0, fromRank - leftSize - 1), count, out);
+    }
+
+    /**
+     * Merges two sorted lists, keeping one copy of each key.
+     */
+    private List<K> mergeSorted(List<K> left, List<K> right) {
+        List<K> merged = new ArrayList<>(left.size() + right.size());
+        int i = 0;
+        int j = 0;
+        while (i < left.size() || j < right.size()) {
+            K next = j == right.size() || (i < left.size() && comparator.compare(left.get(i), right.get(j)) <= 0)
+                    ? left.get(i++)
+                    : right.get(j++);
+            if (merged.isEmpty() || comparator.compare(merged.get(merged.size() - 1), next) != 0) {
+                merged.add(next);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Builds a treap over sorted distinct keys in linear time: a node pops every
+     * lower-priority node off the right spine and adopts the last one as its left child.
+     */
+    private Node<K> build(List<K> sortedKeys) {
+        Deque<Node<K>> spine = new ArrayDeque<>();
+        for (K key : sortedKeys) {
+            Node<K> node = new Node<>(key);
+            Node<K> last = null;
+            while (!spine.isEmpty() && spine.peek().priority < node.priority) {
+                last = spine.pop();
+            }
+            node.left = last;
+            if (!spine.isEmpty()) {
+                spine.peek().right = node;
+            }
+            spine.push(node);
+        }
+        Node<K> top = spine.peekLast();
+        updateSizes(top);
+        return top;
+    }
+
+    private static int updateSizes(Node<?> node) {
+        if (node == null) {
+            return 0;
+        }
+        node.size = 1 + updateSizes(node.left) + updateSizes(node.right);
+        return node.size;
+    }
+
+    private static int size(Node<?> node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static void update(Node<?> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    /**
+     * Treap node: ordered by key, heap-ordered by a random priority.
+     */
+    private static final class Node<K> {
+        private final K key;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private int size = 1;
+        private Node<K> left;
+        private Node<K> right;
+
+        private Node(K key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * The two subtrees a split produces.
+     */
+    private static final class Split<K> {
+        private Node<K> below;
+        private Node<K> atOrAbove;
+    }
+}
@@ -0,0 +1,90 @@
+package it.epicode.library.repository.index;
+
+import java.util.*;
+
+/**
+ * Trigram index answering case-insensitive substring queries.
+ * Every text containing the query also contains all of the query's trigrams,
+ * so intersecting their posting lists yields a small superset of the matches
+ * that callers then verify with String.contains.
+ */
+public class TrigramIndex {
+
+    public static final int GRAM_LENGTH = 3;
+
+    private final BitmapIndex<Long> postings = new BitmapIndex<>(); // packed trigram -> ordinals
+
+    /**
+     * Indexes an entity under the trigrams of an already lowercased text.
+     */
+    public void add(int ordinal, String lowerText) {
+        postings.addAll(trigrams(lowerText), ordinal);
+    }
+
+    /**
+     * Adds every posting of another index, e.g. a fragment built by a bulk load.
+     */
+    public void merge(TrigramIndex other) {
+        postings.merge(other.postings);
+    }
+
+    /**
+     * Removes an entity from the trigrams of the text it was indexed under.
+     */
+    public void remove(int ordinal, String lowerText) {
+        postings.removeAll(trigrams(lowerText), ordinal);
+    }
+
+    /**
+     * Returns the ordinals whose text may contain the lowercased query, or null
+     * when the query is shorter than a trigram and cannot narrow the search.
+     */
+    public RoaringBitmap candidates(String lowerQuery) {
+        if (lowerQuery.length() < GRAM_LENGTH) {
+            return null;
+        }
+        return postings.andAll(trigrams(lowerQuery));
+    }
+
+    /**
+     * Upper bound on the number of candidates for a lowercased query, without
+     * intersecting anything: the shortest posting list among its trigrams.
+     * Returns -1 when the query is shorter than a trigram.
+     */
+    public int estimate(String lowerQuery) {
+        if (lowerQuery.length() < GRAM_LENGTH) {
+            return -1;
+        }
+        int smallest = Integer.MAX_VALUE;
+        for (long gram : trigrams(lowerQuery)) {
+            smallest = Math.min(smallest, postings.cardinality(gram));
+        }
+        return smallest;
+    }
+
+    /**
+     * Number of distinct trigrams in the index.
+     */
+    public int gramCount() {
+        return postings.size();
+    }
+
+    public void clear() {
+        postings.clear();
+    }
+
+    /**
+     * Distinct trigrams of a text, each packed into the low 48 bits of a long.
+     */
+    private static Set<Long> trigrams(String text) {
+        if (text.length() < GRAM_LENGTH) {
+            return Collections.emptySet();
+        }
+
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,662 @@
+package it.epicode.library.repository.storage;
+
+import it.epicode.library.factory.MediaType;
+import it.epicode.library.model.media.*;
+import it.epicode.library.model.structure.Collection;
+import it.epicode.library.model.structure.Library;
+import it.epicode.library.model.structure.LibraryComponent;
+import it.epicode.library.model.structure.Section;
+import it.epicode.library.model.user.Loan;
+import it.epicode.library.model.user.User;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Schema-versioned binary format for the library structure, users and loans,
+ * replacing Java serialization of the object graph.
+ *
+ * A document is a header (magic, schema version, document kind) and a body.
+ * Integers are LEB128 varints, zigzag-encoded when they may be negative; dates
+ * are epoch days. Strings go through a per-document dictionary: the first
+ * occurrence is written in full (canonical UUIDs as 16 raw bytes) and later ones
+ * as a back-reference, so repeated authors, genres, locations and ids cost a
+ * byte or two. A library body lists each media item once, through the codec
+ * registered for its MediaType, and components refer to items by position, so
+ * an item shared by two components is still one object after decoding.
+ *
+ * Decoders accept every schema version up to {@link #SCHEMA_VERSION}.
+ */
+public final class CatalogCodec {
+
+    public static final int SCHEMA_VERSION = 1;
+
+    private static final int MAGIC = 0x4C434154; // "LCAT"
+
+    private static final int KIND_LIBRARY = 1;
+    private static final int KIND_USERS = 2;
+    private static final int KIND_LOANS = 3;
+
+    private static final int COMPONENT_SECTION = 1;
+    private static final int COMPONENT_COLLECTION = 2;
+
+    // String tags; tags from STRING_REFERENCE up are dictionary positions
+    private static final int STRING_NULL = 0;
+    private static final int STRING_LITERAL = 1;
+    private static final int STRING_UUID = 2;
+    private static final int STRING_REFERENCE = 3;
+
+    // Stable wire tags; never reuse a tag for another type
+    private static final Map<MediaType, Integer> TYPE_TAGS = new EnumMap<>(Map.of(
+            MediaType.BOOK, 1, MediaType.AUDIOBOOK, 2, MediaType.EBOOK, 3, MediaType.DVD, 4));
+
+    private static final MediaType[] TYPES_BY_TAG = new MediaType[TYPE_TAGS.size() + 1];
+
+    private static final Map<MediaType, MediaTypeCodec> MEDIA_CODECS = new EnumMap<>(MediaType.class);
+
+    static {
+        TYPE_TAGS.forEach((type, tag) -> TYPES_BY_TAG[tag] = type);
+
+        MEDIA_CODECS.put(MediaType.BOOK, new MediaTypeCodec() {
+            @Override
+            public void write(Media media, Output out) {
+                Book book = (Book) media;
+                out.string(book.getAuthor());
+                out.string(book.getIsbn());
+                out.string(book.getPublisher());
+                out.zigzag(book.getPages());
+                out.string(book.getGenre());
+                out.string(book.getLanguage());
+            }
+
+            @Override
+            public Media read(String id, String title, Input in) {
+                Book book = new Book(id, title, in.string(), in.string());
+                book.setPublisher(in.string());
+                book.setPages((int) in.zigzag());
+                book.setGenre(in.string());
+                book.setLanguage(in.string());
+                return book;
+            }
+        });
+        MEDIA_CODECS.put(MediaType.AUDIOBOOK, new MediaTypeCodec() {
+            @Override
+            public void write(Media media, Output out) {
+                AudioBook audioBook = (AudioBook) media;
+                out.string(audioBook.getAuthor());
+                out.string(audioBook.getNarrator());
+                out.zigzag(audioBook.getDurationMinutes());
+                out.string(audioBook.getFormat());
+                out.float64(audioBook.getFileSizeMB());
+            }
+
+            @Override
+            public Media read(String id, String title, Input in) {
+                AudioBook audioBook = new AudioBook(id, title, in.string(), in.string(), (int) in.zigzag());
+                audioBook.setFormat(in.string());
+                audioBook.setFileSizeMB(in.float64());
+                return audioBook;
+            }
+        });
+        MEDIA_CODECS.put(MediaType.EBOOK, new MediaTypeCodec() {
+            @Override
+            public void write(Media media, Output out) {
+                EBook eBook = (EBook) media;
+                out.string(eBook.getAuthor());
+                out.string(eBook.getFormat());
+                out.float64(eBook.getFileSizeMB());
+                out.string(eBook.getIsbn());
+                out.bool(eBook.isHasDRM());
+                out.zigzag(eBook.getDownloadCount());
+            }
+
+            @Override
+            public Media read(String id, String title, Input in) {
+                EBook eBook = new EBook(id, title, in.string(), in.string(), in.float64());
+                eBook.setIsbn(in.string());
+                eBook.setHasDRM(in.bool());
+                eBook.setDownloadCount((int) in.zigzag());
+                return eBook;
+            }
+        });
+        MEDIA_CODECS.put(MediaType.DVD, new MediaTypeCodec() {
+            @Override
+            public void write(Media media, Output out) {
+                DVD dvd = (DVD) media;
+                out.string(dvd.getDirector());
+                out.zigzag(dvd.getRuntimeMinutes());
+                out.string(dvd.getGenre());
+                out.string(dvd.getAgeRating());
+                out.string(dvd.getLanguage());
+                out.bool(dvd.isHasSubtitles());
+            }
+
+            @Override
+            public Media read(String id, String title, Input in) {
+                DVD dvd = new DVD(id, title, in.string(), (int) in.zigzag());
+                dvd.setGenre(in.string());
+                dvd.setAgeRating(in.string());
+                dvd.setLanguage(in.string());
+                dvd.setHasSubtitles(in.bool());
+                return dvd;
+            }
+        });
+    }
+
+    private CatalogCodec() {
+    }
+
+    /**
+     * Whether the bytes start like a document written by this codec.
+     */
+    public static boolean isCatalogDocument(byte[] bytes) {
+        return bytes.length >= Integer.BYTES && ByteBuffer.wrap(bytes).getInt() == MAGIC;
+    }
+
+    /**
+     * Encodes a library with its sections, collections and media.
+     */
+    public static byte[] encodeLibrary(Library library) {
+        Objects.requireNonNull(library, "Library cannot be null");
+        Output out = header(KIND_LIBRARY);
+
+        // Every media item once, in first-seen order
+        Map<Media, Integer> positions = new IdentityHashMap<>();
+        List<Media> media = new ArrayList<>();
+        collectMedia(library, positions, media);
+        out.varint(media.size());
+        for (Media item : media) {
+            writeMedia(item, out);
+        }
+
+        out.string(library.getId());
+        out.string(library.getName());
+        out.string(library.getDescription());
+        out.string(library.getAddress());
+        out.string(library.getPhoneNumber());
+        out.string(library.getEmail());
+        out.dateTime(library.getEstablishedDate());
+        out.zigzag(library.getMaxCapacity());
+        writeChildren(library, positions, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a library written by encodeLibrary.
+     */
+    public static Library decodeLibrary(byte[] bytes) {
+        Input in = open(bytes, KIND_LIBRARY);
+        try {
+            int mediaCount = in.count();
+            Media[] media = new Media[mediaCount];
+            for (int i = 0; i < mediaCount; i++) {
+                media[i] = readMedia(in);
+            }
+            // Attaching media to a component overwrites its location; remember the stored one
+            String[] locations = new String[mediaCount];
+            for (int i = 0; i < mediaCount; i++) {
+                locations[i] = media[i].getLocation();
+            }
+
+            String id = in.string();
+            String name = in.string();
+            String description = in.string();
+            Library library = new Library(id, name, in.string(), description);
+            library.setPhoneNumber(in.string());
+            library.setEmail(in.string());
+            library.setEstablishedDate(in.dateTime());
+            library.setMaxCapacity((int) in.zigzag());
+            readChildren(library, media, in);
+
+            for (int i = 0; i < mediaCount; i++) {
+                media[i].setLocation(locations[i]);
+            }
+            return library;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated catalog document", e);
+        }
+    }
+
+    /**
+     * Encodes users in iteration order.
+     */
+    public static byte[] encodeUsers(java.util.Collection<User> users) {
+        Output out = header(KIND_USERS);
+        out.varint(users.size());
+        for (User user : users) {
+            out.string(user.getId());
+            out.string(user.getFirstName());
+            out.string(user.getLastName());
+            out.string(user.getEmail());
+            out.string(user.getPhoneNumber());
+            out.date(user.getRegistrationDate());
+            out.bool(user.isActive());
+            out.zigzag(user.getMaxLoans());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes users written by encodeUsers.
+     */
+    public static List<User> decodeUsers(byte[] bytes) {
+        Input in = open(bytes, KIND_USERS);
+        try {
+            int count = in.count();
+            List<User> users = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                User user = new User(in.string(), in.string(), in.string(), in.string());
+                user.setPhoneNumber(in.string());
+                user.setRegistrationDate(in.date());
+                user.setActive(in.bool());
+                user.setMaxLoans((int) in.zigzag());
+                users.add(user);
+            }
+            return users;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated catalog document", e);
+        }
+    }
+
+    /**
+     * Encodes loans in iteration order.
+     */
+    public static byte[] encodeLoans(java.util.Collection<Loan> loans) {
+        Output out = header(KIND_LOANS);
+        out.varint(loans.size());
+        for (Loan loan : loans) {
+            out.string(loan.getId());
+            out.string(loan.getUserId());
+            out.string(loan.getMediaId());
+            out.date(loan.getLoanDate());
+            out.date(loan.getDueDate());
+            out.date(loan.getReturnDate());
+            out.bool(loan.isReturned());
+            out.zigzag(loan.getRenewalCount());
+            out.zigzag(loan.getMaxRenewals());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes loans written by encodeLoans.
+     */
+    public static List<Loan> decodeLoans(byte[] bytes) {
+        Input in = open(bytes, KIND_LOANS);
+        try {
+            int count = in.count();
+            List<Loan> loans = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                loans.add(new Loan(in.string(), in.string(), in.string(), in.date(), in.date(), in.date(),
+                        in.bool(), (int) in.zigzag(), (int) in.zigzag()));
+            }
+            return loans;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated catalog document", e);
+        }
+    }
+
+    private static Output header(int kind) {
+        Output out = new Output();
+        out.int32(MAGIC);
+        out.varint(SCHEMA_VERSION);
+        out.varint(kind);
+        return out;
+    }
+
+    private static Input open(byte[] bytes, int kind) {
+        Objects.requireNonNull(bytes, "Bytes cannot be null");
+        if (!isCatalogDocument(bytes)) {
+            throw new IllegalArgumentException("Not a catalog document");
+        }
+        Input in = new Input(ByteBuffer.wrap(bytes, Integer.BYTES, bytes.length - Integer.BYTES));
+        long version = in.varint();
+        if (version < 1 || version > SCHEMA_VERSION) {
+            throw new IllegalArgumentException("Unsupported catalog schema version: " + version);
+        }
+        long actualKind = in.varint();
+        if (actualKind != kind) {
+            throw new IllegalArgumentException("Expected catalog document kind " + kind + " but found " + actualKind);
+        }
+        return in;
+    }
+
+    private static void collectMedia(LibraryComponent component, Map<Media, Integer> positions, List<Media> media) {
+        for (Media item : component.getDirectMedia()) {
+            if (positions.putIfAbsent(item, media.size()) == null) {
+                media.add(item);
+            }
+        }
+        for (LibraryComponent child : component.getChildren()) {
+            collectMedia(child, positions, media);
+        }
+    }
+
+    private static void writeMedia(Media media, Output out) {
+        MediaType type = MediaType.valueOf(media.getMediaType());
+        out.varint(TYPE_TAGS.get(type));
+        out.string(media.getId());
+        out.string(media.getTitle());
+        out.string(media.getDescription());
+        out.date(media.getAcquisitionDate());
+        out.bool(media.isAvailable());
+        out.string(media.getLocation());
+        MEDIA_CODECS.get(type).write(media, out);
+    }
+
+    private static Media readMedia(Input in) {
+        long tag = in.varint();
+        MediaType type = tag > 0 && tag < TYPES_BY_TAG.length ? TYPES_BY_TAG[(int) tag] : null;
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown media type tag: " + tag);
+        }
+        String id = in.string();
+        String title = in.string();
+        String description = in.string();
+        LocalDate acquired = in.date();
+        boolean available = in.bool();
+        String location = in.string();
+
+        Media media = MEDIA_CODECS.get(type).read(id, title, in);
+        media.setDescription(description);
+        media.setAcquisitionDate(acquired);
+        media.setAvailable(available);
+        media.setLocation(location);
+        return media;
+    }
+
+    private static void writeChildren(LibraryComponent parent, Map<Media, Integer> positions, Output out) {
+        List<LibraryComponent> children = parent.getChildren();
+        out.varint(children.size());
+        for (LibraryComponent child : children) {
+            if (child instanceof Section section) {
+                out.varint(COMPONENT_SECTION);
+                out.string(section.getId());
+                out.string(section.getName());
+                out.string(section.getDescription());
+                out.string(section.getCategory());
+                out.string(section.getFloor());
+                out.string(section.getResponsibleLibrarian());
+            } else if (child instanceof Collection collection) {
+                out.varint(COMPONENT_COLLECTION);
+                out.string(collection.getId());
+                out.string(collection.getName());
+                out.string(collection.getDescription());
+                out.string(collection.getTheme());
+                out.string(collection.getCurator());
+                out.bool(collection.isSpecialCollection());
+                out.zigzag(collection.getMaxItems());
+            } else {
+                throw new IllegalArgumentException("Unsupported component: " + child.getClass().getName());
+            }
+            List<Media> direct = child.getDirectMedia();
+            out.varint(direct.size());
+            for (Media item : direct) {
+                out.varint(positions.get(item));
+            }
+            writeChildren(child, positions, out);
+        }
+    }
+
+    private static void readChildren(LibraryComponent parent, Media[] media, Input in) {
+        int count = in.count();
+        for (int i = 0; i < count; i++) {
+            long kind = in.varint();
+            LibraryComponent child;
+            if (kind == COMPONENT_SECTION) {
+                Section section = new Section(in.string(), in.string(), in.string(), in.string());
+                section.setFloor(in.string());
+                section.setResponsibleLibrarian(in.string());
+                parent.add(section);
+                int direct = in.count();
+                for (int m = 0; m < direct; m++) {
+                    section.addMedia(media[in.index(media.length)]);
+                }
+                child = section;
+            } else if (kind == COMPONENT_COLLECTION) {
+                Collection collection = new Collection(in.string(), in.string(), in.string(), in.string());
+                collection.setCurator(in.string());
+                collection.setSpecialCollection(in.bool());
+                collection.setMaxItems((int) in.zigzag());
+                parent.add(collection);
+                int direct = in.count();
+                for (int m = 0; m < direct; m++) {
+                    collection.addMedia(media[in.index(media.length)]);
+                }
+                child = collection;
+            } else {
+                throw new IllegalArgumentException("Unknown component kind: " + kind);
+            }
+            readChildren(child, media, in);
+        }
+    }
+
+    /**
+     * Field layout of one media subtype, after the fields every Media has.
+     */
+    private interface MediaTypeCodec {
+        void write(Media media, Output out);
+
+        Media read(String id, String title, Input in);
+    }
+
+    /**
+     * Growable output with the varint, string dictionary and date encodings.
+     */
+    private static final class Output {
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private byte[] buf = new byte[4096];
+        private int count;
+
+        void write(int b) {
+            if (count == buf.length) {
+                buf = Arrays.copyOf(buf, count * 2);
+            }
+            buf[count++] = (byte) b;
+        }
+
+        void write(byte[] bytes, int offset, int length) {
+            if (count + length > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(count * 2, count + length));
+            }
+            System.arraycopy(bytes, offset, buf, count, length);
+            count += length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, count);
+        }
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void zigzag(long value) {
+            varint((value << 1) ^ (value >> 63));
+        }
+
+        void bool(boolean value) {
+            write(value ? 1 : 0);
+        }
+
+        void int32(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        void float64(double value) {
+            long bits = Double.doubleToLongBits(value);
+            int32((int) (bits >>> 32));
+            int32((int) bits);
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varint(STRING_NULL);
+                return;
+            }
+            Integer position = dictionary.get(value);
+            if (position != null) {
+                varint(STRING_REFERENCE + position);
+                return;
+            }
+            dictionary.put(value, dictionary.size());
+
+            UUID uuid = canonicalUuid(value);
+            if (uuid != null) {
+                varint(STRING_UUID);
+                int32((int) (uuid.getMostSignificantBits() >>> 32));
+                int32((int) uuid.getMostSignificantBits());
+                int32((int) (uuid.getLeastSignificantBits() >>> 32));
+                int32((int) uuid.getLeastSignificantBits());
+            } else {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                varint(STRING_LITERAL);
+                varint(utf8.length);
+                write(utf8, 0, utf8.length);
+            }
+        }
+
+        /**
+         * Epoch day plus one, zigzagged, with 0 for null.
+         */
+        void date(LocalDate value) {
+            if (value == null) {
+                varint(0);
+            } else {
+                varint(1 + ((value.toEpochDay() << 1) ^ (value.toEpochDay() >> 63)));
+            }
+        }
+
+        void dateTime(LocalDateTime value) {
+            bool(value != null);
+            if (value != null) {
+                zigzag(value.toEpochSecond(ZoneOffset.UTC));
+                varint(value.getNano());
+            }
+        }
+
+        /**
+         * Parses strings that are UUIDs in canonical lowercase form, so they survive the round trip.
+         */
+        private static UUID canonicalUuid(String value) {
+            if (value.length() != 36 || value.charAt(8) != '-' || value.charAt(23) != '-') {
+                return null;
+            }
+            try {
+                UUID uuid = UUID.fromString(value);
+                return uuid.toString().equals(value) ? uuid : null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Reader for Output's encodings, rebuilding the string dictionary as it goes.
+     */
+    private static final class Input {
+        private final ByteBuffer buffer;
+        private final List<String> dictionary = new ArrayList<>();
+
+        private Input(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        long zigzag() {
+            long raw = varint();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        /**
+         * Reads a count, rejecting values larger than the bytes that remain could hold.
+         */
+        int count() {
+            long count = varint();
+            if (count < 0 || count > buffer.remaining()) {
+                throw new IllegalArgumentException("Corrupt count: " + count);
+            }
+            return (int) count;
+        }
+
+        int index(int size) {
+            long index = varint();
+            if (index < 0 || index >= size) {
+                throw new IllegalArgumentException("Corrupt media reference: " + index);
+            }
+            return (int) index;
+        }
+
+        boolean bool() {
+            return buffer.get() != 0;
+        }
+
+        double float64() {
+            return Double.longBitsToDouble(buffer.getLong());
+        }
+
+        String string() {
+            long tag = varint();
+            if (tag == STRING_NULL) {
+                return null;
+            }
+            if (tag >= STRING_REFERENCE) {
+                long position = tag - STRING_REFERENCE;
+                if (position >= dictionary.size()) {
+                    throw new IllegalArgumentException("Corrupt string reference: " + position);
+                }
+                return dictionary.get((int) position);
+            }
+
+            String value;
+            if (tag == STRING_UUID) {
+                value = new UUID(buffer.getLong(), buffer.getLong()).toString();
+            } else {
+                byte[] utf8 = new byte[count()];
+                buffer.get(utf8);
+                value = new String(utf8, StandardCharsets.UTF_8);
+            }
+            dictionary.add(value);
+            return value;
+        }
+
+        LocalDate date() {
+            long raw = varint();
+            if (raw == 0) {
+                return null;
+            }
+            long zigzag = raw - 1;
+            return LocalDate.ofEpochDay((zigzag >>> 1) ^ -(zigzag & 1));
+        }
+
+        LocalDateTime dateTime() {
+            if (!bool()) {
+                return null;
+            }
+            long epochSecond = zigzag();
+            return LocalDateTime.ofEpochSecond(epochSecond, (int) varint(), ZoneOffset.UTC);
+        }
+    }
+}
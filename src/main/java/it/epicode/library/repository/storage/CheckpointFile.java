@@ -0,0 +1,197 @@
+package it.epicode.library.repository.storage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Full image of a repository at one write-ahead log position.
+ *
+ * Layout: magic, format version and the log sequence number the image reflects,
+ * then [int length][record] per entity encoded by the record codec, then a -1
+ * length, the record count and a CRC32 of everything before it. Files are written
+ * next to their destination and moved into place, so a crash leaves either the old
+ * checkpoint or the new one. Reading maps the file in bounded windows and decodes
+ * each window's records in parallel.
+ */
+public final class CheckpointFile {
+
+    public static final int DEFAULT_WINDOW_BYTES = 64 * 1024 * 1024;
+
+    private static final int MAGIC = 0x4C434B50; // "LCKP"
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES + 1 + Long.BYTES;
+    private static final int TRAILER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private CheckpointFile() {
+    }
+
+    /**
+     * Contents of a checkpoint: the entities and the log position they reflect.
+     */
+    public static final class Image<T> {
+        private final long lsn;
+        private final List<T> entities;
+
+        private Image(long lsn, List<T> entities) {
+            this.lsn = lsn;
+            this.entities = entities;
+        }
+
+        public long getLsn() { return lsn; }
+        public List<T> getEntities() { return entities; }
+    }
+
+    /**
+     * Writes the entities as the checkpoint at path, replacing any previous one once
+     * the new file is on disk. Returns the number of records written.
+     */
+    public static <T> long write(Path path, RecordCodec<T> codec, long lsn, Iterable<T> entities) throws IOException {
+        Objects.requireNonNull(codec, "Codec cannot be null");
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        long count = 0;
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(lsn);
+            for (T entity : entities) {
+                byte[] record = codec.encode(entity);
+                out.writeInt(record.length);
+                out.write(record);
+                count++;
+            }
+            out.writeInt(-1);
+            out.writeLong(count);
+            out.flush();
+            int crc = (int) checked.getChecksum().getValue();
+            out.writeInt(crc);
+            out.flush();
+            file.getChannel().force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Reads the checkpoint at path through mapped windows of the default size.
+     */
+    public static <T> Image<T> read(Path path, RecordCodec<T> codec) throws IOException {
+        return read(path, codec, DEFAULT_WINDOW_BYTES);
+    }
+
+    /**
+     * Reads the checkpoint at path, verifying its checksum. The file is mapped one
+     * window at a time, so its size is not bounded by a single mapping; records are
+     * located in one sequential pass and each window is decoded in parallel, keeping
+     * the written order. A record longer than the window makes the window grow until
+     * the record fits.
+     */
+    public static <T> Image<T> read(Path path, RecordCodec<T> codec, int windowBytes) throws IOException {
+        Objects.requireNonNull(codec, "Codec cannot be null");
+        if (windowBytes < 16) {
+            throw new IllegalArgumentException("Window must be at least 16 bytes");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES) {
+                throw new IOException("Truncated checkpoint: " + path);
+            }
+            verifyChecksum(channel, size, windowBytes, path);
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a checkpoint: " + path);
+            }
+            byte version = header.get();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported checkpoint version: " + version);
+            }
+            long lsn = header.getLong();
+
+            List<T> entities = new ArrayList<>();
+            int[] offsets = new int[1024];
+            long offset = HEADER_BYTES;
+            int window = windowBytes;
+            while (true) {
+                int length = (int) Math.min(window, size - offset);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+
+                // Locate the whole records in this window
+                int count = 0;
+                int position = 0;
+                boolean ended = false;
+                while (position + Integer.BYTES <= length) {
+                    int recordLength = mapped.getInt(position);
+                    if (recordLength < 0) {
+                        ended = position + Integer.BYTES + Long.BYTES <= length;
+                        break;
+                    }
+                    if ((long) position + Integer.BYTES + recordLength > length) {
+                        break;
+                    }
+                    if (count == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, count * 2);
+                    }
+                    offsets[count++] = position + Integer.BYTES;
+                    position += Integer.BYTES + recordLength;
+                }
+
+                int[] recordOffsets = offsets;
+                entities.addAll(IntStream.range(0, count).parallel()
+                        .mapToObj(i -> codec.decode(mapped.duplicate().position(recordOffsets[i])))
+                        .collect(ArrayList::new, ArrayList::add, ArrayList::addAll));
+
+                if (ended) {
+                    if (mapped.getLong(position + Integer.BYTES) != entities.size()) {
+                        throw new IOException("Checkpoint record count mismatch: " + path);
+                    }
+                    return new Image<>(lsn, entities);
+                }
+                if (position == 0) {
+                    // Not even one whole record fits; map a larger window at the same offset
+                    if (offset + length == size) {
+                        throw new IOException("Truncated checkpoint: " + path);
+                    }
+                    if (window == Integer.MAX_VALUE) {
+                        throw new IOException("Checkpoint record larger than 2 GB in " + path);
+                    }
+                    window = (int) Math.min(Integer.MAX_VALUE, (long) window * 2);
+                } else {
+                    offset += position;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the trailing CRC32 against everything before it, one window at a time.
+     */
+    private static void verifyChecksum(FileChannel channel, long size, int windowBytes, Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        long end = size - Integer.BYTES;
+        for (long offset = 0; offset < end; offset += windowBytes) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowBytes, end - offset)));
+        }
+        int stored = channel.map(FileChannel.MapMode.READ_ONLY, end, Integer.BYTES).getInt();
+        if ((int) crc.getValue() != stored) {
+            throw new IOException("Checkpoint checksum mismatch: " + path);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package it.epicode.library.repository.storage;
+
+import it.epicode.library.repository.Identifiable;
+import it.epicode.library.repository.Repository;
+import it.epicode.library.util.TopK;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Read-only repository served straight from a memory-mapped snapshot file.
+ *
+ * Layout: magic, format version, record count and the offset of the id index,
+ * then [int id length][id][int record length][record] per entity, then the index:
+ * one int offset per entry, sorted by the unsigned UTF-8 bytes of the id. Opening
+ * only checks the header, so it costs the same for any catalog size; lookups
+ * binary-search the index in place and decode a record only when it is returned.
+ * The mapping is read-only, so processes opening the same file share its pages.
+ *
+ * Every read decodes a fresh instance; all mutating methods throw
+ * UnsupportedOperationException.
+ *
+ * @param <T> the entity type
+ */
+public class MappedCatalog<T extends Identifiable> implements Repository<T> {
+
+    private static final int MAGIC = 0x4C4D4150; // "LMAP"
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES + 1 + Integer.BYTES + Integer.BYTES;
+
+    private final Path path;
+    private final RecordCodec<T> codec;
+    // Only absolute reads, which leave the buffer's position alone and are safe to share
+    private final MappedByteBuffer mapped;
+    private final int count;
+    private final int indexOffset;
+
+    private MappedCatalog(Path path, RecordCodec<T> codec, MappedByteBuffer mapped, int count, int indexOffset) {
+        this.path = path;
+        this.codec = codec;
+        this.mapped = mapped;
+        this.count = count;
+        this.indexOffset = indexOffset;
+    }
+
+    /**
+     * Writes the entities as a catalog snapshot at path, replacing any previous one
+     * once the new file is on disk. Returns the number of records written.
+     */
+    public static <T extends Identifiable> int write(Path path, RecordCodec<T> codec,
+                                                     Iterable<? extends T> entities) throws IOException {
+        Objects.requireNonNull(codec, "Codec cannot be null");
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        List<byte[]> ids = new ArrayList<>();
+        int[] offsets = new int[1024];
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            // Count and index offset are patched in once known
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(0);
+            out.writeInt(0);
+            for (T entity : entities) {
+                byte[] id = entity.getId().getBytes(StandardCharsets.UTF_8);
+                byte[] record = codec.encode(entity);
+                if (ids.size() == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[ids.size()] = out.size();
+                ids.add(id);
+                out.writeInt(id.length);
+                out.write(id);
+                out.writeInt(record.length);
+                out.write(record);
+                checkSize(out, path);
+            }
+
+            int recordCount = ids.size();
+            int[] entryOffsets = offsets;
+            Integer[] order = new Integer[recordCount];
+            Arrays.setAll(order, i -> i);
+            Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(ids.get(a), ids.get(b)));
+            for (int i = 1; i < recordCount; i++) {
+                if (Arrays.equals(ids.get(order[i - 1]), ids.get(order[i]))) {
+                    throw new IllegalArgumentException("Duplicate id in catalog: "
+                            + new String(ids.get(order[i]), StandardCharsets.UTF_8));
+                }
+            }
+
+            int index = out.size();
+            for (Integer position : order) {
+                out.writeInt(entryOffsets[position]);
+            }
+            checkSize(out, path);
+            out.flush();
+
+            ByteBuffer counts = ByteBuffer.allocate(2 * Integer.BYTES).putInt(recordCount).putInt(index).flip();
+            channel.write(counts, Integer.BYTES + 1);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return ids.size();
+    }
+
+    /**
+     * Maps the catalog snapshot at path. Only the header is read here; records are
+     * decoded on access.
+     */
+    public static <T extends Identifiable> MappedCatalog<T> open(Path path, RecordCodec<T> codec) throws IOException {
+        Objects.requireNonNull(codec, "Codec cannot be null");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Catalog snapshot larger than 2 GB: " + path);
+            }
+            if (size < HEADER_BYTES) {
+                throw new IOException("Truncated catalog snapshot: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (mapped.getInt(0) != MAGIC) {
+                throw new IOException("Not a catalog snapshot: " + path);
+            }
+            byte version = mapped.get(Integer.BYTES);
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported catalog snapshot version: " + version);
+            }
+            int count = mapped.getInt(Integer.BYTES + 1);
+            int indexOffset = mapped.getInt(Integer.BYTES + 1 + Integer.BYTES);
+            if (count < 0 || indexOffset < HEADER_BYTES || (long) indexOffset + (long) count * Integer.BYTES != size) {
+                throw new IOException("Corrupt catalog snapshot header: " + path);
+            }
+            return new MappedCatalog<>(path, codec, mapped, count, indexOffset);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the size of the mapped file in bytes.
+     */
+    public long getSizeBytes() {
+        return mapped.capacity();
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        int entry = locate(id);
+        return entry >= 0 ? Optional.of(decode(entry)) : Optional.empty();
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return locate(id) >= 0;
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public List<T> findAll() {
+        return stream().collect(Collectors.toList());
+    }
+
+    @Override
+    public List<T> findAll(Predicate<T> filter) {
+        if (filter == null) return findAll();
+        return stream().filter(filter).collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<T> findFirst(Predicate<T> filter) {
+        if (filter == null) return Optional.empty();
+        return stream().filter(filter).findFirst();
+    }
+
+    @Override
+    public List<T> findByIds(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) return Collections.emptyList();
+
+        List<T> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            int entry = locate(id);
+            if (entry >= 0) {
+                result.add(decode(entry));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, T> findAllAsMap() {
+        Map<String, T> result = new HashMap<>();
+        stream().forEach(entity -> result.put(entity.getId(), entity));
+        return result;
+    }
+
+    /**
+     * Reads the ids from the index without decoding any record.
+     */
+    @Override
+    public Set<String> getAllIds() {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            int entry = entryAt(i);
+            ids.add(idAt(entry));
+        }
+        return ids;
+    }
+
+    /**
+     * Streams the entities in id order, decoding each one as it is reached.
+     */
+    @Override
+    public Stream<T> stream() {
+        return IntStream.range(0, count).mapToObj(i -> decode(entryAt(i)));
+    }
+
+    @Override
+    public List<T> topK(Predicate<T> filter, Comparator<? super T> comparator, int k) {
+        if (comparator == null) {
+            throw new IllegalArgumentException("Comparator cannot be null");
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        if (k == 0) return Collections.emptyList();
+
+        return stream()
+                .filter(filter != null ? filter : entity -> true)
+                .collect(TopK.collector(comparator, k));
+    }
+
+    @Override
+    public T save(T entity) {
+        throw readOnly();
+    }
+
+    @Override
+    public List<T> saveAll(Collection<T> entities) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean deleteById(String id) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean delete(T entity) {
+        throw readOnly();
+    }
+
+    @Override
+    public void deleteAll() {
+        throw readOnly();
+    }
+
+    private UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Catalog snapshot is read-only: " + path);
+    }
+
+    /**
+     * Binary-searches the index for the id, comparing UTF-8 bytes in place.
+     * Returns the entry offset, or -1 if the id isn't in the catalog.
+     */
+    private int locate(String id) {
+        if (id == null) return -1;
+
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = entryAt(mid);
+            int cmp = compareId(entry, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private int compareId(int entry, byte[] key) {
+        int length = mapped.getInt(entry);
+        int start = entry + Integer.BYTES;
+        int shared = Math.min(length, key.length);
+        for (int i = 0; i < shared; i++) {
+            int cmp = Byte.compareUnsigned(mapped.get(start + i), key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private int entryAt(int position) {
+        return mapped.getInt(indexOffset + position * Integer.BYTES);
+    }
+
+    private String idAt(int entry) {
+        byte[] id = new byte[mapped.getInt(entry)];
+        mapped.get(entry + Integer.BYTES, id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    private T decode(int entry) {
+        int record = entry + Integer.BYTES + mapped.getInt(entry) + Integer.BYTES;
+        return codec.decode(mapped.duplicate().position(record));
+    }
+
+    private static void checkSize(DataOutputStream out, Path path) throws IOException {
+        // DataOutputStream.size() stops counting at Integer.MAX_VALUE
+        if (out.size() == Integer.MAX_VALUE) {
+            throw new IOException("Catalog snapshot larger than 2 GB: " + path);
+        }
+    }
+}
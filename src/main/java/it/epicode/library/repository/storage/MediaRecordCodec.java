@@ -0,0 +1,180 @@
+package it.epicode.library.repository.storage;
+
+import it.epicode.library.model.media.*;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Compact binary encoding of a single media record.
+ * Layout: format version, type tag, common Media fields, then the fields of the
+ * concrete type. Strings are a length-prefixed UTF-8 run, with length -1 for null;
+ * dates are epoch days, with Long.MIN_VALUE for null.
+ */
+public class MediaRecordCodec {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    /**
+     * This codec as a RecordCodec, e.g. for a write-ahead log of media.
+     */
+    public static final RecordCodec<Media> RECORDS = RecordCodec.of(MediaRecordCodec::encode, MediaRecordCodec::decode);
+
+    private static final byte BOOK = 1;
+    private static final byte AUDIOBOOK = 2;
+    private static final byte EBOOK = 3;
+    private static final byte DVD = 4;
+
+    /**
+     * Encodes a media item into a new byte array.
+     */
+    public static byte[] encode(Media media) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(typeTag(media));
+            writeString(out, media.getId());
+            writeString(out, media.getTitle());
+            writeString(out, media.getDescription());
+            LocalDate acquired = media.getAcquisitionDate();
+            out.writeLong(acquired != null ? acquired.toEpochDay() : Long.MIN_VALUE);
+            out.writeBoolean(media.isAvailable());
+            writeString(out, media.getLocation());
+
+            if (media instanceof Book book) {
+                writeString(out, book.getAuthor());
+                writeString(out, book.getIsbn());
+                writeString(out, book.getPublisher());
+                out.writeInt(book.getPages());
+                writeString(out, book.getGenre());
+                writeString(out, book.getLanguage());
+            } else if (media instanceof AudioBook audioBook) {
+                writeString(out, audioBook.getAuthor());
+                writeString(out, audioBook.getNarrator());
+                out.writeInt(audioBook.getDurationMinutes());
+                writeString(out, audioBook.getFormat());
+                out.writeDouble(audioBook.getFileSizeMB());
+            } else if (media instanceof EBook eBook) {
+                writeString(out, eBook.getAuthor());
+                writeString(out, eBook.getFormat());
+                out.writeDouble(eBook.getFileSizeMB());
+                writeString(out, eBook.getIsbn());
+                out.writeBoolean(eBook.isHasDRM());
+                out.writeInt(eBook.getDownloadCount());
+            } else if (media instanceof DVD dvd) {
+                writeString(out, dvd.getDirector());
+                out.writeInt(dvd.getRuntimeMinutes());
+                writeString(out, dvd.getGenre());
+                writeString(out, dvd.getAgeRating());
+                writeString(out, dvd.getLanguage());
+                out.writeBoolean(dvd.isHasSubtitles());
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream never throws
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Copies a media item through its encoding, so the copy shares no state with the original.
+     */
+    public static Media copy(Media media) {
+        return decode(ByteBuffer.wrap(encode(media)));
+    }
+
+    /**
+     * Decodes a media item starting at the buffer's position, advancing it past the record.
+     */
+    public static Media decode(ByteBuffer in) {
+        byte version = in.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported media record version: " + version);
+        }
+        byte tag = in.get();
+        String id = readString(in);
+        String title = readString(in);
+        String description = readString(in);
+        long acquiredDay = in.getLong();
+        boolean available = in.get() != 0;
+        String location = readString(in);
+
+        Media media;
+        switch (tag) {
+            case BOOK -> {
+                String author = readString(in);
+                Book book = new Book(id, title, author, readString(in));
+                book.setPublisher(readString(in));
+                book.setPages(in.getInt());
+                book.setGenre(readString(in));
+                book.setLanguage(readString(in));
+                media = book;
+            }
+            case AUDIOBOOK -> {
+                String author = readString(in);
+                String narrator = readString(in);
+                AudioBook audioBook = new AudioBook(id, title, author, narrator, in.getInt());
+                audioBook.setFormat(readString(in));
+                audioBook.setFileSizeMB(in.getDouble());
+                media = audioBook;
+            }
+            case EBOOK -> {
+                String author = readString(in);
+                String format = readString(in);
+                EBook eBook = new EBook(id, title, author, format, in.getDouble());
+                eBook.setIsbn(readString(in));
+                eBook.setHasDRM(in.get() != 0);
+                eBook.setDownloadCount(in.getInt());
+                media = eBook;
+            }
+            case DVD -> {
+                String director = readString(in);
+                DVD dvd = new DVD(id, title, director, in.getInt());
+                dvd.setGenre(readString(in));
+                dvd.setAgeRating(readString(in));
+                dvd.setLanguage(readString(in));
+                dvd.setHasSubtitles(in.get() != 0);
+                media = dvd;
+            }
+            default -> throw new IllegalArgumentException("Unknown media record type: " + tag);
+        }
+
+        media.setDescription(description);
+        media.setAcquisitionDate(acquiredDay != Long.MIN_VALUE ? LocalDate.ofEpochDay(acquiredDay) : null);
+        media.setAvailable(available);
+        media.setLocation(location);
+        return media;
+    }
+
+    private static byte typeTag(Media media) {
+        if (media instanceof Book) return BOOK;
+        if (media instanceof AudioBook) return AUDIOBOOK;
+        if (media instanceof EBook) return EBOOK;
+        if (media instanceof DVD) return DVD;
+        throw new IllegalArgumentException("Unsupported media type: " + media.getClass().getName());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,246 @@
+package it.epicode.library.repository.storage;
+
+import it.epicode.library.model.media.Media;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Map from id to media that keeps the records outside the Java heap.
+ * Records are encoded with MediaRecordCodec and appended to direct ByteBuffer
+ * slabs; the heap only holds the id -> location map. Every read decodes a fresh
+ * Media instance, so changes to a returned object are only stored by putting it back.
+ *
+ * Updates and removals leave dead bytes behind; once they outweigh the live
+ * records the slabs are compacted. Reads share a lock with each other and only
+ * wait for writers and compaction.
+ */
+public class OffHeapMediaStorage extends AbstractMap<String, Media> {
+
+    public static final int DEFAULT_SLAB_SIZE = 8 * 1024 * 1024;
+
+    private final int slabSize;
+
+    // Record location packed as slab index (high 32 bits) and offset (low 32 bits)
+    private final Map<String, Long> locations = new ConcurrentHashMap<>();
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long liveBytes;
+    private long deadBytes;
+
+    public OffHeapMediaStorage() {
+        this(DEFAULT_SLAB_SIZE);
+    }
+
+    public OffHeapMediaStorage(int slabSize) {
+        if (slabSize < 1024) {
+            throw new IllegalArgumentException("Slab size must be at least 1024 bytes");
+        }
+        this.slabSize = slabSize;
+    }
+
+    @Override
+    public Media get(Object id) {
+        lock.readLock().lock();
+        try {
+            Long location = locations.get(id);
+            return location != null ? read(location) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object id) {
+        return locations.containsKey(id);
+    }
+
+    @Override
+    public Media put(String id, Media media) {
+        Objects.requireNonNull(id, "ID cannot be null");
+        byte[] record = MediaRecordCodec.encode(Objects.requireNonNull(media, "Media cannot be null"));
+
+        lock.writeLock().lock();
+        try {
+            Long previousLocation = locations.get(id);
+            Media previous = previousLocation != null ? read(previousLocation) : null;
+            if (previousLocation != null) {
+                release(previousLocation);
+            }
+            locations.put(id, append(record));
+            liveBytes += Integer.BYTES + record.length;
+            compactIfNeeded();
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Media remove(Object id) {
+        lock.writeLock().lock();
+        try {
+            Long location = locations.remove(id);
+            if (location == null) {
+                return null;
+            }
+            Media removed = read(location);
+            release(location);
+            compactIfNeeded();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return locations.size();
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            locations.clear();
+            slabs.clear();
+            liveBytes = 0;
+            deadBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Entries decoded lazily while iterating over a snapshot of the ids.
+     */
+    @Override
+    public Set<Entry<String, Media>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Media>> iterator() {
+                Iterator<String> ids = new ArrayList<>(locations.keySet()).iterator();
+                return new Iterator<>() {
+                    private Entry<String, Media> next;
+                    private String current;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (next == null && ids.hasNext()) {
+                            String id = ids.next();
+                            Media media = get(id);
+                            if (media != null) {
+                                next = new SimpleImmutableEntry<>(id, media);
+                            }
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public Entry<String, Media> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, Media> entry = next;
+                        current = entry.getKey();
+                        next = null;
+                        return entry;
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (current == null) {
+                            throw new IllegalStateException();
+                        }
+                        OffHeapMediaStorage.this.remove(current);
+                        current = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return locations.size();
+            }
+        };
+    }
+
+    /**
+     * Bytes of encoded records currently reachable from the id map.
+     */
+    public long getLiveBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Off-heap bytes reserved by the slabs.
+     */
+    public long getReservedBytes() {
+        lock.readLock().lock();
+        try {
+            return slabs.stream().mapToLong(ByteBuffer::capacity).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Media read(long location) {
+        ByteBuffer slab = slabs.get((int) (location >>> 32)).duplicate();
+        slab.position((int) location + Integer.BYTES);
+        return MediaRecordCodec.decode(slab);
+    }
+
+    private void release(long location) {
+        ByteBuffer slab = slabs.get((int) (location >>> 32));
+        int recordBytes = Integer.BYTES + slab.getInt((int) location);
+        liveBytes -= recordBytes;
+        deadBytes += recordBytes;
+    }
+
+    /**
+     * Appends a length-prefixed record to the last slab, opening a new slab when it
+     * does not fit. Records larger than a slab get a dedicated slab.
+     */
+    private long append(byte[] record) {
+        int needed = Integer.BYTES + record.length;
+        ByteBuffer slab = slabs.isEmpty() ? null : slabs.get(slabs.size() - 1);
+        if (slab == null || slab.remaining() < needed) {
+            slab = ByteBuffer.allocateDirect(Math.max(slabSize, needed));
+            slabs.add(slab);
+        }
+        int offset = slab.position();
+        slab.putInt(record.length).put(record);
+        return ((long) (slabs.size() - 1) << 32) | offset;
+    }
+
+    /**
+     * Rewrites the live records into fresh slabs once dead bytes exceed both the
+     * live bytes and one slab, releasing the old slabs to the garbage collector.
+     */
+    private void compactIfNeeded() {
+        if (deadBytes <= liveBytes || deadBytes <= slabSize) {
+            return;
+        }
+
+        List<ByteBuffer> oldSlabs = new ArrayList<>(slabs);
+        slabs.clear();
+        for (Entry<String, Long> entry : locations.entrySet()) {
+            long location = entry.getValue();
+            ByteBuffer source = oldSlabs.get((int) (location >>> 32)).duplicate();
+            int offset = (int) location;
+            byte[] record = new byte[source.getInt(offset)];
+            source.position(offset + Integer.BYTES);
+            source.get(record);
+            entry.setValue(append(record));
+        }
+        deadBytes = 0;
+    }
+}
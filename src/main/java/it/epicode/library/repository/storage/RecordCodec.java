@@ -0,0 +1,42 @@
+package it.epicode.library.repository.storage;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Binary encoding of one entity type, as used by logs and record stores.
+ *
+ * @param <T> the entity type
+ */
+public interface RecordCodec<T> {
+
+    /**
+     * Encodes an entity into a new byte array.
+     */
+    byte[] encode(T entity);
+
+    /**
+     * Decodes an entity starting at the buffer's position, advancing it past the record.
+     */
+    T decode(ByteBuffer in);
+
+    /**
+     * Adapts a pair of encode and decode functions, e.g. the static methods of a codec class.
+     */
+    static <T> RecordCodec<T> of(Function<T, byte[]> encoder, Function<ByteBuffer, T> decoder) {
+        Objects.requireNonNull(encoder, "Encoder cannot be null");
+        Objects.requireNonNull(decoder, "Decoder cannot be null");
+        return new RecordCodec<>() {
+            @Override
+            public byte[] encode(T entity) {
+                return encoder.apply(entity);
+            }
+
+            @Override
+            public T decode(ByteBuffer in) {
+                return decoder.apply(in);
+            }
+        };
+    }
+}
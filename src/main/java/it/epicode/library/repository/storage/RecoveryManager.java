@@ -0,0 +1,274 @@
+package it.epicode.library.repository.storage;
+
+import it.epicode.library.model.exceptions.DataPersistenceException;
+import it.epicode.library.repository.AbstractRepository;
+import it.epicode.library.repository.Identifiable;
+import it.epicode.library.repository.RepositorySnapshot;
+import it.epicode.library.repository.storage.WriteAheadLog.Durability;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Makes one repository durable through checkpoints plus a write-ahead log.
+ *
+ * The directory holds {@code <name>.checkpoint} and log segments named
+ * {@code <name>-<first sequence number>.wal}. A checkpoint switches the repository
+ * to a new segment at the instant its snapshot opens, so every older segment is
+ * covered by the checkpoint and deleted once it is on disk. Recovery decodes the
+ * checkpoint in parallel, replays only the entries logged after it, and publishes
+ * the result through the repository's parallel bulk load.
+ *
+ * @param <T> the entity type
+ */
+public class RecoveryManager<T extends Identifiable> implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(RecoveryManager.class.getName());
+
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private final Path directory;
+    private final String name;
+    private final RecordCodec<T> codec;
+    private final Durability durability;
+    private final long flushIntervalMillis;
+
+    private AbstractRepository<T> repository; // guarded by this
+    private WriteAheadLog<T> activeLog; // guarded by this
+
+    /**
+     * Creates a manager with the durability settings from wal.durability and wal.flushIntervalMillis.
+     */
+    public static <T extends Identifiable> RecoveryManager<T> fromConfig(Path directory, String name,
+                                                                        RecordCodec<T> codec) {
+        return new RecoveryManager<>(directory, name, codec,
+                WriteAheadLog.configuredDurability(), WriteAheadLog.configuredFlushIntervalMillis());
+    }
+
+    public RecoveryManager(Path directory, String name, RecordCodec<T> codec,
+                           Durability durability, long flushIntervalMillis) {
+        this.directory = Objects.requireNonNull(directory, "Directory cannot be null");
+        this.name = Objects.requireNonNull(name, "Name cannot be null");
+        this.codec = Objects.requireNonNull(codec, "Codec cannot be null");
+        this.durability = Objects.requireNonNull(durability, "Durability cannot be null");
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    /**
+     * Restores the latest state into an empty repository and attaches a log to it, so
+     * every later write is durable. Returns how long each phase took.
+     */
+    public synchronized RecoveryReport recover(AbstractRepository<T> repository) {
+        Objects.requireNonNull(repository, "Repository cannot be null");
+        if (this.repository != null) {
+            throw new IllegalStateException("Already recovered " + name);
+        }
+        if (repository.count() > 0) {
+            throw new IllegalArgumentException("Repository must be empty to recover into");
+        }
+
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+
+            // Phase 1: the checkpoint image, decoded in parallel
+            Path checkpointPath = checkpointPath();
+            long checkpointLsn = 0;
+            Map<String, T> state = new LinkedHashMap<>();
+            if (Files.exists(checkpointPath)) {
+                CheckpointFile.Image<T> image = CheckpointFile.read(checkpointPath, codec);
+                checkpointLsn = image.getLsn();
+                image.getEntities().forEach(entity -> state.put(entity.getId(), entity));
+            }
+            int checkpointEntities = state.size();
+            long checkpointDone = System.nanoTime();
+
+            // Phase 2: only the log entries after the checkpoint
+            long[] replayed = {0};
+            long lastLsn = checkpointLsn;
+            List<Path> segments = segments();
+            for (Path segment : segments) {
+                lastLsn = Math.max(lastLsn, WriteAheadLog.replay(segment, codec, checkpointLsn, entry -> {
+                    replayed[0]++;
+                    switch (entry.getOperation()) {
+                        case SAVE -> state.put(entry.getId(), entry.getEntity());
+                        case DELETE -> state.remove(entry.getId());
+                        case CLEAR -> state.clear();
+                    }
+                }));
+            }
+            long replayDone = System.nanoTime();
+
+            // Phase 3: storage and indexes, built by the parallel bulk load
+            repository.bulkLoad(state.values());
+            long indexDone = System.nanoTime();
+
+            // Keep appending to the newest segment; its torn tail, if any, is cut off on open
+            Path activePath = segments.isEmpty() ? segmentPath(lastLsn + 1) : segments.get(segments.size() - 1);
+            WriteAheadLog<T> log = new WriteAheadLog<>(activePath, codec, durability, flushIntervalMillis, lastLsn);
+            repository.attachWriteAheadLog(log);
+            this.repository = repository;
+            this.activeLog = log;
+
+            RecoveryReport report = new RecoveryReport(name, state.size(), checkpointEntities, checkpointLsn,
+                    replayed[0], lastLsn, millis(start, checkpointDone), millis(checkpointDone, replayDone),
+                    millis(replayDone, indexDone), millis(start, System.nanoTime()));
+            logger.log(Level.INFO, "Recovered {0}", report);
+            return report;
+        } catch (IOException e) {
+            throw new DataPersistenceException("recover", directory.resolve(name).toString(), e);
+        }
+    }
+
+    /**
+     * Writes a checkpoint of the recovered repository and deletes the log segments it
+     * covers. Writers only pause while the snapshot opens. Returns the log sequence
+     * number the checkpoint reflects.
+     */
+    public synchronized long checkpoint() {
+        if (repository == null) {
+            throw new IllegalStateException("Recover " + name + " before taking a checkpoint");
+        }
+
+        long start = System.nanoTime();
+        long[] checkpointLsn = new long[1];
+        List<WriteAheadLog<T>> retired = new ArrayList<>(1);
+        RepositorySnapshot<T> snapshot = repository.openCheckpointSnapshot(current -> {
+            checkpointLsn[0] = current.getLastLsn();
+            if (current.getPath().equals(segmentPath(checkpointLsn[0] + 1))) {
+                // Nothing logged since the segment started; keep appending to it
+                return current;
+            }
+            retired.add(current);
+            activeLog = new WriteAheadLog<>(segmentPath(checkpointLsn[0] + 1), codec, durability,
+                    flushIntervalMillis, checkpointLsn[0]);
+            return activeLog;
+        });
+        // Flushes whatever writers still wait on; they see it durable and return
+        retired.forEach(WriteAheadLog::close);
+
+        try (snapshot) {
+            long count = CheckpointFile.write(checkpointPath(), codec, checkpointLsn[0], snapshot);
+            for (Path segment : segments()) {
+                if (firstLsnOf(segment) <= checkpointLsn[0]) {
+                    Files.deleteIfExists(segment);
+                }
+            }
+            logger.log(Level.INFO, "Checkpoint of {0}: {1} entities at sequence {2} in {3} ms",
+                    new Object[]{name, count, checkpointLsn[0], millis(start, System.nanoTime())});
+            return checkpointLsn[0];
+        } catch (IOException e) {
+            throw new DataPersistenceException("checkpoint", checkpointPath().toString(), e);
+        }
+    }
+
+    /**
+     * Detaches the log from the repository and closes it, flushing what it buffered.
+     */
+    @Override
+    public synchronized void close() {
+        if (repository != null) {
+            repository.attachWriteAheadLog(null);
+            activeLog.close();
+            repository = null;
+            activeLog = null;
+        }
+    }
+
+    private Path checkpointPath() {
+        return directory.resolve(name + CHECKPOINT_SUFFIX);
+    }
+
+    private Path segmentPath(long firstLsn) {
+        return directory.resolve(String.format("%s-%020d%s", name, firstLsn, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Lists this repository's log segments in sequence order.
+     */
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, name + "-*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                if (firstLsnOf(file) >= 0) {
+                    segments.add(file);
+                }
+            }
+        }
+        segments.sort(Comparator.comparingLong(this::firstLsnOf));
+        return segments;
+    }
+
+    /**
+     * Parses the first sequence number out of a segment name, or -1 if it isn't one.
+     */
+    private long firstLsnOf(Path segment) {
+        String fileName = segment.getFileName().toString();
+        String digits = fileName.substring(name.length() + 1, fileName.length() - SEGMENT_SUFFIX.length());
+        try {
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long millis(long fromNanos, long toNanos) {
+        return (toNanos - fromNanos) / 1_000_000;
+    }
+
+    /**
+     * What a recovery loaded and how long each phase took until the repository was ready.
+     */
+    public static class RecoveryReport {
+        private final String name;
+        private final int entityCount;
+        private final int checkpointEntities;
+        private final long checkpointLsn;
+        private final long replayedEntries;
+        private final long lastLsn;
+        private final long checkpointMillis;
+        private final long replayMillis;
+        private final long indexMillis;
+        private final long timeToReadyMillis;
+
+        public RecoveryReport(String name, int entityCount, int checkpointEntities, long checkpointLsn,
+                              long replayedEntries, long lastLsn, long checkpointMillis, long replayMillis,
+                              long indexMillis, long timeToReadyMillis) {
+            this.name = name;
+            this.entityCount = entityCount;
+            this.checkpointEntities = checkpointEntities;
+            this.checkpointLsn = checkpointLsn;
+            this.replayedEntries = replayedEntries;
+            this.lastLsn = lastLsn;
+            this.checkpointMillis = checkpointMillis;
+            this.replayMillis = replayMillis;
+            this.indexMillis = indexMillis;
+            this.timeToReadyMillis = timeToReadyMillis;
+        }
+
+        public String getName() { return name; }
+        public int getEntityCount() { return entityCount; }
+        public int getCheckpointEntities() { return checkpointEntities; }
+        public long getCheckpointLsn() { return checkpointLsn; }
+        public long getReplayedEntries() { return replayedEntries; }
+        public long getLastLsn() { return lastLsn; }
+        public long getCheckpointMillis() { return checkpointMillis; }
+        public long getReplayMillis() { return replayMillis; }
+        public long getIndexMillis() { return indexMillis; }
+        public long getTimeToReadyMillis() { return timeToReadyMillis; }
+
+        @Override
+        public String toString() {
+            return String.format("RecoveryReport{%s: %d entities (%d from checkpoint at %d, %d log entries to %d), "
+                            + "checkpoint=%d ms, replay=%d ms, indexes=%d ms, ready in %d ms}",
+                    name, entityCount, checkpointEntities, checkpointLsn, replayedEntries, lastLsn,
+                    checkpointMillis, replayMillis, indexMillis, timeToReadyMillis);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package it.epicode.library.repository.storage;
+
+import it.epicode.library.model.user.User;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Compact binary encoding of a single user record, laid out like MediaRecordCodec:
+ * format version, then the fields in declaration order. Strings are a length-prefixed
+ * UTF-8 run, with length -1 for null; dates are epoch days, with Long.MIN_VALUE for null.
+ */
+public class UserRecordCodec {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    /**
+     * This codec as a RecordCodec, e.g. for a write-ahead log of users.
+     */
+    public static final RecordCodec<User> RECORDS = RecordCodec.of(UserRecordCodec::encode, UserRecordCodec::decode);
+
+    /**
+     * Encodes a user into a new byte array.
+     */
+    public static byte[] encode(User user) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            writeString(out, user.getId());
+            writeString(out, user.getFirstName());
+            writeString(out, user.getLastName());
+            writeString(out, user.getEmail());
+            writeString(out, user.getPhoneNumber());
+            LocalDate registered = user.getRegistrationDate();
+            out.writeLong(registered != null ? registered.toEpochDay() : Long.MIN_VALUE);
+            out.writeBoolean(user.isActive());
+            out.writeInt(user.getMaxLoans());
+        } catch (IOException e) {
+            // ByteArrayOutputStream never throws
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a user starting at the buffer's position, advancing it past the record.
+     */
+    public static User decode(ByteBuffer in) {
+        byte version = in.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported user record version: " + version);
+        }
+        User user = new User(readString(in), readString(in), readString(in), readString(in));
+        user.setPhoneNumber(readString(in));
+        long registeredDay = in.getLong();
+        user.setRegistrationDate(registeredDay != Long.MIN_VALUE ? LocalDate.ofEpochDay(registeredDay) : null);
+        user.setActive(in.get() != 0);
+        user.setMaxLoans(in.getInt());
+        return user;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
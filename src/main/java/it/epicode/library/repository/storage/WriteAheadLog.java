@@ -0,0 +1,584 @@
+package it.epicode.library.repository.storage;
+
+import it.epicode.library.model.exceptions.DataPersistenceException;
+import it.epicode.library.repository.Identifiable;
+import it.epicode.library.util.LibraryConfig;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of repository mutations, written ahead of applying them.
+ *
+ * Layout: a header (magic, format version, base sequence number) followed by frames of
+ * [int body length][int CRC32 of body][body], where the body is the log sequence
+ * number, the operation, the entity id and, for saves, the entity encoded by the
+ * record codec. A torn or corrupt frame ends the log; opening the file truncates it.
+ *
+ * Appends only buffer the frame and assign its sequence number. Making it durable
+ * is a separate step, so a writer can append under its lock and wait outside it.
+ * Whoever needs the buffer flushed first writes every pending frame in one write
+ * and one fsync while later appenders queue up behind it (group commit).
+ *
+ * @param <T> the entity type
+ */
+public class WriteAheadLog<T extends Identifiable> implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(WriteAheadLog.class.getName());
+
+    /**
+     * When an appended mutation is considered committed.
+     */
+    public enum Durability {
+        /** After the frame is forced to disk; concurrent commits share one fsync. */
+        SYNC,
+        /** Right away; a background flusher forces the log every flush interval. */
+        BATCHED,
+        /** After the frame is handed to the operating system, without forcing it. */
+        OS_BUFFERED;
+
+        /**
+         * Parses a mode name ignoring case, or returns the default if it is unknown.
+         */
+        public static Durability parse(String value, Durability defaultMode) {
+            if (value != null) {
+                try {
+                    return Durability.valueOf(value.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    logger.log(Level.WARNING, "Unknown durability {0}, using {1}", new Object[]{value, defaultMode});
+                }
+            }
+            return defaultMode;
+        }
+    }
+
+    /**
+     * Kind of mutation a log entry records.
+     */
+    public enum Operation {
+        SAVE, DELETE, CLEAR
+    }
+
+    private static final int MAGIC = 0x4C57414C; // "LWAL"
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES + 1 + Long.BYTES;
+
+    // Length and CRC ahead of each body; the body starts with the sequence number
+    private static final int FRAME_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int MIN_BODY_BYTES = Long.BYTES + 1 + 2 * Integer.BYTES;
+
+    // Guards against reading a corrupt length as a huge allocation
+    private static final int MAX_BODY_BYTES = 64 * 1024 * 1024;
+
+    private final Path path;
+    private final RecordCodec<T> codec;
+    private final Durability durability;
+    private final FileChannel channel;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private FrameBuffer pending = new FrameBuffer(); // guarded by lock
+    private FrameBuffer spare = new FrameBuffer(); // guarded by lock, null while a flush runs
+    private boolean flushing; // guarded by lock
+    private long lastLsn; // guarded by lock
+    private long writtenLsn; // guarded by lock
+    private long durableLsn; // guarded by lock
+    private long flushCount; // guarded by lock
+    private IOException failure; // guarded by lock
+    private boolean closed; // guarded by lock
+
+    // Forces the log every flush interval in BATCHED mode, null otherwise
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Opens the log at a path, creating it if needed, with the durability and flush
+     * interval from wal.durability and wal.flushIntervalMillis.
+     */
+    public static <T extends Identifiable> WriteAheadLog<T> fromConfig(Path path, RecordCodec<T> codec) {
+        return new WriteAheadLog<>(path, codec, configuredDurability(), configuredFlushIntervalMillis());
+    }
+
+    /**
+     * Gets the durability mode set by wal.durability, SYNC by default.
+     */
+    public static Durability configuredDurability() {
+        return Durability.parse(LibraryConfig.get(LibraryConfig.WAL_DURABILITY, null), Durability.SYNC);
+    }
+
+    /**
+     * Gets the BATCHED flush interval set by wal.flushIntervalMillis.
+     */
+    public static long configuredFlushIntervalMillis() {
+        return LibraryConfig.getPositiveInt(LibraryConfig.WAL_FLUSH_INTERVAL_MILLIS, 10);
+    }
+
+    /**
+     * Opens the log at a path, creating it if needed. Appends continue after the last
+     * intact frame; anything behind it is a torn write and is cut off.
+     */
+    public WriteAheadLog(Path path, RecordCodec<T> codec, Durability durability, long flushIntervalMillis) {
+        this(path, codec, durability, flushIntervalMillis, 0);
+    }
+
+    /**
+     * Opens the log at a path like the other constructor. A new file numbers its entries
+     * from baseLsn + 1, so a log can continue the sequence of the one it replaces;
+     * an existing file keeps the base it was created with.
+     */
+    public WriteAheadLog(Path path, RecordCodec<T> codec, Durability durability, long flushIntervalMillis,
+                         long baseLsn) {
+        this.path = Objects.requireNonNull(path, "Path cannot be null");
+        this.codec = Objects.requireNonNull(codec, "Codec cannot be null");
+        this.durability = Objects.requireNonNull(durability, "Durability cannot be null");
+        if (flushIntervalMillis < 1) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recover(baseLsn);
+        } catch (IOException e) {
+            throw new DataPersistenceException("open", path.toString(), e);
+        }
+
+        if (durability == Durability.BATCHED) {
+            flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "wal-flusher-" + path.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::backgroundFlush,
+                    flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Buffers a save of the entity and returns its sequence number.
+     */
+    public long appendSave(T entity) {
+        return append(List.of(frame(Operation.SAVE, entity.getId(), codec.encode(entity))));
+    }
+
+    /**
+     * Buffers saves of every entity under consecutive sequence numbers, returning the last.
+     */
+    public long appendSaves(Collection<T> entities) {
+        List<byte[]> frames = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            frames.add(frame(Operation.SAVE, entity.getId(), codec.encode(entity)));
+        }
+        return append(frames);
+    }
+
+    /**
+     * Buffers a delete of the id and returns its sequence number.
+     */
+    public long appendDelete(String id) {
+        return append(List.of(frame(Operation.DELETE, id, new byte[0])));
+    }
+
+    /**
+     * Buffers the removal of every entity and returns its sequence number.
+     */
+    public long appendClear() {
+        return append(List.of(frame(Operation.CLEAR, "", new byte[0])));
+    }
+
+    /**
+     * Waits until the entry with the given sequence number is committed under this
+     * log's durability mode. Throws DataPersistenceException if the log failed.
+     */
+    public void sync(long lsn) {
+        switch (durability) {
+            case SYNC -> awaitFlushed(lsn, true);
+            case OS_BUFFERED -> awaitFlushed(lsn, false);
+            case BATCHED -> checkFailure();
+        }
+    }
+
+    /**
+     * Writes and forces every entry appended so far, whatever the durability mode.
+     */
+    public void flush() {
+        awaitFlushed(getLastLsn(), true);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Gets the sequence number of the last appended entry, 0 if the log is empty.
+     */
+    public long getLastLsn() {
+        lock.lock();
+        try {
+            return lastLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of batched writes so far; with group commit it stays well below
+     * the number of appends under concurrent load.
+     */
+    public long getFlushCount() {
+        lock.lock();
+        try {
+            return flushCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes and forces the remaining entries and closes the file. Idempotent.
+     */
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long finalLsn;
+        boolean failed;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            // Reject new appends; whatever is already buffered still gets flushed
+            closed = true;
+            finalLsn = lastLsn;
+            failed = failure != null;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            if (!failed) {
+                awaitFlushed(finalLsn, true);
+            }
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close write-ahead log " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Reads every intact entry after the given sequence number in log order, stopping
+     * at the first torn or corrupt frame. Returns the last sequence number read, or
+     * afterLsn if there was none. A missing file holds no entries.
+     */
+    public static <T extends Identifiable> long replay(Path path, RecordCodec<T> codec, long afterLsn,
+                                                       Consumer<Entry<T>> consumer) {
+        Objects.requireNonNull(codec, "Codec cannot be null");
+        Objects.requireNonNull(consumer, "Consumer cannot be null");
+        if (!Files.exists(path)) {
+            return afterLsn;
+        }
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] last = {afterLsn};
+            scan(in, path, (lsn, body) -> {
+                if (lsn > afterLsn) {
+                    consumer.accept(decodeEntry(lsn, body, codec));
+                    last[0] = lsn;
+                }
+            }, base -> { });
+            return last[0];
+        } catch (IOException e) {
+            throw new DataPersistenceException("replay", path.toString(), e);
+        }
+    }
+
+    private long append(List<byte[]> frames) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log is closed: " + path);
+            }
+            checkFailure();
+            for (byte[] frame : frames) {
+                seal(frame, ++lastLsn);
+                pending.write(frame, 0, frame.length);
+            }
+            return lastLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until lsn is written, and forced if asked, becoming the flushing thread
+     * when no flush is running. Entries appended while a flush runs wait for the next
+     * one, which takes them all at once.
+     */
+    private void awaitFlushed(long lsn, boolean force) {
+        lock.lock();
+        try {
+            while (true) {
+                checkFailure();
+                if ((force ? durableLsn : writtenLsn) >= lsn) {
+                    return;
+                }
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+
+                flushing = true;
+                FrameBuffer batch = pending;
+                pending = spare;
+                spare = null;
+                long batchLsn = lastLsn;
+                IOException error = null;
+                lock.unlock();
+                try {
+                    batch.writeTo(channel);
+                    if (force) {
+                        channel.force(false);
+                    }
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    lock.lock();
+                    flushing = false;
+                    batch.reset();
+                    spare = batch;
+                    flushed.signalAll();
+                }
+
+                if (error != null) {
+                    logger.log(Level.SEVERE, "Write-ahead log " + path + " failed, rejecting further writes", error);
+                    failure = error;
+                } else {
+                    writtenLsn = batchLsn;
+                    if (force) {
+                        durableLsn = batchLsn;
+                    }
+                    flushCount++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void backgroundFlush() {
+        long target;
+        lock.lock();
+        try {
+            if (closed || failure != null || durableLsn == lastLsn) {
+                return;
+            }
+            target = lastLsn;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            awaitFlushed(target, true);
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Background flush of " + path + " failed", e);
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new DataPersistenceException("append", path.toString(), failure);
+        }
+    }
+
+    /**
+     * Checks the header and finds the last intact frame, cutting off anything after it.
+     */
+    private void recover(long baseLsn) throws IOException {
+        if (baseLsn < 0) {
+            throw new IllegalArgumentException("Base sequence number cannot be negative");
+        }
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC).put(FORMAT_VERSION).putLong(baseLsn).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(false);
+            lastLsn = writtenLsn = durableLsn = baseLsn;
+            return;
+        }
+
+        long[] last = {0};
+        long end = scan(channel, path, (lsn, body) -> last[0] = lsn, base -> last[0] = base);
+        if (end < channel.size()) {
+            logger.log(Level.WARNING, "Truncating torn tail of {0}: {1} bytes after sequence {2}",
+                    new Object[]{path, channel.size() - end, last[0]});
+            channel.truncate(end);
+            channel.force(false);
+        }
+        channel.position(end);
+        lastLsn = writtenLsn = durableLsn = last[0];
+    }
+
+    /**
+     * Walks the intact frames of a log from the start, passing each sequence number and
+     * body to the visitor. Returns the offset just past the last intact frame.
+     */
+    private static long scan(FileChannel in, Path path, FrameVisitor visitor, LongConsumer baseVisitor)
+            throws IOException {
+        in.position(0);
+        DataInputStream data = new DataInputStream(new BufferedInputStream(Channels.newInputStream(in), 1 << 16));
+        try {
+            if (data.readInt() != MAGIC) {
+                throw new IOException("Not a write-ahead log: " + path);
+            }
+            byte version = data.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported write-ahead log version: " + version);
+            }
+            baseVisitor.accept(data.readLong());
+        } catch (EOFException e) {
+            throw new IOException("Truncated write-ahead log header: " + path, e);
+        }
+
+        long offset = HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        while (true) {
+            byte[] body;
+            int checksum;
+            try {
+                int length = data.readInt();
+                if (length < MIN_BODY_BYTES || length > MAX_BODY_BYTES) {
+                    return offset;
+                }
+                checksum = data.readInt();
+                body = new byte[length];
+                data.readFully(body);
+            } catch (EOFException e) {
+                return offset;
+            }
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                return offset;
+            }
+            visitor.visit(ByteBuffer.wrap(body).getLong(), body);
+            offset += FRAME_HEADER_BYTES + body.length;
+        }
+    }
+
+    private static <T> Entry<T> decodeEntry(long lsn, byte[] body, RecordCodec<T> codec) {
+        ByteBuffer in = ByteBuffer.wrap(body, Long.BYTES, body.length - Long.BYTES);
+        Operation operation = Operation.values()[in.get()];
+        byte[] id = new byte[in.getInt()];
+        in.get(id);
+        int payloadLength = in.getInt();
+        T entity = payloadLength > 0 ? codec.decode(in) : null;
+        return new Entry<>(lsn, operation, new String(id, StandardCharsets.UTF_8), entity);
+    }
+
+    /**
+     * Lays out a frame with room for its length, CRC and sequence number, which
+     * seal fills in once the sequence number is known.
+     */
+    private static byte[] frame(Operation operation, String id, byte[] payload) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = MIN_BODY_BYTES + idBytes.length + payload.length;
+        return ByteBuffer.allocate(FRAME_HEADER_BYTES + bodyLength)
+                .putInt(bodyLength)
+                .putInt(0)
+                .putLong(0)
+                .put((byte) operation.ordinal())
+                .putInt(idBytes.length)
+                .put(idBytes)
+                .putInt(payload.length)
+                .put(payload)
+                .array();
+    }
+
+    private static void seal(byte[] frame, long lsn) {
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        buffer.putLong(FRAME_HEADER_BYTES, lsn);
+        CRC32 crc = new CRC32();
+        crc.update(frame, FRAME_HEADER_BYTES, frame.length - FRAME_HEADER_BYTES);
+        buffer.putInt(Integer.BYTES, (int) crc.getValue());
+    }
+
+    @FunctionalInterface
+    private interface FrameVisitor {
+        void visit(long lsn, byte[] body);
+    }
+
+    /**
+     * Byte buffer whose contents can be written without copying them first.
+     */
+    private static final class FrameBuffer extends ByteArrayOutputStream {
+        private FrameBuffer() {
+            super(1 << 16);
+        }
+
+        private void writeTo(FileChannel channel) throws IOException {
+            ByteBuffer contents = ByteBuffer.wrap(buf, 0, count);
+            while (contents.hasRemaining()) {
+                channel.write(contents);
+            }
+        }
+    }
+
+    /**
+     * One logged mutation. Saves carry the entity; deletes only the id; clears neither.
+     */
+    public static final class Entry<T> {
+        private final long lsn;
+        private final Operation operation;
+        private final String id;
+        private final T entity;
+
+        private Entry(long lsn, Operation operation, String id, T entity) {
+            this.lsn = lsn;
+            this.operation = operation;
+            this.id = id;
+            this.entity = entity;
+        }
+
+        public long getLsn() { return lsn; }
+        public Operation getOperation() { return operation; }
+        public String getId() { return id; }
+        public T getEntity() { return entity; }
+
+        @Override
+        public String toString() {
+            return String.format("Entry{lsn=%d, %s %s}", lsn, operation, id);
+        }
+    }
+}
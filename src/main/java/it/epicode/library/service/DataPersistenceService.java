@@ -3,12 +3,17 @@ package it.epicode.library.service;
 import it.epicode.library.model.media.Media;
 import it.epicode.library.model.structure.Library;
 import it.epicode.library.model.exceptions.DataPersistenceException;
+import it.epicode.library.repository.storage.CatalogCodec;
+import it.epicode.library.repository.storage.MappedCatalog;
+import it.epicode.library.repository.storage.MediaRecordCodec;
+import it.epicode.library.util.CsvParser;
 import java.io.*;
 import java.nio.file.*;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -19,6 +24,7 @@ public class DataPersistenceService {
     private final Path backupDirectory;
     private static final String LIBRARY_FILE = "library.dat";
     private static final String CATALOG_CSV = "catalog.csv";
+    private static final String CATALOG_SNAPSHOT = "catalog.snapshot";
     private static final String CONFIG_FILE = "library.properties";
 
     public DataPersistenceService(String dataPath) {
@@ -34,7 +40,7 @@ public class DataPersistenceService {
     }
 
     /**
-     * Saves library data using binary serialization.
+     * Saves library data in the versioned binary catalog format.
      */
     public void saveLibrary(Library library) {
         ExceptionShieldingService.executeVoidWithShielding(() -> {
@@ -42,13 +48,10 @@ public class DataPersistenceService {
             Path tempPath = dataDirectory.resolve(LIBRARY_FILE + ".tmp");
 
             // Write to temporary file first
-            try (ObjectOutputStream oos = new ObjectOutputStream(
-                    new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            try {
+                Files.write(tempPath, CatalogCodec.encodeLibrary(library));
 
-                oos.writeObject(library);
-                oos.flush();
-
-                logger.log(Level.INFO, "Library data serialized to temporary file");
+                logger.log(Level.INFO, "Library data encoded to temporary file");
 
                 // Atomic move to final location
                 Files.move(tempPath, libraryPath, StandardCopyOption.REPLACE_EXISTING);
@@ -79,25 +82,17 @@ public class DataPersistenceService {
                 return null;
             }
 
-            try (ObjectInputStream ois = new ObjectInputStream(
-                    new BufferedInputStream(Files.newInputStream(libraryPath)))) {
-
-                Library library = (Library) ois.readObject();
-                logger.log(Level.INFO, "Library loaded successfully from {0}", libraryPath);
-                return library;
-
-            } catch (ClassNotFoundException e) {
-                throw new RuntimeException(new IOException("Invalid library file format", e));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+            Library library = readLibraryFile(libraryPath);
+            logger.log(Level.INFO, "Library loaded successfully from {0}", libraryPath);
+            return library;
         }, "loadLibrary");
     }
 
     /**
      * Exports catalog to CSV format using NIO.2.
+     * Accepts any Iterable, so a RepositorySnapshot can be streamed without copying it to a list.
      */
-    public void exportCatalogToCsv(List<Media> mediaList) {
+    public void exportCatalogToCsv(Iterable<? extends Media> mediaList) {
         ExceptionShieldingService.executeVoidWithShielding(() -> {
             Path csvPath = dataDirectory.resolve(CATALOG_CSV);
 
@@ -107,6 +102,7 @@ public class DataPersistenceService {
                 writer.newLine();
 
                 // Write data
+                int exported = 0;
                 for (Media media : mediaList) {
                     writer.write(String.format("%s,%s,%s,%s,%s,%s,%s,%s",
                             escapeCsvField(media.getId()),
@@ -119,10 +115,11 @@ public class DataPersistenceService {
                             media.getAcquisitionDate()
                     ));
                     writer.newLine();
+                    exported++;
                 }
 
                 logger.log(Level.INFO, "Exported {0} media items to CSV: {1}",
-                        new Object[]{mediaList.size(), csvPath});
+                        new Object[]{exported, csvPath});
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -132,53 +129,102 @@ public class DataPersistenceService {
     /**
      * Imports catalog from CSV file.
      */
+    public List<Map<String, String>> importCatalogFromCsv() {
+        List<Map<String, String>> records = new ArrayList<>();
+        importCatalogFromCsv(records::add);
+        return records;
+    }
+
     /**
-     * Imports catalog from CSV file.
+     * Streams the catalog CSV to the consumer one record at a time, keyed by the
+     * header row, so files of any size are imported in constant memory.
+     * Returns the number of records passed to the consumer.
      */
-    public List<Map<String, String>> importCatalogFromCsv() {
+    public long importCatalogFromCsv(Consumer<Map<String, String>> recordConsumer) {
         Path csvPath = dataDirectory.resolve(CATALOG_CSV);
 
         if (!Files.exists(csvPath)) {
             logger.log(Level.INFO, "No CSV file found for import");
-            return Collections.emptyList();
+            return 0;
         }
 
-        List<Map<String, String>> records = new ArrayList<>();
-
-        try (BufferedReader reader = Files.newBufferedReader(csvPath, StandardCharsets.UTF_8)) {
-            String headerLine = reader.readLine();
-            if (headerLine == null) {
-                return Collections.emptyList();
-            }
-
-            String[] headers = headerLine.split(",");
-            String line;
-            int lineNumber = 1;
-
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                String[] values = line.split(",");
+        String[][] headers = new String[1][];
+        long[] imported = {0};
+        try {
+            CsvParser.parse(csvPath, row -> {
+                if (headers[0] == null) {
+                    headers[0] = row.toArray();
+                    for (int i = 0; i < headers[0].length; i++) {
+                        headers[0][i] = headers[0][i].trim();
+                    }
+                    return;
+                }
 
-                if (values.length == headers.length) {
+                if (row.size() == headers[0].length) {
                     Map<String, String> record = new HashMap<>();
-                    for (int i = 0; i < headers.length; i++) {
-                        record.put(headers[i].trim(), values[i].trim());
+                    for (int i = 0; i < headers[0].length; i++) {
+                        record.put(headers[0][i], row.get(i).trim());
                     }
-                    records.add(record);
+                    recordConsumer.accept(record);
+                    imported[0]++;
                 } else {
-                    logger.log(Level.WARNING, "Skipping malformed line {0}: {1}",
-                            new Object[]{lineNumber, line});
+                    logger.log(Level.WARNING, "Skipping malformed record {0}: {1} fields, expected {2}",
+                            new Object[]{row.getRecordNumber(), row.size(), headers[0].length});
                 }
-            }
-
-            logger.log(Level.INFO, "Imported {0} records from CSV", records.size());
-            return records;
+            });
+
+            logger.log(Level.INFO, "Imported {0} records from CSV", imported[0]);
+            return imported[0];
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.SEVERE, "Malformed CSV", e);
+            throw new DataPersistenceException("import", csvPath.toString(),
+                    new IOException("Invalid CSV format: " + e.getMessage(), e));
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Error importing CSV", e);
             throw new DataPersistenceException("import", csvPath.toString(), e);
         }
     }
 
+    /**
+     * Writes the media as a memory-mappable catalog snapshot for read-only nodes.
+     */
+    public void exportCatalogSnapshot(Iterable<? extends Media> mediaList) {
+        ExceptionShieldingService.executeVoidWithShielding(() -> {
+            Path snapshotPath = dataDirectory.resolve(CATALOG_SNAPSHOT);
+            try {
+                int exported = MappedCatalog.write(snapshotPath, MediaRecordCodec.RECORDS, mediaList);
+                logger.log(Level.INFO, "Exported {0} media items to catalog snapshot: {1}",
+                        new Object[]{exported, snapshotPath});
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, "exportCatalogSnapshot");
+    }
+
+    /**
+     * Maps the catalog snapshot as a read-only repository. Records are decoded on
+     * access, so opening takes the same time for any catalog size.
+     */
+    public Optional<MappedCatalog<Media>> openCatalogSnapshot() {
+        return ExceptionShieldingService.executeWithShielding(() -> {
+            Path snapshotPath = dataDirectory.resolve(CATALOG_SNAPSHOT);
+
+            if (!Files.exists(snapshotPath)) {
+                logger.log(Level.INFO, "No catalog snapshot found");
+                return null;
+            }
+
+            try {
+                MappedCatalog<Media> catalog = MappedCatalog.open(snapshotPath, MediaRecordCodec.RECORDS);
+                logger.log(Level.INFO, "Mapped catalog snapshot with {0} items from {1}",
+                        new Object[]{catalog.count(), snapshotPath});
+                return catalog;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, "openCatalogSnapshot");
+    }
+
     /**
      * Saves configuration properties.
      */
@@ -289,19 +335,30 @@ public class DataPersistenceService {
                 throw new RuntimeException(new FileNotFoundException("Backup file not found: " + backupFile));
             }
 
-            try (ObjectInputStream ois = new ObjectInputStream(
-                    new BufferedInputStream(Files.newInputStream(backupFile)))) {
-
-                Library library = (Library) ois.readObject();
-                logger.log(Level.INFO, "Library restored from backup: {0}", backupFile);
-                return library;
+            Library library = readLibraryFile(backupFile);
+            logger.log(Level.INFO, "Library restored from backup: {0}", backupFile);
+            return library;
+        }, "restoreFromBackup");
+    }
 
-            } catch (ClassNotFoundException e) {
-                throw new RuntimeException(new IOException("Invalid backup file format", e));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+    /**
+     * Reads a library file in the binary catalog format, or a Java-serialized one
+     * written by earlier versions.
+     */
+    private Library readLibraryFile(Path file) {
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            if (CatalogCodec.isCatalogDocument(bytes)) {
+                return CatalogCodec.decodeLibrary(bytes);
             }
-        }, "restoreFromBackup");
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return (Library) ois.readObject();
+            }
+        } catch (ClassNotFoundException | ClassCastException | IllegalArgumentException e) {
+            throw new RuntimeException(new IOException("Invalid library file format: " + file, e));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     /**
@@ -325,7 +382,7 @@ public class DataPersistenceService {
     // Helper methods
     private String escapeCsvField(String field) {
         if (field == null) return "";
-        if (field.contains(",") || field.contains("\"") || field.contains("\n")) {
+        if (field.contains(",") || field.contains("\"") || field.contains("\n") || field.contains("\r")) {
             return "\"" + field.replace("\"", "\"\"") + "\"";
         }
         return field;
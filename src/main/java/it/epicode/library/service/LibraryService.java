@@ -2,14 +2,26 @@ package it.epicode.library.service;
 
 import it.epicode.library.model.structure.Library;
 import it.epicode.library.repository.MediaRepository;
+import it.epicode.library.repository.QueryResultCache;
+import it.epicode.library.repository.RepositorySnapshot;
+import it.epicode.library.repository.SearchPage;
+import it.epicode.library.repository.storage.MediaRecordCodec;
+import it.epicode.library.repository.storage.RecoveryManager;
+import it.epicode.library.util.LibraryConfig;
+import it.epicode.library.util.LibraryExecutors;
 import it.epicode.library.model.media.Media;
 import it.epicode.library.factory.MediaFactory;
 import it.epicode.library.factory.MediaType;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.Map;
 
@@ -19,9 +31,28 @@ public class LibraryService {
     private final MediaRepository mediaRepository;
     private final ExecutorService executorService;
 
+    // Checkpoints and write-ahead log of the catalog, null until openDurableCatalog
+    private RecoveryManager<Media> recoveryManager;
+
+    // Largest page a paginated search returns, from search.maxResults
+    private final int maxSearchResults = LibraryConfig.getPositiveInt(LibraryConfig.SEARCH_MAX_RESULTS, 100);
+
+    /**
+     * Creates a service whose async methods run on the executor set by concurrent.executor.
+     */
     public LibraryService() {
-        this.mediaRepository = new MediaRepository();
-        this.executorService = Executors.newFixedThreadPool(4);
+        this(LibraryExecutors.fromConfig("library-async"));
+    }
+
+    /**
+     * Creates a service whose async methods run on the given executor.
+     * The service owns it and shuts it down in {@link #shutdown()}.
+     * The repository keeps a column store when repository.columnStore is true.
+     */
+    public LibraryService(ExecutorService executorService) {
+        this.mediaRepository = new MediaRepository(MediaRepository.ConcurrencyMode.GLOBAL_LOCK,
+                LibraryConfig.getBoolean(LibraryConfig.REPOSITORY_COLUMN_STORE, false));
+        this.executorService = Objects.requireNonNull(executorService, "Executor cannot be null");
     }
 
     /**
@@ -56,10 +87,48 @@ public class LibraryService {
     }
 
     /**
-     * Asynchronous media search.
+     * Paginated search ordered by title. The page size is capped at search.maxResults;
+     * pass the returned token back, or null for the first page.
      */
-    public CompletableFuture<List<Media>> searchMediaAsync(String query) {
-        return CompletableFuture.supplyAsync(() -> searchMedia(query), executorService);
+    public SearchPage<Media> searchMedia(String query, String mediaType, Boolean available,
+                                         int pageSize, String pageToken) {
+        return mediaRepository.searchPage(query, mediaType, available,
+                Math.min(pageSize, maxSearchResults), pageToken);
+    }
+
+    /**
+     * Gets the largest page size a paginated search returns.
+     */
+    public int getMaxSearchResults() {
+        return maxSearchResults;
+    }
+
+    /**
+     * Gets hit, miss and eviction counts of the search result cache.
+     */
+    public QueryResultCache.CacheStats getSearchCacheStats() {
+        return mediaRepository.getSearchCacheStats();
+    }
+
+    /**
+     * Keyword search on whole words of title, author and description.
+     */
+    public List<Media> searchMediaByKeywords(String query, boolean matchAll) {
+        return mediaRepository.searchKeywords(query, matchAll);
+    }
+
+    /**
+     * Typo-tolerant search within the given number of edits.
+     */
+    public List<Media> fuzzySearchMedia(String query, int maxDistance) {
+        return mediaRepository.fuzzySearch(query, maxDistance);
+    }
+
+    /**
+     * Autocomplete suggestions for the search box.
+     */
+    public List<String> suggestMedia(String prefix, int limit) {
+        return mediaRepository.suggest(prefix, limit);
     }
 
     /**
@@ -69,6 +138,14 @@ public class LibraryService {
         return mediaRepository.findAll();
     }
 
+    /**
+     * Opens a consistent view of the catalog for long scans such as CSV export.
+     * Callers must close it.
+     */
+    public RepositorySnapshot<Media> openCatalogSnapshot() {
+        return mediaRepository.openSnapshot();
+    }
+
     /**
      * Gets available media only.
      */
@@ -76,6 +153,37 @@ public class LibraryService {
         return mediaRepository.findAvailable();
     }
 
+    /**
+     * Loads a whole catalog through the repository's bulk-load path, e.g. at startup.
+     */
+    public List<Media> loadCatalog(Collection<Media> catalog) {
+        return mediaRepository.bulkLoad(catalog);
+    }
+
+    /**
+     * Restores the catalog from the latest checkpoint and write-ahead log in the
+     * directory, and logs every later change there. Call once, before adding media.
+     */
+    public synchronized RecoveryManager.RecoveryReport openDurableCatalog(Path directory) {
+        if (recoveryManager != null) {
+            throw new IllegalStateException("Durable catalog already open");
+        }
+        RecoveryManager<Media> manager = RecoveryManager.fromConfig(directory, "catalog", MediaRecordCodec.RECORDS);
+        RecoveryManager.RecoveryReport report = manager.recover(mediaRepository);
+        recoveryManager = manager;
+        return report;
+    }
+
+    /**
+     * Writes a checkpoint of the durable catalog, so the next start replays less log.
+     */
+    public synchronized long checkpointCatalog() {
+        if (recoveryManager == null) {
+            throw new IllegalStateException("Durable catalog not open");
+        }
+        return recoveryManager.checkpoint();
+    }
+
     /**
      * Gets media by type.
      */
@@ -83,6 +191,20 @@ public class LibraryService {
         return mediaRepository.findByType(mediaType);
     }
 
+    /**
+     * Gets the first k matching media in comparator order, e.g. the most recently acquired.
+     */
+    public List<Media> getTopMedia(Predicate<Media> filter, Comparator<? super Media> comparator, int k) {
+        return mediaRepository.topK(filter, comparator, k);
+    }
+
+    /**
+     * Gets up to limit media acquired in the last given number of days, newest first.
+     */
+    public List<Media> getRecentAcquisitions(int days, int limit) {
+        return mediaRepository.findRecentAcquisitions(days, limit);
+    }
+
     /**
      * Gets media statistics.
      */
@@ -98,13 +220,21 @@ public class LibraryService {
     }
 
     /**
-     * Updates media availability.
+     * Gets the number of media per author, optionally filtered by availability.
+     */
+    public Map<String, Integer> getAuthorStatistics(Boolean available) {
+        return mediaRepository.getAuthorStatistics(available);
+    }
+
+    /**
+     * Updates media availability. The stored item is copied before the change, so open
+     * catalog snapshots keep the availability they were opened with.
      */
     public boolean updateMediaAvailability(String mediaId, boolean available) {
         return ExceptionShieldingService.executeWithShielding(() -> {
             Optional<Media> mediaOpt = mediaRepository.findById(mediaId);
             if (mediaOpt.isPresent()) {
-                Media media = mediaOpt.get();
+                Media media = MediaRecordCodec.copy(mediaOpt.get());
                 media.setAvailable(available);
                 mediaRepository.save(media);
                 return true;
@@ -127,10 +257,155 @@ public class LibraryService {
         return mediaRepository.getStats();
     }
 
+    /**
+     * Asynchronously adds media using the Factory Pattern.
+     */
+    public CompletableFuture<Media> addMediaAsync(MediaType type, Map<String, Object> properties) {
+        return async(() -> addMedia(type, properties));
+    }
+
+    /**
+     * Asynchronously finds media by ID.
+     */
+    public CompletableFuture<Optional<Media>> findMediaByIdAsync(String id) {
+        return async(() -> findMediaById(id));
+    }
+
+    /**
+     * Asynchronous media search.
+     */
+    public CompletableFuture<List<Media>> searchMediaAsync(String query) {
+        return async(() -> searchMedia(query));
+    }
+
+    /**
+     * Asynchronous media search with type and availability filters.
+     */
+    public CompletableFuture<List<Media>> searchMediaAsync(String query, String mediaType, Boolean available) {
+        return async(() -> searchMedia(query, mediaType, available));
+    }
+
+    /**
+     * Asynchronous paginated media search.
+     */
+    public CompletableFuture<SearchPage<Media>> searchMediaAsync(String query, String mediaType, Boolean available,
+                                                                 int pageSize, String pageToken) {
+        return async(() -> searchMedia(query, mediaType, available, pageSize, pageToken));
+    }
+
+    /**
+     * Asynchronous keyword search.
+     */
+    public CompletableFuture<List<Media>> searchMediaByKeywordsAsync(String query, boolean matchAll) {
+        return async(() -> searchMediaByKeywords(query, matchAll));
+    }
+
+    /**
+     * Asynchronous typo-tolerant search.
+     */
+    public CompletableFuture<List<Media>> fuzzySearchMediaAsync(String query, int maxDistance) {
+        return async(() -> fuzzySearchMedia(query, maxDistance));
+    }
+
+    /**
+     * Asynchronous autocomplete suggestions.
+     */
+    public CompletableFuture<List<String>> suggestMediaAsync(String prefix, int limit) {
+        return async(() -> suggestMedia(prefix, limit));
+    }
+
+    /**
+     * Asynchronously gets all media.
+     */
+    public CompletableFuture<List<Media>> getAllMediaAsync() {
+        return async(this::getAllMedia);
+    }
+
+    /**
+     * Asynchronously gets available media.
+     */
+    public CompletableFuture<List<Media>> getAvailableMediaAsync() {
+        return async(this::getAvailableMedia);
+    }
+
+    /**
+     * Asynchronously gets media by type.
+     */
+    public CompletableFuture<List<Media>> getMediaByTypeAsync(String mediaType) {
+        return async(() -> getMediaByType(mediaType));
+    }
+
+    /**
+     * Asynchronously gets the top k media.
+     */
+    public CompletableFuture<List<Media>> getTopMediaAsync(Predicate<Media> filter,
+                                                           Comparator<? super Media> comparator, int k) {
+        return async(() -> getTopMedia(filter, comparator, k));
+    }
+
+    /**
+     * Asynchronously gets recent acquisitions.
+     */
+    public CompletableFuture<List<Media>> getRecentAcquisitionsAsync(int days, int limit) {
+        return async(() -> getRecentAcquisitions(days, limit));
+    }
+
+    /**
+     * Asynchronously updates media availability.
+     */
+    public CompletableFuture<Boolean> updateMediaAvailabilityAsync(String mediaId, boolean available) {
+        return async(() -> updateMediaAvailability(mediaId, available));
+    }
+
+    /**
+     * Asynchronously deletes media by ID.
+     */
+    public CompletableFuture<Boolean> deleteMediaAsync(String mediaId) {
+        return async(() -> deleteMedia(mediaId));
+    }
+
+    /**
+     * Asynchronously gets media statistics.
+     */
+    public CompletableFuture<Map<String, Integer>> getMediaStatisticsAsync() {
+        return async(this::getMediaStatistics);
+    }
+
+    /**
+     * Asynchronously gets availability statistics.
+     */
+    public CompletableFuture<Map<String, Integer>> getAvailabilityStatisticsAsync() {
+        return async(this::getAvailabilityStatistics);
+    }
+
+    /**
+     * Asynchronously gets author statistics.
+     */
+    public CompletableFuture<Map<String, Integer>> getAuthorStatisticsAsync(Boolean available) {
+        return async(() -> getAuthorStatistics(available));
+    }
+
+    /**
+     * Asynchronously gets repository statistics.
+     */
+    public CompletableFuture<MediaRepository.RepositoryStats> getRepositoryStatsAsync() {
+        return async(this::getRepositoryStats);
+    }
+
     /**
      * Shuts down the service and cleanup resources.
      */
     public void shutdown() {
         executorService.shutdown();
+        synchronized (this) {
+            if (recoveryManager != null) {
+                recoveryManager.close();
+                recoveryManager = null;
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> operation) {
+        return CompletableFuture.supplyAsync(operation, executorService);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,322 @@
+package it.epicode.library.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Streaming RFC 4180 parser over UTF-8 bytes.
+ *
+ * Fields are separated by commas and records by CRLF, LF or CR. Quoted fields may
+ * contain separators, line breaks and doubled quotes. Blank lines are skipped, and
+ * a quote inside an unquoted field is kept as a literal character.
+ *
+ * Rows are handed to a callback as a reused Row that only records where each field
+ * starts and ends in the input; a String is decoded when get() asks for it. Files
+ * are mapped one window at a time, so memory use depends on the longest record,
+ * not on the file size.
+ *
+ * Malformed input (an unterminated quoted field, or text after a closing quote)
+ * throws IllegalArgumentException.
+ */
+public final class CsvParser {
+
+    public static final int DEFAULT_WINDOW_BYTES = 64 * 1024 * 1024;
+
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    // Marks a record that continues past the end of the current window
+    private static final int INCOMPLETE = -1;
+
+    private CsvParser() {
+    }
+
+    /**
+     * One record, valid only during the callback it is passed to.
+     */
+    public static final class Row {
+        private ByteBuffer source;
+        private long recordNumber;
+        private int size;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        // Quoted fields with doubled quotes are unescaped into scratch
+        private boolean[] inScratch = new boolean[16];
+        private byte[] scratch = new byte[256];
+        private int scratchLength;
+        private byte[] decodeBuffer = new byte[256];
+
+        private Row() {
+        }
+
+        /**
+         * Gets the 1-based number of this record, counting non-blank records only.
+         */
+        public long getRecordNumber() {
+            return recordNumber;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Gets the length in bytes of a field, without decoding it.
+         */
+        public int length(int index) {
+            checkIndex(index);
+            return ends[index] - starts[index];
+        }
+
+        /**
+         * Decodes a field into a new String.
+         */
+        public String get(int index) {
+            checkIndex(index);
+            int length = ends[index] - starts[index];
+            if (inScratch[index]) {
+                return new String(scratch, starts[index], length, StandardCharsets.UTF_8);
+            }
+            if (decodeBuffer.length < length) {
+                decodeBuffer = new byte[Math.max(length, decodeBuffer.length * 2)];
+            }
+            source.get(starts[index], decodeBuffer, 0, length);
+            return new String(decodeBuffer, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Decodes every field, e.g. for a header row.
+         */
+        public String[] toArray() {
+            String[] values = new String[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = get(i);
+            }
+            return values;
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Field " + index + " of " + size);
+            }
+        }
+
+        private void reset(ByteBuffer source) {
+            this.source = source;
+            this.size = 0;
+            this.scratchLength = 0;
+        }
+
+        private void add(int start, int end, boolean scratched) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                inScratch = Arrays.copyOf(inScratch, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            inScratch[size] = scratched;
+            size++;
+        }
+
+        private void copyToScratch(ByteBuffer buffer, int from, int to) {
+            int length = to - from;
+            ensureScratch(length);
+            buffer.get(from, scratch, scratchLength, length);
+            scratchLength += length;
+        }
+
+        private void appendQuote() {
+            ensureScratch(1);
+            scratch[scratchLength++] = QUOTE;
+        }
+
+        private void ensureScratch(int extra) {
+            if (scratchLength + extra > scratch.length) {
+                scratch = Arrays.copyOf(scratch, Math.max(scratchLength + extra, scratch.length * 2));
+            }
+        }
+    }
+
+    /**
+     * Parses the bytes between the buffer's position and limit, leaving both
+     * unchanged. Returns the number of records passed to the handler.
+     */
+    public static long parse(ByteBuffer buffer, Consumer<Row> handler) {
+        Objects.requireNonNull(handler, "Handler cannot be null");
+        Row row = new Row();
+        int start = skipByteOrderMark(buffer, buffer.position(), buffer.limit());
+        parseWindow(buffer, start, buffer.limit(), true, row, handler);
+        return row.recordNumber;
+    }
+
+    /**
+     * Parses a UTF-8 file through read-only mapped windows of the default size.
+     * Returns the number of records passed to the handler.
+     */
+    public static long parse(Path file, Consumer<Row> handler) throws IOException {
+        return parse(file, DEFAULT_WINDOW_BYTES, handler);
+    }
+
+    /**
+     * Parses a UTF-8 file through read-only mapped windows. A record longer than the
+     * window makes the window grow until the record fits.
+     */
+    public static long parse(Path file, int windowBytes, Consumer<Row> handler) throws IOException {
+        Objects.requireNonNull(handler, "Handler cannot be null");
+        if (windowBytes < 16) {
+            throw new IllegalArgumentException("Window must be at least 16 bytes");
+        }
+        Row row = new Row();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long offset = 0;
+            int window = windowBytes;
+            while (offset < size) {
+                int length = (int) Math.min(window, size - offset);
+                boolean last = offset + length == size;
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                int start = offset == 0 ? skipByteOrderMark(mapped, 0, length) : 0;
+
+                int consumed = parseWindow(mapped, start, length, last, row, handler);
+                if (consumed == 0) {
+                    // Not even one whole record fits; map a larger window at the same offset
+                    if (window == Integer.MAX_VALUE) {
+                        throw new IOException("CSV record larger than 2 GB in " + file);
+                    }
+                    window = (int) Math.min(Integer.MAX_VALUE, (long) window * 2);
+                } else {
+                    offset += consumed;
+                }
+            }
+        }
+        return row.recordNumber;
+    }
+
+    /**
+     * Parses whole records in [from, end). Returns the index where the first
+     * incomplete record starts, or end once everything was consumed.
+     */
+    private static int parseWindow(ByteBuffer buffer, int from, int end, boolean last,
+                                   Row row, Consumer<Row> handler) {
+        int position = from;
+        while (position < end) {
+            byte b = buffer.get(position);
+            if (b == CR || b == LF) {
+                position++;
+                continue;
+            }
+            row.reset(buffer);
+            int next = parseRecord(buffer, position, end, last, row);
+            if (next == INCOMPLETE) {
+                return position;
+            }
+            row.recordNumber++;
+            handler.accept(row);
+            position = next;
+        }
+        return end;
+    }
+
+    /**
+     * Parses one record starting at a non-blank position. Returns the index after
+     * its line break, or INCOMPLETE if the window ends first and more input follows.
+     */
+    private static int parseRecord(ByteBuffer buffer, int position, int end, boolean last, Row row) {
+        while (true) {
+            if (position == end) {
+                // Trailing separator right before end of input: one last empty field
+                if (!last) return INCOMPLETE;
+                row.add(position, position, false);
+                return end;
+            }
+
+            int fieldEnd;
+            if (buffer.get(position) == QUOTE) {
+                int segmentStart = position + 1;
+                int scan = segmentStart;
+                int scratchStart = row.scratchLength;
+                boolean escaped = false;
+                while (true) {
+                    if (scan == end) {
+                        if (!last) return INCOMPLETE;
+                        throw new IllegalArgumentException(
+                                "Unterminated quoted field in record " + (row.recordNumber + 1));
+                    }
+                    if (buffer.get(scan) != QUOTE) {
+                        scan++;
+                        continue;
+                    }
+                    if (scan + 1 == end && !last) return INCOMPLETE;
+                    if (scan + 1 < end && buffer.get(scan + 1) == QUOTE) {
+                        // Doubled quote: keep one, continue after the pair
+                        row.copyToScratch(buffer, segmentStart, scan);
+                        row.appendQuote();
+                        escaped = true;
+                        scan += 2;
+                        segmentStart = scan;
+                        continue;
+                    }
+                    break;
+                }
+                if (escaped) {
+                    row.copyToScratch(buffer, segmentStart, scan);
+                    row.add(scratchStart, row.scratchLength, true);
+                } else {
+                    row.add(position + 1, scan, false);
+                }
+                fieldEnd = scan + 1;
+                if (fieldEnd < end) {
+                    byte after = buffer.get(fieldEnd);
+                    if (after != COMMA && after != CR && after != LF) {
+                        throw new IllegalArgumentException(
+                                "Unexpected character after closing quote in record " + (row.recordNumber + 1));
+                    }
+                }
+            } else {
+                fieldEnd = position;
+                while (fieldEnd < end) {
+                    byte b = buffer.get(fieldEnd);
+                    if (b == COMMA || b == CR || b == LF) break;
+                    fieldEnd++;
+                }
+                if (fieldEnd == end && !last) return INCOMPLETE;
+                row.add(position, fieldEnd, false);
+            }
+
+            if (fieldEnd == end) {
+                if (!last) return INCOMPLETE;
+                return end;
+            }
+            byte separator = buffer.get(fieldEnd);
+            if (separator == COMMA) {
+                position = fieldEnd + 1;
+                continue;
+            }
+            if (separator == CR) {
+                if (fieldEnd + 1 == end && !last) return INCOMPLETE;
+                if (fieldEnd + 1 < end && buffer.get(fieldEnd + 1) == LF) {
+                    return fieldEnd + 2;
+                }
+            }
+            return fieldEnd + 1;
+        }
+    }
+
+    private static int skipByteOrderMark(ByteBuffer buffer, int from, int end) {
+        if (end - from >= 3 && buffer.get(from) == (byte) 0xEF && buffer.get(from + 1) == (byte) 0xBB
+                && buffer.get(from + 2) == (byte) 0xBF) {
+            return from + 3;
+        }
+        return from;
+    }
+}
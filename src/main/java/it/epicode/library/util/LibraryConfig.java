@@ -0,0 +1,87 @@
+package it.epicode.library.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-only access to the library.properties bundled on the classpath.
+ * A JVM system property with the same key overrides the bundled value.
+ */
+public class LibraryConfig {
+
+    private static final Logger logger = Logger.getLogger(LibraryConfig.class.getName());
+
+    private static final String RESOURCE = "/library.properties";
+
+    // Well-known keys
+    public static final String REPOSITORY_CACHE_SIZE = "repository.cacheSize";
+    public static final String REPOSITORY_COLUMN_STORE = "repository.columnStore";
+    public static final String SEARCH_MAX_RESULTS = "search.maxResults";
+    public static final String THREAD_POOL_SIZE = "concurrent.threadPoolSize";
+    public static final String EXECUTOR_MODE = "concurrent.executor";
+    public static final String WAL_DURABILITY = "wal.durability";
+    public static final String WAL_FLUSH_INTERVAL_MILLIS = "wal.flushIntervalMillis";
+
+    private static final Properties properties = load();
+
+    /**
+     * Gets a string setting, or the default if it is not set.
+     */
+    public static String get(String key, String defaultValue) {
+        String override = System.getProperty(key);
+        return override != null ? override : properties.getProperty(key, defaultValue);
+    }
+
+    /**
+     * Gets a positive int setting, or the default if it is missing or invalid.
+     */
+    public static int getPositiveInt(String key, int defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the default
+        }
+        logger.log(Level.WARNING, "Invalid value for {0}: {1}, using {2}", new Object[]{key, value, defaultValue});
+        return defaultValue;
+    }
+
+    /**
+     * Gets a boolean setting, or the default if it is missing or not true/false.
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        String trimmed = value.trim();
+        if (trimmed.equalsIgnoreCase("true") || trimmed.equalsIgnoreCase("false")) {
+            return Boolean.parseBoolean(trimmed);
+        }
+        logger.log(Level.WARNING, "Invalid value for {0}: {1}, using {2}", new Object[]{key, value, defaultValue});
+        return defaultValue;
+    }
+
+    private static Properties load() {
+        Properties loaded = new Properties();
+        try (InputStream in = LibraryConfig.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                loaded.load(in);
+            } else {
+                logger.log(Level.WARNING, "{0} not found on the classpath, using defaults", RESOURCE);
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not read " + RESOURCE + ", using defaults", e);
+        }
+        return loaded;
+    }
+}
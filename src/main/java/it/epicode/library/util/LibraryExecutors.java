@@ -0,0 +1,115 @@
+package it.epicode.library.util;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds the executors behind the asynchronous service APIs.
+ * Virtual threads are looked up reflectively, so the code still compiles and runs on
+ * Java 17; there the virtual mode falls back to a platform pool.
+ */
+public final class LibraryExecutors {
+
+    private static final Logger logger = Logger.getLogger(LibraryExecutors.class.getName());
+
+    /**
+     * How asynchronous tasks are scheduled.
+     */
+    public enum Mode {
+        /** One virtual thread per task; blocking tasks don't hold a carrier thread. */
+        VIRTUAL,
+        /** Fixed pool of platform threads sized by concurrent.threadPoolSize. */
+        PLATFORM;
+
+        /**
+         * Parses a mode name ignoring case, or returns the default if it is unknown.
+         */
+        public static Mode parse(String value, Mode defaultMode) {
+            if (value != null) {
+                try {
+                    return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    logger.log(Level.WARNING, "Unknown executor mode {0}, using {1}", new Object[]{value, defaultMode});
+                }
+            }
+            return defaultMode;
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() when the runtime has it, otherwise null
+    private static final Method VIRTUAL_FACTORY = findVirtualFactory();
+
+    private LibraryExecutors() {
+    }
+
+    /**
+     * Whether the running JVM supports virtual threads.
+     */
+    public static boolean virtualThreadsAvailable() {
+        return VIRTUAL_FACTORY != null;
+    }
+
+    /**
+     * Creates the executor configured by concurrent.executor and concurrent.threadPoolSize.
+     */
+    public static ExecutorService fromConfig(String name) {
+        Mode mode = Mode.parse(LibraryConfig.get(LibraryConfig.EXECUTOR_MODE, null), Mode.VIRTUAL);
+        return create(mode, LibraryConfig.getPositiveInt(LibraryConfig.THREAD_POOL_SIZE, 4), name);
+    }
+
+    /**
+     * Creates an executor in the given mode. The pool size only applies to platform
+     * threads, including the fallback when virtual threads are unavailable.
+     */
+    public static ExecutorService create(Mode mode, int poolSize, String name) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        if (mode == Mode.VIRTUAL) {
+            ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+            if (virtual != null) {
+                logger.log(Level.FINE, "{0}: virtual thread per task", name);
+                return virtual;
+            }
+            logger.log(Level.INFO, "{0}: virtual threads unavailable on Java {1}, using {2} platform threads",
+                    new Object[]{name, Runtime.version().feature(), poolSize});
+        }
+        logger.log(Level.FINE, "{0}: fixed pool of {1} platform threads", new Object[]{name, poolSize});
+        return Executors.newFixedThreadPool(poolSize, daemonThreads(name));
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (VIRTUAL_FACTORY == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) VIRTUAL_FACTORY.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.log(Level.WARNING, "Could not create a virtual thread executor", e);
+            return null;
+        }
+    }
+
+    private static Method findVirtualFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package it.epicode.library.util;
+
+import java.util.*;
+import java.util.stream.Collector;
+
+/**
+ * Keeps the k smallest elements seen so far under a comparator.
+ * Backed by a max-heap of at most k elements, so offering n elements costs
+ * O(n log k) time and O(k) memory. Partial results built on separate threads
+ * can be merged, which makes it usable as a parallel stream collector.
+ *
+ * Not thread-safe; each thread accumulates into its own instance.
+ *
+ * @param <T> the element type
+ */
+public class TopK<T> {
+
+    private final Comparator<? super T> comparator;
+    private final int k;
+    // Head is the worst element kept, the first to be evicted
+    private final PriorityQueue<T> heap;
+
+    public TopK(Comparator<? super T> comparator, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        this.comparator = Objects.requireNonNull(comparator, "Comparator cannot be null");
+        this.k = k;
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)), comparator.reversed());
+    }
+
+    /**
+     * Offers an element; returns true if it is currently among the top k.
+     */
+    public boolean offer(T element) {
+        if (heap.size() < k) {
+            heap.add(element);
+            return true;
+        }
+        if (k == 0 || comparator.compare(element, heap.peek()) >= 0) {
+            return false;
+        }
+        heap.poll();
+        heap.add(element);
+        return true;
+    }
+
+    /**
+     * Folds another partial result into this one.
+     */
+    public TopK<T> merge(TopK<T> other) {
+        for (T element : other.heap) {
+            offer(element);
+        }
+        return this;
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    /**
+     * The kept elements in comparator order.
+     */
+    public List<T> toSortedList() {
+        List<T> result = new ArrayList<>(heap);
+        result.sort(comparator);
+        return result;
+    }
+
+    /**
+     * Collects the first k elements in comparator order. Parallel streams build
+     * one bounded heap per fragment and merge them pairwise.
+     */
+    public static <T> Collector<T, ?, List<T>> collector(Comparator<? super T> comparator, int k) {
+        Objects.requireNonNull(comparator, "Comparator cannot be null");
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        return Collector.of(
+                () -> new TopK<T>(comparator, k),
+                TopK::offer,
+                (left, right) -> left.size() >= right.size() ? left.merge(right) : right.merge(left),
+                TopK::toSortedList);
+    }
+}
@@ -0,0 +1,98 @@
+package it.epicode.library.benchmark;
+
+import it.epicode.library.factory.MediaFactory;
+import it.epicode.library.factory.MediaType;
+import it.epicode.library.model.media.Media;
+import it.epicode.library.repository.MediaRepository;
+import it.epicode.library.service.LibraryService;
+import it.epicode.library.util.LibraryExecutors;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Burst latency of the async LibraryService API on the old fixed pool of four
+ * threads versus the configurable executor modes. Each request does a search plus
+ * a simulated blocking call (a remote catalog or disk read), which is where
+ * thread-per-task scheduling pays off; virtual mode falls back to the platform
+ * pool on JVMs without virtual threads.
+ *
+ * Not part of the test suite; run after mvn test-compile with:
+ * java -cp target/classes:target/test-classes
+ *     it.epicode.library.benchmark.AsyncServiceBenchmark [burstSize] [blockMillis] [rounds]
+ */
+public class AsyncServiceBenchmark {
+
+    // Kept strongly reachable so the level survives garbage collection of the logger
+    private static final Logger REPOSITORY_LOGGER = Logger.getLogger(MediaRepository.class.getName());
+
+    public static void main(String[] args) {
+        int burstSize = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int blockMillis = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        REPOSITORY_LOGGER.setLevel(Level.WARNING);
+        System.out.printf("burst=%d, block=%d ms, %d rounds, %d cores, virtual threads %s%n%n",
+                burstSize, blockMillis, rounds, Runtime.getRuntime().availableProcessors(),
+                LibraryExecutors.virtualThreadsAvailable() ? "available" : "unavailable");
+        System.out.printf("%-14s %12s %14s%n", "executor", "best ms", "requests/s");
+
+        Map<String, Supplier<LibraryService>> services = new LinkedHashMap<>();
+        services.put("fixed(4)", () -> new LibraryService(Executors.newFixedThreadPool(4)));
+        services.put("platform", () -> new LibraryService(
+                LibraryExecutors.create(LibraryExecutors.Mode.PLATFORM, 64, "bench-platform")));
+        services.put("virtual", () -> new LibraryService(
+                LibraryExecutors.create(LibraryExecutors.Mode.VIRTUAL, 64, "bench-virtual")));
+
+        for (Map.Entry<String, Supplier<LibraryService>> entry : services.entrySet()) {
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                LibraryService service = entry.getValue().get();
+                try {
+                    populate(service);
+                    best = Math.min(best, burst(service, burstSize, blockMillis));
+                } finally {
+                    service.shutdown();
+                }
+            }
+            System.out.printf("%-14s %12.0f %14.0f%n", entry.getKey(), best / 1e6, burstSize / (best / 1e9));
+        }
+    }
+
+    private static long burst(LibraryService service, int burstSize, int blockMillis) {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(burstSize);
+        long start = System.nanoTime();
+        for (int i = 0; i < burstSize; i++) {
+            String query = "Book " + (i % 100);
+            futures.add(service.findMediaByIdAsync("missing-" + i).thenCombine(
+                    service.searchMediaAsync(query).thenApply(results -> {
+                        block(blockMillis);
+                        return results.size();
+                    }), (found, hits) -> hits));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        return System.nanoTime() - start;
+    }
+
+    private static void populate(LibraryService service) {
+        List<Media> catalog = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            catalog.add(MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                    "title", "Benchmark Book " + i,
+                    "author", "Author " + (i % 100),
+                    "isbn", String.format("978-%010d", i))));
+        }
+        service.loadCatalog(catalog);
+    }
+
+    private static void block(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package it.epicode.library.benchmark;
+
+import it.epicode.library.factory.MediaFactory;
+import it.epicode.library.factory.MediaType;
+import it.epicode.library.model.media.Media;
+import it.epicode.library.repository.AbstractRepository.ConcurrencyMode;
+import it.epicode.library.repository.MediaRepository;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Catalog load time through saveAll versus the parallel bulkLoad path.
+ * Each round loads the same pre-built catalog into a fresh repository.
+ *
+ * Not part of the test suite; run after mvn test-compile with:
+ * java -Xmx4g -cp target/classes:target/test-classes
+ *     it.epicode.library.benchmark.BulkLoadBenchmark [catalogSize] [rounds]
+ */
+public class BulkLoadBenchmark {
+
+    // Kept strongly reachable so the level survives garbage collection of the logger
+    private static final Logger REPOSITORY_LOGGER = Logger.getLogger(MediaRepository.class.getName());
+
+    public static void main(String[] args) {
+        int catalogSize = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        REPOSITORY_LOGGER.setLevel(Level.WARNING);
+        List<Media> catalog = catalog(catalogSize);
+        System.out.printf("catalog=%d, %d rounds, %d cores%n%n", catalogSize, rounds,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-10s %12s %14s%n", "path", "best ms", "items/s");
+
+        for (String path : List.of("saveAll", "bulkLoad")) {
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                MediaRepository repository = new MediaRepository(ConcurrencyMode.GLOBAL_LOCK);
+                long start = System.nanoTime();
+                if (path.equals("saveAll")) {
+                    repository.saveAll(catalog);
+                } else {
+                    repository.bulkLoad(catalog);
+                }
+                best = Math.min(best, System.nanoTime() - start);
+                if (repository.count() != catalogSize) {
+                    throw new IllegalStateException(path + " loaded " + repository.count() + " items");
+                }
+            }
+            System.out.printf("%-10s %12.0f %14.0f%n", path, best / 1e6, catalogSize / (best / 1e9));
+        }
+    }
+
+    private static List<Media> catalog(int size) {
+        List<Media> catalog = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Media media = MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                    "title", "Benchmark Book " + i,
+                    "author", "Author " + (i % 1000),
+                    "isbn", String.format("978-%010d", i)));
+            media.setDescription("Description of benchmark book number " + i);
+            catalog.add(media);
+        }
+        return catalog;
+    }
+}
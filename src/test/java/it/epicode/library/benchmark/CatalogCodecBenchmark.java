@@ -0,0 +1,104 @@
+package it.epicode.library.benchmark;
+
+import it.epicode.library.model.media.*;
+import it.epicode.library.model.structure.Collection;
+import it.epicode.library.model.structure.Library;
+import it.epicode.library.model.structure.Section;
+import it.epicode.library.repository.storage.CatalogCodec;
+import java.io.*;
+
+/**
+ * Encode/decode throughput and document size of the catalog codec versus Java
+ * serialization of the same Library graph.
+ *
+ * Not part of the test suite; run after mvn test-compile with:
+ * java -cp target/classes:target/test-classes
+ *     it.epicode.library.benchmark.CatalogCodecBenchmark [items] [iterations]
+ */
+public class CatalogCodecBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Library library = library(items);
+        System.out.printf("items=%d, iterations=%d%n%n", items, iterations);
+
+        // Warm-up so both paths run compiled code
+        for (int i = 0; i < 3; i++) {
+            CatalogCodec.decodeLibrary(CatalogCodec.encodeLibrary(library));
+            deserialize(serialize(library));
+        }
+
+        byte[] encoded = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            encoded = CatalogCodec.encodeLibrary(library);
+        }
+        long codecEncode = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            CatalogCodec.decodeLibrary(encoded);
+        }
+        long codecDecode = System.nanoTime() - start;
+
+        byte[] serialized = null;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            serialized = serialize(library);
+        }
+        long javaEncode = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            deserialize(serialized);
+        }
+        long javaDecode = System.nanoTime() - start;
+
+        System.out.printf("%-20s %12s %14s %14s%n", "format", "bytes", "encode ms/op", "decode ms/op");
+        print("catalog codec", encoded.length, codecEncode, codecDecode, iterations);
+        print("Java serialization", serialized.length, javaEncode, javaDecode, iterations);
+    }
+
+    private static void print(String format, int bytes, long encodeNanos, long decodeNanos, int iterations) {
+        System.out.printf("%-20s %12d %14.1f %14.1f%n", format, bytes,
+                encodeNanos / 1e6 / iterations, decodeNanos / 1e6 / iterations);
+    }
+
+    private static byte[] serialize(Library library) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(library);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Library deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Library) in.readObject();
+        }
+    }
+
+    private static Library library(int items) {
+        Library library = new Library("Benchmark Library", "Via Benchmark 1", "Synthetic catalog");
+        Section section = null;
+        Collection collection = null;
+        for (int i = 0; i < items; i++) {
+            if (i % 5_000 == 0) {
+                section = library.addSection("Section " + i / 5_000, "Generated section");
+            }
+            if (i % 500 == 0) {
+                collection = section.addCollection("Collection " + i / 500, "Generated collection");
+            }
+            String author = "Author " + (i % 1000);
+            Media media = switch (i % 4) {
+                case 0 -> new Book("Benchmark Book " + i, author, String.format("978-%010d", i));
+                case 1 -> new AudioBook("Benchmark AudioBook " + i, author, "Narrator " + (i % 50), 300 + i % 200);
+                case 2 -> new EBook("Benchmark EBook " + i, author, "EPUB", 1.5 + i % 10);
+                default -> new DVD("Benchmark DVD " + i, author, 90 + i % 60);
+            };
+            media.setDescription("Description of benchmark item number " + i);
+            collection.addMedia(media);
+        }
+        return library;
+    }
+}
@@ -0,0 +1,57 @@
+package it.epicode.library.benchmark;
+
+import it.epicode.library.util.CsvParser;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Throughput of reading a catalog CSV line by line with split(",") versus the
+ * streaming CsvParser, both touching one field per row so the per-field String
+ * cost of split stays visible.
+ *
+ * Not part of the test suite; run after mvn test-compile with:
+ * java -cp target/classes:target/test-classes
+ *     it.epicode.library.benchmark.CsvImportBenchmark [rows]
+ */
+public class CsvImportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        Path file = Files.createTempFile("csv-import-benchmark", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("ID,Type,Title,Author,Identifier,Available,Location,AcquisitionDate");
+            writer.newLine();
+            for (int i = 0; i < rows; i++) {
+                writer.write(String.format("id-%d,BOOK,\"Benchmark Book %d\",\"Author %d\",978-%010d,true,"
+                        + "\"Shelf %d\",2024-01-%02d", i, i, i % 1000, i, i % 50, 1 + i % 28));
+                writer.newLine();
+            }
+        }
+        System.out.printf("rows=%d, file=%.1f MB%n%n", rows, Files.size(file) / 1048576.0);
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            long splitChars = 0;
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                reader.readLine();
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    splitChars += line.split(",")[2].length();
+                }
+            }
+            long splitMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            long[] parsedBytes = {0};
+            CsvParser.parse(file, row -> parsedBytes[0] += row.length(2));
+            long parserMillis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.printf("round %d: readLine+split %5d ms (%d chars), CsvParser %5d ms (%d bytes)%n",
+                    round + 1, splitMillis, splitChars, parserMillis, parsedBytes[0]);
+        }
+        Files.delete(file);
+    }
+}
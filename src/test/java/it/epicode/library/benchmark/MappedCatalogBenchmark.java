@@ -0,0 +1,78 @@
+package it.epicode.library.benchmark;
+
+import it.epicode.library.model.media.Book;
+import it.epicode.library.model.media.Media;
+import it.epicode.library.repository.MediaRepository;
+import it.epicode.library.repository.storage.CheckpointFile;
+import it.epicode.library.repository.storage.MappedCatalog;
+import it.epicode.library.repository.storage.MediaRecordCodec;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Time until the first lookup is answered: decoding a checkpoint into a
+ * MediaRepository versus mapping a catalog snapshot, for growing catalogs.
+ *
+ * Not part of the test suite; run after mvn test-compile with:
+ * java -Xmx2g -cp target/classes:target/test-classes
+ *     it.epicode.library.benchmark.MappedCatalogBenchmark [maxCatalogSize]
+ */
+public class MappedCatalogBenchmark {
+
+    // Kept strongly reachable so the level survives garbage collection of the logger
+    private static final Logger REPOSITORY_LOGGER = Logger.getLogger(MediaRepository.class.getName());
+
+    public static void main(String[] args) throws Exception {
+        int maxCatalogSize = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        REPOSITORY_LOGGER.setLevel(Level.WARNING);
+        Path directory = Files.createTempDirectory("mapped-catalog-benchmark");
+        System.out.printf("%10s %18s %18s %14s%n", "catalog", "checkpoint ms", "mapped ms", "lookup us");
+
+        for (int size = maxCatalogSize / 8; size <= maxCatalogSize; size *= 2) {
+            List<Media> catalog = catalog(size);
+            String probe = catalog.get(size / 2).getId();
+            Path checkpoint = directory.resolve("catalog-" + size + ".checkpoint");
+            Path snapshot = directory.resolve("catalog-" + size + ".snapshot");
+            CheckpointFile.write(checkpoint, MediaRecordCodec.RECORDS, 0, catalog);
+            MappedCatalog.write(snapshot, MediaRecordCodec.RECORDS, catalog);
+            catalog = null;
+            System.gc();
+
+            long start = System.nanoTime();
+            MediaRepository repository = new MediaRepository();
+            repository.bulkLoad(CheckpointFile.read(checkpoint, MediaRecordCodec.RECORDS).getEntities());
+            repository.findById(probe).orElseThrow();
+            long checkpointNanos = System.nanoTime() - start;
+            repository.deleteAll();
+
+            start = System.nanoTime();
+            MappedCatalog<Media> mapped = MappedCatalog.open(snapshot, MediaRecordCodec.RECORDS);
+            mapped.findById(probe).orElseThrow();
+            long mappedNanos = System.nanoTime() - start;
+
+            int lookups = 100_000;
+            start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                mapped.findById(probe);
+            }
+            double lookupMicros = (System.nanoTime() - start) / 1_000.0 / lookups;
+
+            System.out.printf("%10d %18.1f %18.1f %14.2f%n", size, checkpointNanos / 1e6, mappedNanos / 1e6,
+                    lookupMicros);
+        }
+    }
+
+    private static List<Media> catalog(int size) {
+        List<Media> catalog = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Book book = new Book("Benchmark Book " + i, "Author " + (i % 1000), String.format("978-%010d", i));
+            book.setDescription("Description of benchmark book number " + i);
+            catalog.add(book);
+        }
+        return catalog;
+    }
+}
@@ -0,0 +1,98 @@
+package it.epicode.library.benchmark;
+
+import it.epicode.library.factory.MediaFactory;
+import it.epicode.library.factory.MediaType;
+import it.epicode.library.model.media.Media;
+import it.epicode.library.repository.MediaRepository;
+import it.epicode.library.repository.storage.MediaRecordCodec;
+import it.epicode.library.repository.storage.RecoveryManager;
+import it.epicode.library.repository.storage.RecoveryManager.RecoveryReport;
+import it.epicode.library.repository.storage.WriteAheadLog.Durability;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Time-to-ready of a restart: the ObjectInputStream snapshot followed by re-saving
+ * every entity, versus a checkpoint plus log tail recovered through RecoveryManager.
+ *
+ * Not part of the test suite; run after mvn test-compile with:
+ * java -Xmx4g -cp target/classes:target/test-classes
+ *     it.epicode.library.benchmark.RecoveryBenchmark [catalogSize] [tailSize]
+ */
+public class RecoveryBenchmark {
+
+    // Kept strongly reachable so the levels survive garbage collection of the loggers
+    private static final Logger REPOSITORY_LOGGER = Logger.getLogger(MediaRepository.class.getName());
+    private static final Logger RECOVERY_LOGGER = Logger.getLogger(RecoveryManager.class.getName());
+
+    public static void main(String[] args) throws Exception {
+        int catalogSize = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int tailSize = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        REPOSITORY_LOGGER.setLevel(Level.WARNING);
+        RECOVERY_LOGGER.setLevel(Level.WARNING);
+        Path directory = Files.createTempDirectory("recovery-benchmark");
+        System.out.printf("catalog=%d, log tail=%d, %d cores%n%n", catalogSize, tailSize,
+                Runtime.getRuntime().availableProcessors());
+
+        List<Media> catalog = catalog(catalogSize);
+
+        // Old cold start: one serialized object graph, then every entity saved again
+        Path serialized = directory.resolve("library.dat");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(serialized)))) {
+            out.writeObject(new ArrayList<>(catalog));
+        }
+        long start = System.nanoTime();
+        MediaRepository legacy = new MediaRepository();
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(serialized)))) {
+            @SuppressWarnings("unchecked")
+            List<Media> loaded = (List<Media>) in.readObject();
+            legacy.saveAll(loaded);
+        }
+        long legacyMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Checkpoint of the catalog plus a tail of updates in the log
+        MediaRepository live = new MediaRepository();
+        try (RecoveryManager<Media> manager = manager(directory)) {
+            manager.recover(live);
+            live.bulkLoad(catalog);
+            manager.checkpoint();
+            for (int i = 0; i < tailSize; i++) {
+                Media media = catalog.get(i % catalog.size());
+                media.setAvailable(i % 2 == 0);
+                live.save(media);
+            }
+        }
+
+        RecoveryReport report;
+        try (RecoveryManager<Media> manager = manager(directory)) {
+            report = manager.recover(new MediaRepository());
+        }
+
+        System.out.printf("%-28s %10s%n", "path", "ready ms");
+        System.out.printf("%-28s %10d%n", "ObjectInputStream + saveAll", legacyMillis);
+        System.out.printf("%-28s %10d%n", "checkpoint + log replay", report.getTimeToReadyMillis());
+        System.out.printf("%n%s%n", report);
+    }
+
+    private static RecoveryManager<Media> manager(Path directory) {
+        return new RecoveryManager<>(directory, "catalog", MediaRecordCodec.RECORDS, Durability.BATCHED, 10);
+    }
+
+    private static List<Media> catalog(int size) {
+        List<Media> catalog = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Media media = MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                    "title", "Benchmark Book " + i,
+                    "author", "Author " + (i % 1000),
+                    "isbn", String.format("978-%010d", i)));
+            media.setDescription("Description of benchmark book number " + i);
+            catalog.add(media);
+        }
+        return catalog;
+    }
+}
@@ -0,0 +1,110 @@
+package it.epicode.library.benchmark;
+
+import it.epicode.library.factory.MediaFactory;
+import it.epicode.library.factory.MediaType;
+import it.epicode.library.model.media.Media;
+import it.epicode.library.repository.AbstractRepository.ConcurrencyMode;
+import it.epicode.library.repository.MediaRepository;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Throughput-vs-thread-count benchmark for the repository concurrency modes.
+ * Runs a mixed workload (point reads with a small share of writes) and prints
+ * operations per second and the speedup over a single thread.
+ *
+ * Not part of the test suite; run after mvn test-compile with:
+ * java -cp target/classes:target/test-classes
+ *     it.epicode.library.benchmark.RepositoryConcurrencyBenchmark [catalogSize] [secondsPerPoint] [writePercent]
+ */
+public class RepositoryConcurrencyBenchmark {
+
+    // Per-entity INFO logging would dominate the measurement; kept strongly
+    // reachable so the level survives garbage collection of the logger
+    private static final Logger REPOSITORY_LOGGER = Logger.getLogger(MediaRepository.class.getName());
+
+    public static void main(String[] args) throws InterruptedException {
+        int catalogSize = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int secondsPerPoint = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int writePercent = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        REPOSITORY_LOGGER.setLevel(Level.WARNING);
+
+        int maxThreads = Math.max(16, Runtime.getRuntime().availableProcessors() * 2);
+        System.out.printf("catalog=%d, %ds per point, %d%% writes, %d cores%n",
+                catalogSize, secondsPerPoint, writePercent, Runtime.getRuntime().availableProcessors());
+
+        for (ConcurrencyMode mode : ConcurrencyMode.values()) {
+            MediaRepository repository = new MediaRepository(mode);
+            List<Media> catalog = createCatalog(catalogSize);
+            repository.saveAll(catalog);
+            String[] ids = catalog.stream().map(Media::getId).toArray(String[]::new);
+
+            System.out.printf("%n%s%n%8s %15s %10s%n", mode, "threads", "ops/s", "speedup");
+            double baseline = 0;
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                double opsPerSecond = run(repository, ids, threads, secondsPerPoint, writePercent);
+                if (threads == 1) {
+                    baseline = opsPerSecond;
+                }
+                System.out.printf("%8d %15.0f %9.2fx%n", threads, opsPerSecond, opsPerSecond / baseline);
+            }
+        }
+    }
+
+    private static double run(MediaRepository repository, String[] ids, int threads,
+                              int seconds, int writePercent) throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long startTime = System.nanoTime();
+
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long local = 0;
+                while ((local & 1023) != 0 || System.nanoTime() < deadline) {
+                    String id = ids[random.nextInt(ids.length)];
+                    if (random.nextInt(100) < writePercent) {
+                        repository.findById(id).ifPresent(media -> {
+                            media.setAvailable(!media.isAvailable());
+                            repository.save(media);
+                        });
+                    } else {
+                        repository.findById(id);
+                    }
+                    local++;
+                }
+                operations.add(local);
+            });
+        }
+
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(seconds + 30L, TimeUnit.SECONDS);
+        double elapsed = (System.nanoTime() - startTime) / 1e9;
+        return operations.sum() / elapsed;
+    }
+
+    private static List<Media> createCatalog(int size) {
+        List<Media> catalog = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            catalog.add(MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                    "title", "Benchmark Book " + i,
+                    "author", "Author " + (i % 1000),
+                    "isbn", String.format("978-%010d", i)
+            )));
+        }
+        return catalog;
+    }
+}
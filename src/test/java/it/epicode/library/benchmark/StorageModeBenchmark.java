@@ -0,0 +1,119 @@
+package it.epicode.library.benchmark;
+
+import it.epicode.library.factory.MediaFactory;
+import it.epicode.library.factory.MediaType;
+import it.epicode.library.model.media.Media;
+import it.epicode.library.repository.AbstractRepository.ConcurrencyMode;
+import it.epicode.library.repository.MediaRepository;
+import it.epicode.library.repository.MediaRepository.StorageMode;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Heap footprint and GC cost of the media storage modes.
+ * Loads the same catalog into a HEAP and an OFF_HEAP repository, measures the
+ * retained heap after a full GC, then runs a read-mostly workload and reports
+ * the collections and GC time it caused.
+ *
+ * Not part of the test suite; run after mvn test-compile with:
+ * java -Xmx2g -cp target/classes:target/test-classes
+ *     it.epicode.library.benchmark.StorageModeBenchmark [catalogSize] [seconds]
+ */
+public class StorageModeBenchmark {
+
+    // Per-entity INFO logging would dominate the measurement; kept strongly
+    // reachable so the level survives garbage collection of the logger
+    private static final Logger REPOSITORY_LOGGER = Logger.getLogger(MediaRepository.class.getName());
+
+    public static void main(String[] args) {
+        int catalogSize = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        REPOSITORY_LOGGER.setLevel(Level.WARNING);
+        System.out.printf("catalog=%d, %ds workload%n%n", catalogSize, seconds);
+        System.out.printf("%-9s %14s %12s %10s %12s %12s%n",
+                "storage", "retained MB", "ops/s", "GCs", "GC time ms", "avg pause ms");
+
+        for (StorageMode mode : StorageMode.values()) {
+            long heapBefore = usedHeapAfterGc();
+            MediaRepository repository = new MediaRepository(ConcurrencyMode.GLOBAL_LOCK, false, mode);
+            String[] ids = load(repository, catalogSize);
+            long retained = usedHeapAfterGc() - heapBefore;
+
+            long gcCountBefore = gcCount();
+            long gcTimeBefore = gcTime();
+            double opsPerSecond = run(repository, ids, seconds);
+            long collections = gcCount() - gcCountBefore;
+            long gcMillis = gcTime() - gcTimeBefore;
+
+            System.out.printf("%-9s %14.1f %12.0f %10d %12d %12.2f%n", mode, retained / 1048576.0,
+                    opsPerSecond, collections, gcMillis, collections > 0 ? (double) gcMillis / collections : 0);
+            repository.deleteAll();
+        }
+    }
+
+    /**
+     * Saves the catalog in batches so the benchmark itself never holds every Media at once.
+     */
+    private static String[] load(MediaRepository repository, int size) {
+        String[] ids = new String[size];
+        List<Media> batch = new ArrayList<>(1000);
+        for (int i = 0; i < size; i++) {
+            Media media = MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                    "title", "Benchmark Book " + i,
+                    "author", "Author " + (i % 1000),
+                    "isbn", String.format("978-%010d", i)));
+            media.setDescription("Description of benchmark book number " + i);
+            ids[i] = media.getId();
+            batch.add(media);
+            if (batch.size() == 1000) {
+                repository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        repository.saveAll(batch);
+        return ids;
+    }
+
+    private static double run(MediaRepository repository, String[] ids, int seconds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+        long operations = 0;
+        while ((operations & 1023) != 0 || System.nanoTime() < deadline) {
+            String id = ids[random.nextInt(ids.length)];
+            if (random.nextInt(100) < 5) {
+                repository.findById(id).ifPresent(media -> {
+                    media.setAvailable(!media.isAvailable());
+                    repository.save(media);
+                });
+            } else {
+                repository.findById(id);
+            }
+            operations++;
+        }
+        return operations / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
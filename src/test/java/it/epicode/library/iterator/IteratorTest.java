@@ -267,4 +267,43 @@ class IteratorTest {
             assertEquals(2.0/3.0, stats.getProgress(), 0.01);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should apply a filter chain and restore the unfiltered view")
+    void shouldApplyFilterChain() {
+        // Given
+        FilteredIterator iterator = new FilteredIterator(javaCollection.getAllMedia(), "java collection");
+
+        // When
+        iterator.addFilter(media -> media.getMediaType().equals("BOOK"))
+                .addFilter(media -> media.getTitle().contains("Java"));
+
+        // Then
+        assertEquals(1, iterator.getTotalItems());
+        assertEquals(book1, iterator.next());
+        assertEquals("2 filters applied, 1/3 items match", iterator.getFilterInfo());
+
+        iterator.clearFilters();
+        assertEquals(3, iterator.getTotalItems());
+        assertEquals(0, iterator.getCurrentPosition());
+    }
+
+    @Test
+    @DisplayName("Should keep only the top k media of the hierarchy in sort order")
+    void shouldIterateTopKMedia() {
+        // Given
+        Collection designCollection = programmingSection.addCollection("Design", "Software design");
+        designCollection.addMedia(MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                "title", "Domain-Driven Design", "author", "Eric Evans", "isbn", "978-0321125217")));
+
+        // When
+        MediaIterator iterator = IteratorFactory.createTopKIterator(library,
+                media -> media.getMediaType().equals("BOOK"),
+                CollectionIterator.SortOrder.TITLE_ASC.comparator(), 2);
+
+        // Then
+        assertEquals(2, iterator.getTotalItems());
+        assertEquals(book2, iterator.next());
+        assertEquals("Domain-Driven Design", iterator.next().getTitle());
+    }
+}
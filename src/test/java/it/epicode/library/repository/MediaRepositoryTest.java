@@ -1,12 +1,18 @@
 package it.epicode.library.repository;
 
 import it.epicode.library.model.media.*;
+import it.epicode.library.model.structure.Collection;
 import it.epicode.library.factory.*;
+import it.epicode.library.repository.storage.MediaRecordCodec;
+import it.epicode.library.repository.index.CompletionTrie;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import static org.junit.jupiter.api.Assertions.*;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 class MediaRepositoryTest {
 
@@ -176,4 +182,783 @@ class MediaRepositoryTest {
         // Then
         assertEquals(threadCount * itemsPerThread, repository.count());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should keep indexes consistent under concurrent striped writes")
+    void shouldKeepIndexesConsistentUnderConcurrentStripedWrites() throws InterruptedException {
+        // Given
+        MediaRepository stripedRepository = new MediaRepository(AbstractRepository.ConcurrencyMode.STRIPED);
+        int threadCount = 8;
+        int itemsPerThread = 50;
+
+        // When
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            final int threadIndex = i;
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < itemsPerThread; j++) {
+                    Media media = MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                            "title", "Striped Book " + threadIndex + "-" + j,
+                            "author", "Shared Author",
+                            "isbn", "978-" + threadIndex + String.format("%09d", j)
+                    ));
+                    stripedRepository.save(media);
+                    if (j % 2 == 0) {
+                        media.setAvailable(false);
+                        stripedRepository.save(media);
+                    } else {
+                        stripedRepository.deleteById(media.getId());
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then
+        int expected = threadCount * itemsPerThread / 2;
+        assertEquals(expected, stripedRepository.count());
+        assertEquals(expected, stripedRepository.findByAuthor("shared author").size());
+        assertEquals(expected, stripedRepository.getTypeStatistics().get("BOOK"));
+        assertEquals(expected, stripedRepository.getAvailabilityStatistics().get("unavailable"));
+        assertEquals(0, stripedRepository.getAvailabilityStatistics().get("available"));
+    }
+
+    @Test
+    @DisplayName("Should clear secondary indexes on delete all")
+    void shouldClearSecondaryIndexesOnDeleteAll() {
+        // Given
+        repository.save(testBook);
+        repository.save(testAudioBook);
+
+        // When
+        repository.deleteAll();
+
+        // Then
+        assertEquals(0, repository.count());
+        assertTrue(repository.getTypeStatistics().isEmpty());
+        assertEquals(0, repository.getAvailabilityStatistics().get("available"));
+    }
+
+    @Test
+    @DisplayName("Should answer keyword queries from the full-text index")
+    void shouldAnswerKeywordQueriesFromFullTextIndex() {
+        // Given
+        Media cleanCode = MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                "title", "Clean Code", "author", "Robert C. Martin", "isbn", "978-0132350884"));
+        Media cleanArchitecture = MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                "title", "Clean Architecture", "author", "Robert C. Martin", "isbn", "978-0134494166"));
+        cleanArchitecture.setDescription("Perché l'architettura conta");
+        repository.save(cleanCode);
+        repository.save(cleanArchitecture);
+        repository.save(testBook);
+
+        // When
+        List<Media> allTerms = repository.searchKeywords("clean CODE", true);
+        List<Media> anyTerm = repository.searchKeywords("code architecture", false);
+        List<Media> accentInsensitive = repository.searchKeywords("perche", true);
+
+        // Then
+        assertEquals(List.of(cleanCode), allTerms);
+        assertEquals(2, anyTerm.size());
+        assertEquals(List.of(cleanArchitecture), accentInsensitive);
+    }
+
+    @Test
+    @DisplayName("Should keep substring semantics when search is narrowed by the index")
+    void shouldKeepSubstringSemanticsWhenSearchIsNarrowed() {
+        // Given
+        Media media = MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                "title", "The Name of the Rose", "author", "Umberto Eco", "isbn", "978-0156001311"));
+        repository.save(media);
+        repository.save(testBook);
+
+        // When / Then
+        assertEquals(List.of(media), repository.search("e name of th", null, null));
+        assertEquals(List.of(media), repository.search("ame", null, null));
+        assertTrue(repository.search("name off the", null, null).isEmpty());
+
+        // Index follows in-place updates once the entity is saved again
+        media.setTitle("Foucault's Pendulum");
+        repository.save(media);
+        assertTrue(repository.searchKeywords("rose", true).isEmpty());
+        assertEquals(List.of(media), repository.searchKeywords("pendulum", true));
+    }
+
+    @Test
+    @DisplayName("Should match substrings across word boundaries through the trigram index")
+    void shouldMatchSubstringsThroughTrigramIndex() {
+        // Given
+        Media cleanCode = MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                "title", "Clean Code", "author", "Robert C. Martin", "isbn", "978-0132350884"));
+        repository.save(cleanCode);
+        repository.save(testBook);
+        repository.save(testAudioBook);
+
+        // When / Then
+        assertEquals(List.of(cleanCode), repository.search("an cod", null, null));
+        assertEquals(List.of(cleanCode), repository.search("RT C. MAR", null, null));
+        assertEquals(List.of(cleanCode), repository.search("co", null, null));
+        assertEquals(2, repository.findByTitleContaining("test").size());
+        assertEquals(List.of(cleanCode), repository.findByAuthorContaining("bert c"));
+        assertTrue(repository.findByTitleContaining("code clean").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should suggest completions ranked by popularity")
+    void shouldSuggestCompletionsRankedByPopularity() {
+        // Given
+        repository.save(testBook);
+        repository.save(testAudioBook);
+        Media ecoBook = MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                "title", "Perché leggere i classici", "author", "Italo Calvino", "isbn", "978-8804668237"));
+        repository.save(ecoBook);
+
+        // When / Then
+        assertEquals(List.of("Test Author", "Test AudioBook", "Test Book"), repository.suggest("te", 5));
+        assertEquals(List.of("Test Author"), repository.suggest("TEST A", 1));
+        assertEquals(List.of("Perché leggere i classici"), repository.suggest("perche", 5));
+        assertTrue(repository.suggest("zzz", 5).isEmpty());
+
+        // Prefixes are trimmed like the stored phrases
+        assertEquals(List.of("Test Author"), repository.suggest("  test a", 1));
+
+        // Limits beyond the precomputed completions are rejected, not silently capped
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.suggest("te", CompletionTrie.DEFAULT_TOP_K + 1));
+
+        // Suggestions follow updates and deletes
+        repository.deleteById(testAudioBook.getId());
+        assertEquals(List.of("Test Author", "Test Book"), repository.suggest("test", 5));
+        repository.deleteById(testBook.getId());
+        assertTrue(repository.suggest("test", 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should find misspelled authors and titles with fuzzy search")
+    void shouldFindMisspelledAuthorsAndTitlesWithFuzzySearch() {
+        // Given
+        Media rose = MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                "title", "Il nome della rosa", "author", "Umberto Eco", "isbn", "978-8845278655"));
+        repository.save(rose);
+        repository.save(testBook);
+
+        // When / Then
+        assertEquals(List.of(rose), repository.fuzzySearch("Umberto Ecco", 1));
+        assertEquals(List.of(rose), repository.fuzzySearch("nome dela roza", 2));
+        assertTrue(repository.fuzzySearch("Umberto Ecco", 0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> repository.fuzzySearch("eco", 5));
+
+        // Deleted entries are no longer returned
+        repository.deleteById(rose.getId());
+        assertTrue(repository.fuzzySearch("Umberto Ecco", 1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should combine type, availability and location filters on bitmaps")
+    void shouldCombineFiltersOnBitmaps() {
+        // Given
+        Media dvd = MediaFactory.createMedia(MediaType.DVD, Map.of(
+                "title", "Test Movie", "director", "Test Director", "runtime", 120));
+        dvd.setLocation("/Movies");
+        testAudioBook.setAvailable(false);
+        repository.save(testBook);
+        repository.save(testAudioBook);
+        repository.save(dvd);
+
+        // When / Then
+        assertEquals(List.of(dvd), repository.search(null, "DVD", true));
+        assertEquals(List.of(testAudioBook), repository.search(null, null, false));
+        assertEquals(List.of(dvd), repository.search("test", "DVD", null));
+        assertEquals(1, repository.countMatching("BOOK", true));
+        assertEquals(0, repository.countMatching("AUDIOBOOK", true));
+        assertEquals(Map.of("BOOK", 1, "AUDIOBOOK", 0, "DVD", 1), repository.getAvailableCountByType());
+        assertEquals(List.of(dvd), repository.findByLocation("/Movies"));
+        assertEquals(2, repository.getLocationStatistics().get("General Collection"));
+
+        // Bitmaps follow in-place updates once saved
+        dvd.setAvailable(false);
+        dvd.setLocation("/Archive");
+        repository.save(dvd);
+        assertEquals(2, repository.countMatching(null, false));
+        assertTrue(repository.findByLocation("/Movies").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reuse ordinals of deleted media without leaking stale postings")
+    void shouldRecycleOrdinalsOfDeletedMedia() {
+        // Given
+        repository.save(testBook);
+        repository.deleteById(testBook.getId());
+
+        // When
+        repository.save(testAudioBook);
+
+        // Then
+        assertTrue(repository.findByType("BOOK").isEmpty());
+        assertTrue(repository.findByTitleContaining("Test Book").isEmpty());
+        assertTrue(repository.searchKeywords("book", false).stream().noneMatch(testBook::equals));
+        assertEquals(List.of(testAudioBook), repository.findByType("AUDIOBOOK"));
+        assertEquals(List.of(testAudioBook), repository.findByAuthor("test author"));
+        assertEquals(List.of(testAudioBook), repository.searchKeywords("audiobook", true));
+    }
+
+    @Test
+    @DisplayName("Should answer scans from the column store like the entity map")
+    void shouldAnswerScansFromColumnStore() {
+        // Given
+        MediaRepository columnar = new MediaRepository(AbstractRepository.ConcurrencyMode.GLOBAL_LOCK, true);
+        Media dvd = MediaFactory.createMedia(MediaType.DVD, Map.of(
+                "title", "Test Movie", "director", "Test Director", "runtime", 120));
+        testBook.setAcquisitionDate(LocalDate.of(2020, 5, 1));
+        testAudioBook.setAvailable(false);
+        for (MediaRepository repo : List.of(repository, columnar)) {
+            repo.save(testBook);
+            repo.save(testAudioBook);
+            repo.save(dvd);
+        }
+        java.time.LocalDate today = LocalDate.now();
+
+        // When / Then
+        assertTrue(columnar.isColumnStoreEnabled());
+        for (MediaRepository repo : List.of(repository, columnar)) {
+            assertEquals(Set.of(testAudioBook, dvd), new HashSet<>(repo.findAcquiredBetween(today, today, null)));
+            assertEquals(List.of(dvd), repo.findAcquiredBetween(today, today, true));
+            assertEquals(List.of(testBook), repo.findAcquiredBetween(today.minusYears(10), today.minusDays(1), null));
+            assertEquals(Map.of("Test Author", 1, "Test Director", 1), repo.getAuthorStatistics(true));
+            assertEquals(120, repo.summarize(MediaColumnStore.IntColumn.RUNTIME_MINUTES, null).getMax());
+            assertEquals(300, repo.summarize(MediaColumnStore.IntColumn.DURATION_MINUTES, "AUDIOBOOK").getSum());
+            assertEquals(0, repo.summarize(MediaColumnStore.IntColumn.PAGES, "DVD").getCount());
+        }
+
+        // Deleted rows drop out of the scans
+        columnar.deleteById(dvd.getId());
+        assertTrue(columnar.findAcquiredBetween(today, today, true).isEmpty());
+        assertEquals(0, columnar.summarize(MediaColumnStore.IntColumn.RUNTIME_MINUTES, null).getCount());
+    }
+
+    @Test
+    @DisplayName("Should serve the repository API from off-heap storage")
+    void shouldServeRepositoryFromOffHeapStorage() {
+        // Given
+        MediaRepository offHeap = new MediaRepository(AbstractRepository.ConcurrencyMode.STRIPED, false,
+                MediaRepository.StorageMode.OFF_HEAP);
+        offHeap.saveAll(List.of(testBook, testAudioBook));
+
+        // When
+        Media loaded = offHeap.findById(testBook.getId()).orElseThrow();
+        loaded.setAvailable(false);
+        offHeap.save(loaded);
+
+        // Then
+        assertNotSame(testBook, loaded);
+        assertEquals("Test Book", loaded.getTitle());
+        assertEquals(List.of(testBook), offHeap.findUnavailable());
+        assertEquals(List.of(testAudioBook), offHeap.search("audio", null, true));
+        assertEquals(2, offHeap.findAll().size());
+        assertTrue(offHeap.deleteById(testBook.getId()));
+        assertEquals(List.of(testAudioBook), offHeap.findByAuthor("Test Author"));
+    }
+
+    @Test
+    @DisplayName("Should keep snapshots isolated from later writes")
+    void shouldIsolateSnapshotsFromLaterWrites() {
+        // Given
+        repository.save(testBook);
+        long versionBefore = repository.getModificationVersion();
+        RepositorySnapshot<Media> snapshot = repository.openSnapshot();
+
+        // When
+        repository.save(testAudioBook);
+        repository.deleteById(testBook.getId());
+        RepositorySnapshot<Media> later = repository.openSnapshot();
+
+        // Then
+        assertEquals(versionBefore, snapshot.getVersion());
+        assertEquals(List.of(testBook), snapshot.toList());
+        assertTrue(snapshot.findById(testBook.getId()).isPresent());
+        assertTrue(snapshot.findById(testAudioBook.getId()).isEmpty());
+        assertEquals(List.of(testAudioBook), later.toList());
+        assertEquals(versionBefore + 2, later.getVersion());
+
+        // Closed snapshots release their versions and can't be read
+        snapshot.close();
+        later.close();
+        assertThrows(IllegalStateException.class, snapshot::toList);
+        repository.deleteAll();
+        try (RepositorySnapshot<Media> empty = repository.openSnapshot()) {
+            assertTrue(empty.toList().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Should stream stored media lazily and in parallel")
+    void shouldStreamStoredMedia() {
+        // Given
+        for (int i = 0; i < 500; i++) {
+            repository.save(MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                    "title", "Stream Book " + i, "author", "Author " + (i % 7), "isbn", "978-" + i)));
+        }
+        List<Media> visited = new ArrayList<>();
+
+        // When
+        List<Media> firstMatches = repository.stream()
+                .peek(visited::add)
+                .filter(media -> media.getMainAuthor().equals("Author 3"))
+                .limit(5)
+                .toList();
+
+        // Then
+        assertEquals(5, firstMatches.size());
+        assertTrue(visited.size() < 500, "stream should stop once the limit is reached");
+        assertEquals(500, repository.stream().parallel().count());
+        try (RepositorySnapshot<Media> snapshot = repository.openSnapshot()) {
+            assertEquals(500, snapshot.stream().parallel().map(Media::getId).distinct().count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should page search results by title with continuation tokens")
+    void shouldPageSearchResultsByTitle() {
+        // Given
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Media media = MediaFactory.createMedia(i % 2 == 0 ? MediaType.BOOK : MediaType.EBOOK, Map.of(
+                    "title", "Page Title " + (char) ('a' + i), "author", "Pager",
+                    "isbn", "978-" + i, "format", "PDF", "fileSize", 1.0));
+            repository.save(media);
+            if (i % 2 == 0) {
+                titles.add(media.getTitle());
+            }
+        }
+        repository.save(testBook);
+
+        // When: walk every page of the books matching the query
+        List<String> paged = new ArrayList<>();
+        String token = null;
+        int pages = 0;
+        do {
+            SearchPage<Media> page = repository.searchPage("page title", "BOOK", null, 5, token);
+            page.getItems().forEach(media -> paged.add(media.getTitle()));
+            token = page.getNextPageToken().orElse(null);
+            pages++;
+        } while (token != null);
+
+        // Then
+        assertEquals(titles, paged);
+        assertEquals(3, pages);
+        assertEquals(List.of(testBook), repository.searchPage("test", null, null, 10, null).getItems());
+        assertEquals(5, repository.searchPage(null, null, null, 5, null).getItems().size());
+        assertThrows(IllegalArgumentException.class, () -> repository.searchPage(null, null, null, 5, "not-a-token"));
+        assertThrows(IllegalArgumentException.class, () -> repository.searchPage(null, null, null, 0, null));
+    }
+
+    @Test
+    @DisplayName("Should page and rank media by maintained sort orders")
+    void shouldPageAndRankBySortOrders() {
+        // Given
+        List<Media> catalog = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Media media = MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                    "title", "Title " + ((i * 37) % 60), "author", "Author " + (i % 9), "isbn", "978-" + i));
+            media.setAcquisitionDate(LocalDate.of(2020, 1, 1).plusDays((i * 13) % 60));
+            repository.save(media);
+            catalog.add(media);
+        }
+        repository.deleteById(catalog.remove(10).getId());
+        List<Media> byTitle = catalog.stream()
+                .sorted(Comparator.comparing((Media media) -> media.getTitle().toLowerCase()).thenComparing(Media::getId))
+                .toList();
+        List<Media> byDate = catalog.stream().sorted(Comparator.comparing(Media::getAcquisitionDate)).toList();
+
+        // When / Then
+        assertEquals(byTitle.subList(20, 30), repository.findPage(MediaRepository.SortField.TITLE, true, 20, 10));
+        assertEquals(byDate.get(0), repository.findAtRank(MediaRepository.SortField.ACQUISITION_DATE, true, 0).orElseThrow());
+        assertEquals(byDate.get(byDate.size() - 1),
+                repository.findAtRank(MediaRepository.SortField.ACQUISITION_DATE, false, 0).orElseThrow());
+        List<Media> lastTitles = new ArrayList<>(byTitle.subList(byTitle.size() - 5, byTitle.size()));
+        Collections.reverse(lastTitles);
+        assertEquals(lastTitles, repository.findPage(MediaRepository.SortField.TITLE, false, 0, 5));
+        assertEquals(17, repository.rankOf(MediaRepository.SortField.TITLE, true, byTitle.get(17).getId()));
+        assertEquals(byTitle.size() - 18, repository.rankOf(MediaRepository.SortField.TITLE, false, byTitle.get(17).getId()));
+        assertEquals(-1, repository.rankOf(MediaRepository.SortField.AUTHOR, true, "missing"));
+        assertEquals(59, repository.findPage(MediaRepository.SortField.AUTHOR, true, 0, 100).size());
+        assertTrue(repository.findPage(MediaRepository.SortField.AUTHOR, true, 59, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should return the top k matches like a full sort, sequentially and in parallel")
+    void shouldFindTopKMatches() {
+        // Given
+        Comparator<Media> newestFirst = Comparator.comparing(Media::getAcquisitionDate).reversed()
+                .thenComparing(Media::getId);
+        for (int i = 0; i < 10_000; i++) {
+            MediaType type = i % 3 == 0 ? MediaType.DVD : MediaType.BOOK;
+            Map<String, Object> properties = type == MediaType.DVD
+                    ? Map.of("title", "Film " + i, "director", "Director " + (i % 11), "runtime", 90)
+                    : Map.of("title", "Book " + i, "author", "Author " + (i % 11), "isbn", "978-" + i);
+            Media media = MediaFactory.createMedia(type, properties);
+            media.setAcquisitionDate(LocalDate.of(2020, 1, 1).plusDays(i % 997));
+            media.setAvailable(i % 4 != 0);
+            repository.save(media);
+        }
+        Predicate<Media> availableDvds =
+                media -> media.isAvailable() && media.getMediaType().equals("DVD");
+        List<Media> expected = repository.findAll(availableDvds).stream()
+                .sorted(newestFirst)
+                .limit(10)
+                .toList();
+
+        // When
+        List<Media> top = repository.topK(availableDvds, newestFirst, 10);
+
+        // Then
+        assertEquals(expected, top);
+        assertEquals(10_000, repository.topK(null, newestFirst, 20_000).size());
+        assertTrue(repository.topK(availableDvds, newestFirst, 0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> repository.topK(null, newestFirst, -1));
+    }
+
+    @Test
+    @DisplayName("Should walk acquisition date ranges in date order and serve new arrivals")
+    void shouldWalkAcquisitionDateRanges() {
+        // Given
+        LocalDate today = LocalDate.now();
+        List<Media> media = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Media book = MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                    "title", "Arrival " + i, "author", "Author " + i, "isbn", "978-" + i));
+            book.setAcquisitionDate(today.minusDays(i));
+            book.setAvailable(i % 2 == 0);
+            repository.save(book);
+            media.add(book);
+        }
+
+        // When
+        List<Media> lastWeek = repository.findAcquiredBetween(today.minusDays(6), today, null);
+        List<Media> newest = repository.findRecentAcquisitions(10, 3);
+
+        // Then
+        assertEquals(7, lastWeek.size());
+        assertEquals(media.get(6), lastWeek.get(0));
+        assertEquals(media.get(0), lastWeek.get(6));
+        assertEquals(List.of(media.get(0), media.get(1), media.get(2)), newest);
+        assertEquals(10, repository.findRecentAcquisitions(10, Integer.MAX_VALUE).size());
+        assertEquals(4, repository.findAcquiredBetween(today.minusDays(6), today, true).size());
+
+        // Moving an acquisition date moves the entry in the index
+        media.get(0).setAcquisitionDate(today.minusYears(1));
+        repository.save(media.get(0));
+        assertEquals(media.get(1), repository.findRecentAcquisitions(10, 1).get(0));
+        assertEquals(List.of(media.get(0)),
+                repository.findAcquiredBetween(today.minusYears(1), today.minusYears(1), null));
+    }
+
+    @Test
+    @DisplayName("Should keep statistics counters in step with updates and deletes")
+    void shouldMaintainStatisticsCounters() {
+        // Given
+        repository.save(testBook);
+        repository.save(testAudioBook);
+
+        // When
+        testBook.setAvailable(false);
+        testBook.setLocation("Archive");
+        repository.save(testBook);
+        repository.deleteById(testAudioBook.getId());
+
+        // Then
+        assertEquals(Map.of("BOOK", 1), repository.getTypeStatistics());
+        assertEquals(Map.of("Archive", 1), repository.getLocationStatistics());
+        assertEquals(Map.of("available", 0, "unavailable", 1, "total", 1), repository.getAvailabilityStatistics());
+
+        repository.deleteAll();
+        assertTrue(repository.getLocationStatistics().isEmpty());
+        assertEquals(0, repository.getAvailabilityStatistics().get("unavailable"));
+    }
+
+    @Test
+    @DisplayName("Should plan filters against indexes and match a full scan")
+    void shouldPlanFiltersAgainstIndexes() {
+        // Given
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 200; i++) {
+            Media media = i % 4 == 0
+                    ? MediaFactory.createMedia(MediaType.DVD, Map.of(
+                            "title", "Star Film " + i, "director", "Director " + (i % 5), "runtime", 100))
+                    : MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                            "title", "Plain Book " + i, "author", "Author " + (i % 5), "isbn", "978-" + i));
+            media.setAvailable(i % 3 != 0);
+            media.setLocation(i % 2 == 0 ? "Main Hall" : "Annex");
+            media.setAcquisitionDate(today.minusDays(i));
+            repository.save(media);
+        }
+        MediaQuery query = MediaQuery.and(List.of(
+                MediaQuery.type("DVD"), MediaQuery.available(), MediaQuery.titleContains("star")));
+        Predicate<Media> opaqueOr = media -> media.getTitle().endsWith("0");
+
+        // When
+        QueryPlan plan = repository.plan(query);
+
+        // Then
+        assertFalse(plan.isFullScan());
+        assertTrue(plan.getEstimatedRows() <= 50);
+        assertEquals("title contains 'star'", plan.getResidual().orElseThrow().toString());
+        assertTrue(plan.explain().contains("typeIndex: type = 'DVD' (~50)"), plan.explain());
+        assertTrue(repository.plan(MediaQuery.or(List.of(MediaQuery.available(), opaqueOr))).isFullScan());
+
+        for (MediaQuery q : List.of(query,
+                MediaQuery.and(List.of(MediaQuery.locationContains("hall"), MediaQuery.acquiredAfter(today.minusDays(30)))),
+                MediaQuery.or(List.of(MediaQuery.type("DVD"), MediaQuery.acquiredBefore(today.minusDays(190)))),
+                MediaQuery.authorContains("author 3").and(opaqueOr),
+                MediaQuery.and(List.of()))) {
+            Set<Media> expected = new HashSet<>(repository.findAll(q::test));
+            assertEquals(expected, new HashSet<>(repository.findAll(q)), q.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Should re-test indexed filters on media moved without saving")
+    void shouldRetestIndexedFiltersOnMediaMovedInPlace() {
+        // Given
+        testBook.setLocation("Main Hall");
+        repository.save(testBook);
+        repository.save(testAudioBook);
+        Collection rareBooks = new Collection("Rare Books", "Books kept in the vault");
+
+        // When
+        rareBooks.addMedia(testBook);
+
+        // Then
+        for (MediaQuery q : List.of(MediaQuery.locationContains("hall"),
+                MediaQuery.and(List.of(MediaQuery.type("BOOK"), MediaQuery.locationContains("hall"))))) {
+            assertEquals(repository.findAll(q::test), repository.findAll(q), q.toString());
+        }
+        assertFalse(repository.findAll(MediaQuery.locationContains("hall")).contains(testBook));
+    }
+
+    @Test
+    @DisplayName("Should bulk load a catalog with the same indexes as one-by-one saves")
+    void shouldBulkLoadCatalog() {
+        // Given
+        List<Media> catalog = new ArrayList<>();
+        for (int i = 0; i < 12_000; i++) {
+            Media media = i % 3 == 0
+                    ? MediaFactory.createMedia(MediaType.DVD, Map.of(
+                            "title", "Bulk Film " + i, "director", "Director " + (i % 13), "runtime", 90 + i % 60))
+                    : MediaFactory.createMedia(MediaType.BOOK, Map.of(
+                            "title", "Bulk Book " + i, "author", "Author " + (i % 17), "isbn", "978-" + i));
+            media.setAvailable(i % 5 != 0);
+            media.setAcquisitionDate(LocalDate.now().minusDays(i % 400));
+            catalog.add(media);
+        }
+        repository.save(testBook);
+        MediaRepository reference = new MediaRepository(AbstractRepository.ConcurrencyMode.GLOBAL_LOCK, true);
+        reference.save(testBook);
+        reference.saveAll(catalog);
+        MediaRepository bulk = new MediaRepository(AbstractRepository.ConcurrencyMode.STRIPED, true);
+        bulk.save(testBook);
+        RepositorySnapshot<Media> before = bulk.openSnapshot();
+
+        // When
+        List<Media> loaded = bulk.bulkLoad(catalog);
+
+        // Then
+        assertEquals(12_000, loaded.size());
+        assertEquals(1, before.toList().size(), "snapshot taken before the load sees none of it");
+        before.close();
+        assertEquals(reference.count(), bulk.count());
+        assertEquals(reference.getTypeStatistics(), bulk.getTypeStatistics());
+        assertEquals(reference.getAvailabilityStatistics(), bulk.getAvailabilityStatistics());
+        assertEquals(new HashSet<>(reference.findByAuthor("Author 4")), new HashSet<>(bulk.findByAuthor("Author 4")));
+        assertEquals(new HashSet<>(reference.search("film 11", "DVD", true)), new HashSet<>(bulk.search("film 11", "DVD", true)));
+        assertEquals(reference.suggest("bulk", 5), bulk.suggest("bulk", 5));
+        assertEquals(reference.findPage(MediaRepository.SortField.TITLE, true, 500, 20),
+                bulk.findPage(MediaRepository.SortField.TITLE, true, 500, 20));
+        assertEquals(reference.findRecentAcquisitions(3, 100).size(), bulk.findRecentAcquisitions(3, 100).size());
+        assertEquals(reference.summarize(MediaColumnStore.IntColumn.RUNTIME_MINUTES, "DVD").getSum(),
+                bulk.summarize(MediaColumnStore.IntColumn.RUNTIME_MINUTES, "DVD").getSum());
+        assertEquals(reference.fuzzySearch("Autor 4", 1).size(), bulk.fuzzySearch("Autor 4", 1).size());
+
+        // Loaded media behave like saved ones afterwards
+        Media first = catalog.get(1);
+        assertTrue(bulk.deleteById(first.getId()));
+        assertFalse(bulk.findByAuthor(first.getMainAuthor()).contains(first));
+    }
+
+    @Test
+    @DisplayName("Should serve repeated searches from the cache until the next write")
+    void shouldCacheSearchResultsPerVersion() {
+        // Given
+        repository.save(testBook);
+        repository.save(testAudioBook);
+        List<Media> first = repository.search("test", null, null);
+
+        // When
+        List<Media> second = repository.search("TEST", null, null);
+        testBook.setAvailable(false);
+        repository.save(testBook);
+        List<Media> afterWrite = repository.search("test", null, true);
+
+        // Then
+        assertEquals(new HashSet<>(first), new HashSet<>(second));
+        assertEquals(List.of(testAudioBook), afterWrite);
+        assertEquals(List.of(testAudioBook), repository.search("test", null, true));
+        QueryResultCache.CacheStats stats = repository.getSearchCacheStats();
+        assertEquals(2, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        second.clear();
+        assertEquals(2, repository.search("test", null, null).size(), "callers get their own copy");
+    }
+
+    @Test
+    @DisplayName("Should never serve a cached search missing a completed striped save")
+    void shouldNotCacheSearchesRacingStripedSaves() throws InterruptedException {
+        // Given
+        MediaRepository striped = new MediaRepository(AbstractRepository.ConcurrencyMode.STRIPED);
+        int saves = 300;
+        AtomicBoolean done = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                striped.search("racer", null, null);
+            }
+        });
+        reader.start();
+
+        // When
+        List<Integer> missing = new ArrayList<>();
+        try {
+            for (int i = 0; i < saves; i++) {
+                striped.save(new Book("Racer " + i, "Race Author", "978-" + i));
+                int found = striped.search("racer", null, null).size();
+                if (found != i + 1) {
+                    missing.add(i);
+                }
+            }
+        } finally {
+            done.set(true);
+            reader.join();
+        }
+
+        // Then
+        assertEquals(List.of(), missing, "saves missing from the search right after they returned");
+        assertEquals(saves, striped.search("racer", null, null).size());
+    }
+
+    @Test
+    @DisplayName("Should not return media renamed away from the words while a search ran")
+    void shouldRecheckWordSearchesRacingStripedSaves() throws InterruptedException {
+        // Given
+        MediaRepository striped = new MediaRepository(AbstractRepository.ConcurrencyMode.STRIPED);
+        Book book = new Book("Alpha Volume", "Writer", "978-1");
+        striped.save(book);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; !done.get(); i++) {
+                Media renamed = MediaRecordCodec.copy(book);
+                renamed.setTitle(i % 2 == 0 ? "Omega Volume" : "Alpha Volume");
+                striped.save(renamed);
+            }
+        });
+        writer.start();
+
+        // When
+        List<String> stale = new ArrayList<>();
+        try {
+            for (int i = 0; i < 20_000; i++) {
+                striped.searchKeywords("alpha", true).stream()
+                        .map(Media::getTitle).filter(title -> !title.startsWith("Alpha")).forEach(stale::add);
+                striped.fuzzySearch("alpah", 1).stream()
+                        .map(Media::getTitle).filter(title -> !title.startsWith("Alpha")).forEach(stale::add);
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+
+        // Then
+        assertEquals(List.of(), stale);
+    }
+
+    @Test
+    @DisplayName("Should not page media from recycled ordinals at a stale acquisition rank")
+    void shouldRecheckDateRanksRacingStripedChurn() throws InterruptedException {
+        // Given
+        MediaRepository striped = new MediaRepository(AbstractRepository.ConcurrencyMode.STRIPED);
+        for (int i = 0; i < 20; i++) {
+            Book book = new Book("Stable " + i, "Author", "978-" + i);
+            book.setAcquisitionDate(LocalDate.of(2000, 1, 1).plusDays(i));
+            striped.save(book);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            // Each delete frees an ordinal the next save takes with the opposite date
+            for (int i = 0; !done.get(); i++) {
+                Book churn = new Book("Churn " + i, "Author", "979-" + i);
+                churn.setAcquisitionDate(i % 2 == 0 ? LocalDate.of(1900, 1, 1) : LocalDate.of(2100, 1, 1));
+                striped.save(churn);
+                striped.deleteById(churn.getId());
+            }
+        });
+        writer.start();
+
+        // When
+        List<String> unordered = new ArrayList<>();
+        try {
+            for (int i = 0; i < 100_000; i++) {
+                List<Media> page = striped.findPage(MediaRepository.SortField.ACQUISITION_DATE, true, 0, 5);
+                for (int j = 1; j < page.size(); j++) {
+                    if (page.get(j).getAcquisitionDate().isBefore(page.get(j - 1).getAcquisitionDate())) {
+                        unordered.add(page.get(j - 1).getTitle() + " before " + page.get(j).getTitle());
+                    }
+                }
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+
+        // Then
+        assertEquals(List.of(), unordered);
+    }
+
+    @Test
+    @DisplayName("Should publish a striped bulk load to snapshots, scans and indexes all at once")
+    void shouldPublishBulkLoadAtomically() throws InterruptedException {
+        // Given
+        MediaRepository striped = new MediaRepository(AbstractRepository.ConcurrencyMode.STRIPED);
+        int size = 20_000;
+        List<Media> catalog = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            catalog.add(new Book("Atomic Book " + i, "Author " + (i % 7), "978-" + i));
+        }
+        Thread loader = new Thread(() -> striped.bulkLoad(catalog));
+
+        // When
+        Set<Integer> observed = new TreeSet<>();
+        List<Long> counts = new ArrayList<>();
+        loader.start();
+        while (loader.isAlive()) {
+            try (RepositorySnapshot<Media> snapshot = striped.openSnapshot()) {
+                observed.add(snapshot.toList().size());
+            }
+            observed.add(striped.findByType("BOOK").size());
+            observed.add(striped.topK(null, Comparator.comparing(Media::getId), size + 1).size());
+            counts.add(striped.count());
+        }
+        loader.join();
+
+        // Then
+        assertTrue(Set.of(0, size).containsAll(observed), "partial loads observed: " + observed);
+        // count reads the live map and may see part of the batch, but never goes back or past it
+        for (int i = 0; i < counts.size(); i++) {
+            assertTrue(counts.get(i) <= size && (i == 0 || counts.get(i) >= counts.get(i - 1)), "counts: " + counts);
+        }
+        assertEquals(size, striped.findAll().size());
+        assertEquals(size, striped.count());
+    }
+}
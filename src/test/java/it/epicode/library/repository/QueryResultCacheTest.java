@@ -0,0 +1,55 @@
+package it.epicode.library.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class QueryResultCacheTest {
+
+    @Test
+    @DisplayName("Should keep popular entries through a scan of one-off queries")
+    void shouldResistScansAndCountEvictions() {
+        // Given
+        QueryResultCache<String, String> cache = new QueryResultCache<>(10);
+        AtomicInteger computations = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            cache.get("popular", () -> 1L, () -> "hot" + computations.incrementAndGet());
+        }
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            String key = "once-" + i;
+            cache.get(key, () -> 1L, () -> key);
+        }
+
+        // Then
+        assertEquals("hot1", cache.get("popular", () -> 1L, () -> "hot" + computations.incrementAndGet()));
+        assertEquals(1, computations.get());
+        QueryResultCache.CacheStats stats = cache.getStats();
+        assertEquals(2, stats.getHits());
+        assertEquals(51, stats.getMisses());
+        assertEquals(41, stats.getEvictions());
+        assertEquals(10, stats.getSize());
+    }
+
+    @Test
+    @DisplayName("Should never serve a result computed at an older version")
+    void shouldMissAfterVersionChange() {
+        // Given
+        QueryResultCache<String, String> cache = new QueryResultCache<>(4);
+        AtomicLong version = new AtomicLong(1);
+        cache.get("query", version::get, () -> "v1");
+        assertEquals("v1", cache.get("query", version::get, () -> "recomputed"));
+
+        // When
+        version.incrementAndGet();
+
+        // Then
+        assertEquals("v2", cache.get("query", version::get, () -> "v2"));
+        assertEquals("v2", cache.get("query", version::get, () -> "recomputed"));
+        assertEquals(2, cache.getStats().getMisses());
+        assertThrows(IllegalArgumentException.class, () -> new QueryResultCache<String, String>(0));
+    }
+}
@@ -0,0 +1,84 @@
+package it.epicode.library.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.StreamSupport;
+
+class VersionChainsTest {
+
+    @Test
+    @DisplayName("Should expose every commit up to a pinned version while writers commit concurrently")
+    void shouldPublishConcurrentCommitsInOrder() throws InterruptedException {
+        // Given
+        VersionChains<String> chains = new VersionChains<>();
+        int writers = 4;
+        int commitsPerWriter = 5_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < commitsPerWriter; i++) {
+                    chains.commit(writer + "-" + i, "value");
+                }
+            }));
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        List<String> mismatches = Collections.synchronizedList(new ArrayList<>());
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                long version = chains.open();
+                try {
+                    // Each commit adds one new id, so version v holds exactly v entities
+                    long seen = StreamSupport.stream(chains.spliterator(version), false).count();
+                    if (seen != version) {
+                        mismatches.add(seen + " at version " + version);
+                    }
+                } finally {
+                    chains.close(version);
+                }
+            }
+        });
+
+        // When
+        reader.start();
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        done.set(true);
+        reader.join();
+
+        // Then
+        assertEquals(List.of(), mismatches);
+        assertEquals(writers * commitsPerWriter, chains.currentVersion());
+    }
+
+    @Test
+    @DisplayName("Should keep versions for open readers and reclaim them once the readers close")
+    void shouldReclaimVersionsWhenReadersClose() {
+        // Given
+        VersionChains<String> chains = new VersionChains<>();
+        long first = chains.commit("a", "a1");
+        chains.commit("b", "b1");
+        long pinned = chains.open();
+
+        // When
+        chains.commit("a", "a2");
+        long latest = chains.commit("a", "a3");
+        chains.commit("b", null);
+
+        // Then
+        assertEquals("a1", chains.get("a", pinned));
+        assertEquals("b1", chains.get("b", pinned));
+        chains.close(pinned);
+        assertNull(chains.get("a", first), "older versions are unlinked once no reader needs them");
+        assertEquals("a3", chains.get("a", latest));
+        assertNull(chains.get("b", pinned));
+        long reopened = chains.open();
+        assertEquals(List.of("a3"), StreamSupport.stream(chains.spliterator(reopened), false).toList());
+        chains.close(reopened);
+    }
+}
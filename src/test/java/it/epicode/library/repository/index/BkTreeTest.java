@@ -0,0 +1,40 @@
+package it.epicode.library.repository.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+
+class BkTreeTest {
+
+    @Test
+    @DisplayName("Should keep a term while any use remains and drop dead terms by rebuilding")
+    void shouldCountUsesAndRebuildUnderChurn() {
+        // Given
+        BkTree tree = new BkTree();
+        tree.add("calvino");
+        tree.add("calvino", 2);
+        tree.add("eco");
+
+        // When
+        tree.remove("calvino");
+        tree.remove("calvino");
+
+        // Then
+        assertEquals(List.of("calvino"), tree.search("calvinno", 1));
+        tree.remove("calvino");
+        assertTrue(tree.search("calvinno", 1).isEmpty());
+
+        // Renaming the same entry over and over leaves one live term each time
+        for (int i = 0; i < 10_000; i++) {
+            tree.add("title" + i);
+            if (i > 0) {
+                tree.remove("title" + (i - 1));
+            }
+        }
+        assertEquals(2, tree.liveSize());
+        assertTrue(tree.size() < 200, "dead terms pile up: " + tree.size());
+        assertEquals(List.of("title9999"), tree.search("title9999", 0));
+        assertEquals(List.of("eco"), tree.search("ecco", 1));
+    }
+}
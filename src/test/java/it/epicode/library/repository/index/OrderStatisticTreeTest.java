@@ -0,0 +1,77 @@
+package it.epicode.library.repository.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+
+class OrderStatisticTreeTest {
+
+    @Test
+    @DisplayName("Should answer rank, select and range like a sorted list")
+    void shouldMatchSortedListUnderRandomUpdates() {
+        // Given
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>(Comparator.naturalOrder());
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(42);
+
+        // When
+        for (int i = 0; i < 5_000; i++) {
+            int key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), tree.remove(key));
+            } else {
+                assertEquals(expected.add(key), tree.add(key));
+            }
+        }
+
+        // Then
+        List<Integer> sorted = new ArrayList<>(expected);
+        assertEquals(sorted.size(), tree.size());
+        for (int rank = 0; rank < sorted.size(); rank += 17) {
+            assertEquals(sorted.get(rank), tree.select(rank));
+            assertEquals(rank, tree.rank(sorted.get(rank)));
+        }
+        assertEquals(sorted.subList(100, 150), tree.range(100, 50));
+        assertEquals(sorted.subList(sorted.size() - 3, sorted.size()), tree.range(sorted.size() - 3, 10));
+        assertTrue(tree.range(sorted.size(), 5).isEmpty());
+        assertEquals(-1, tree.rank(-7));
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.select(sorted.size()));
+    }
+
+    @Test
+    @DisplayName("Should bulk add keys and keep ranks and head counts consistent")
+    void shouldBulkAddKeys() {
+        // Given
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>(Comparator.naturalOrder());
+        for (int i = 0; i < 100; i += 2) {
+            tree.add(i);
+        }
+        List<Integer> batch = new ArrayList<>();
+        for (int i = 199; i >= 0; i -= 3) {
+            batch.add(i);
+            batch.add(i);
+        }
+
+        // When
+        tree.addAll(batch);
+
+        // Then
+        TreeSet<Integer> expected = new TreeSet<>(batch);
+        for (int i = 0; i < 100; i += 2) {
+            expected.add(i);
+        }
+        List<Integer> sorted = new ArrayList<>(expected);
+        assertEquals(sorted.size(), tree.size());
+        assertEquals(sorted, tree.range(0, sorted.size()));
+        for (int rank = 0; rank < sorted.size(); rank++) {
+            assertEquals(rank, tree.rank(sorted.get(rank)));
+        }
+        assertEquals(expected.headSet(77).size(), tree.headCount(77));
+        assertEquals(0, tree.headCount(-1));
+        assertEquals(sorted.size(), tree.headCount(1_000));
+
+        tree.addAll(List.of(500));
+        assertEquals(sorted.size() + 1, tree.size());
+    }
+}
@@ -0,0 +1,86 @@
+package it.epicode.library.repository.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import java.util.stream.IntStream;
+
+class RoaringBitmapTest {
+
+    @Test
+    @DisplayName("Should add, remove and test membership across containers")
+    void shouldAddRemoveAndTestMembership() {
+        // Given
+        RoaringBitmap bitmap = RoaringBitmap.of(1, 5, 70_000, 5);
+
+        // When
+        bitmap.remove(1);
+        bitmap.remove(42);
+
+        // Then
+        assertEquals(2, bitmap.cardinality());
+        assertTrue(bitmap.contains(5));
+        assertTrue(bitmap.contains(70_000));
+        assertFalse(bitmap.contains(1));
+        assertArrayEquals(new int[]{5, 70_000}, bitmap.toArray());
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+    }
+
+    @Test
+    @DisplayName("Should match set semantics for sparse and dense containers")
+    void shouldMatchSetSemanticsForSparseAndDenseContainers() {
+        // Given: evens are dense (bitset containers), multiples of 7 are sparse
+        Random random = new Random(42);
+        Set<Integer> evens = new TreeSet<>();
+        Set<Integer> sevens = new TreeSet<>();
+        RoaringBitmap evenBitmap = new RoaringBitmap();
+        RoaringBitmap sevenBitmap = new RoaringBitmap();
+        IntStream.range(0, 200_000).filter(i -> i % 2 == 0).forEach(i -> {
+            evens.add(i);
+            evenBitmap.add(i);
+        });
+        for (int i = 0; i < 3_000; i++) {
+            int value = random.nextInt(30_000) * 7;
+            sevens.add(value);
+            sevenBitmap.add(value);
+        }
+
+        // When
+        Set<Integer> and = new TreeSet<>(evens);
+        and.retainAll(sevens);
+        Set<Integer> or = new TreeSet<>(evens);
+        or.addAll(sevens);
+        Set<Integer> andNot = new TreeSet<>(evens);
+        andNot.removeAll(sevens);
+
+        // Then
+        assertArrayEquals(toArray(and), evenBitmap.and(sevenBitmap).toArray());
+        assertArrayEquals(toArray(and), sevenBitmap.and(evenBitmap).toArray());
+        assertArrayEquals(toArray(or), evenBitmap.or(sevenBitmap).toArray());
+        assertArrayEquals(toArray(andNot), evenBitmap.andNot(sevenBitmap).toArray());
+        assertEquals(and.size(), evenBitmap.andCardinality(sevenBitmap));
+        assertEquals(evens.size(), evenBitmap.cardinality());
+    }
+
+    @Test
+    @DisplayName("Should convert dense containers back to arrays when they shrink")
+    void shouldConvertDenseContainersBackWhenTheyShrink() {
+        // Given
+        RoaringBitmap bitmap = new RoaringBitmap();
+        IntStream.range(0, 10_000).forEach(bitmap::add);
+        long denseSize = bitmap.getSizeInBytes();
+
+        // When
+        IntStream.range(100, 10_000).forEach(bitmap::remove);
+
+        // Then
+        assertEquals(100, bitmap.cardinality());
+        assertTrue(bitmap.getSizeInBytes() < denseSize);
+        assertArrayEquals(IntStream.range(0, 100).toArray(), bitmap.toArray());
+    }
+
+    private static int[] toArray(Set<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,128 @@
+package it.epicode.library.repository.storage;
+
+import it.epicode.library.model.media.*;
+import it.epicode.library.model.structure.Collection;
+import it.epicode.library.model.structure.Library;
+import it.epicode.library.model.structure.Section;
+import it.epicode.library.model.user.Loan;
+import it.epicode.library.model.user.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+class CatalogCodecTest {
+
+    @Test
+    @DisplayName("Should round-trip a library structure more compactly than Java serialization")
+    void shouldRoundTripLibrary() throws Exception {
+        // Given
+        Library library = new Library("Biblioteca Civica", "Via Roma 1", "Public library");
+        library.setEmail("info@civica.it");
+        library.setEstablishedDate(LocalDateTime.of(1901, 3, 4, 10, 30, 15, 500));
+        Section fiction = library.addSection("Fiction", "Novels");
+        fiction.setResponsibleLibrarian("Anna");
+        Collection classics = fiction.addCollection("Classics", "Italian classics");
+        classics.setSpecialCollection(true);
+        classics.setMaxItems(1000);
+        Book book = new Book("I promessi sposi", "Alessandro Manzoni", "978-8817", "Rizzoli", 720);
+        book.setAcquisitionDate(LocalDate.of(1950, 1, 1));
+        classics.addMedia(book);
+        DVD dvd = new DVD("La dolce vita", "Federico Fellini", 174);
+        dvd.setAcquisitionDate(null);
+        dvd.setAvailable(false);
+        fiction.addMedia(dvd);
+        EBook eBook = new EBook("Se una notte d'inverno", "Italo Calvino", "EPUB", 2.25);
+        eBook.setHasDRM(true);
+        classics.addMedia(eBook);
+        Section audio = library.addSection("Audio", null);
+        audio.addMedia(new AudioBook("Il barone rampante", "Italo Calvino", "Lettore", 480));
+        // Shared between two components
+        audio.addMedia(book);
+        for (int i = 0; i < 200; i++) {
+            classics.addMedia(new Book("Volume " + i, "Alessandro Manzoni", "isbn-" + i));
+        }
+
+        // When
+        byte[] encoded = CatalogCodec.encodeLibrary(library);
+        Library decoded = CatalogCodec.decodeLibrary(encoded);
+
+        // Then
+        assertEquals(library.getId(), decoded.getId());
+        assertEquals("Via Roma 1", decoded.getAddress());
+        assertEquals("Public library", decoded.getDescription());
+        assertEquals(library.getEstablishedDate(), decoded.getEstablishedDate());
+        assertEquals(library.getMediaCount(), decoded.getMediaCount());
+        Section decodedFiction = decoded.findSection("Fiction").orElseThrow();
+        assertEquals(fiction.getId(), decodedFiction.getId());
+        assertEquals("Anna", decodedFiction.getResponsibleLibrarian());
+        Collection decodedClassics = decodedFiction.findCollection("Classics").orElseThrow();
+        assertTrue(decodedClassics.isSpecialCollection());
+        assertEquals(1000, decodedClassics.getMaxItems());
+        assertNull(decoded.findSection("Audio").orElseThrow().getDescription());
+
+        Map<String, Media> byId = new HashMap<>();
+        decoded.getAllMedia().forEach(media -> byId.put(media.getId(), media));
+        for (Media original : library.getAllMedia()) {
+            Media copy = byId.get(original.getId());
+            assertEquals(original.getClass(), copy.getClass());
+            assertEquals(original.toCsvString(), copy.toCsvString());
+            assertEquals(original.getAcquisitionDate(), copy.getAcquisitionDate());
+            assertEquals(original.getLocation(), copy.getLocation());
+            assertEquals(original.isAvailable(), copy.isAvailable());
+        }
+        assertTrue(((EBook) byId.get(eBook.getId())).isHasDRM());
+        assertEquals(720, ((Book) byId.get(book.getId())).getPages());
+        assertSame(decodedClassics.getDirectMedia().get(0),
+                decoded.findSection("Audio").orElseThrow().getDirectMedia().get(1));
+
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(library);
+        }
+        assertTrue(encoded.length * 2 < serialized.size(),
+                encoded.length + " bytes vs " + serialized.size() + " serialized");
+    }
+
+    @Test
+    @DisplayName("Should round-trip users and loans and reject foreign documents")
+    void shouldRoundTripUsersAndLoans() {
+        // Given
+        User user = new User("Maria", "Montessori", "maria@example.com");
+        user.setPhoneNumber("+39 06 000");
+        user.setActive(false);
+        user.setMaxLoans(3);
+        Loan loan = new Loan(user.getId(), UUID.randomUUID().toString(), 14);
+        loan.renewLoan(7);
+        loan.returnMedia();
+
+        // When
+        User decodedUser = CatalogCodec.decodeUsers(CatalogCodec.encodeUsers(List.of(user))).get(0);
+        byte[] loans = CatalogCodec.encodeLoans(List.of(loan));
+        Loan decodedLoan = CatalogCodec.decodeLoans(loans).get(0);
+
+        // Then
+        assertEquals(user.getId(), decodedUser.getId());
+        assertEquals(user.getEmail(), decodedUser.getEmail());
+        assertEquals("+39 06 000", decodedUser.getPhoneNumber());
+        assertEquals(user.getRegistrationDate(), decodedUser.getRegistrationDate());
+        assertFalse(decodedUser.isActive());
+        assertEquals(3, decodedUser.getMaxLoans());
+
+        assertEquals(loan.getId(), decodedLoan.getId());
+        assertEquals(loan.getMediaId(), decodedLoan.getMediaId());
+        assertEquals(loan.getDueDate(), decodedLoan.getDueDate());
+        assertEquals(loan.getReturnDate(), decodedLoan.getReturnDate());
+        assertTrue(decodedLoan.isReturned());
+        assertEquals(1, decodedLoan.getRenewalCount());
+
+        assertThrows(IllegalArgumentException.class, () -> CatalogCodec.decodeUsers(loans));
+        assertThrows(IllegalArgumentException.class, () -> CatalogCodec.decodeLibrary(new byte[]{1, 2, 3, 4, 5}));
+        assertThrows(IllegalArgumentException.class,
+                () -> CatalogCodec.decodeLoans(Arrays.copyOf(loans, loans.length - 3)));
+    }
+}
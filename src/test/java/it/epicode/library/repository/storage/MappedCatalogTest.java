@@ -0,0 +1,82 @@
+package it.epicode.library.repository.storage;
+
+import it.epicode.library.model.media.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+class MappedCatalogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should serve lookups, scans and top-k straight from the mapped snapshot")
+    void shouldServeReadsFromMappedSnapshot() throws IOException {
+        // Given
+        List<Media> media = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            media.add(new Book("Mapped Book " + i, "Author " + (i % 10), "978-" + i));
+        }
+        DVD dvd = new DVD("Il Postino", "Michael Radford", 108);
+        dvd.setAvailable(false);
+        media.add(dvd);
+        media.add(new AudioBook("Lessico famigliare", "Natalia Ginzburg", "Lettrice", 420));
+        media.add(new EBook("Il sentiero dei nidi di ragno", "Italo Calvino", "PDF", 3.5));
+        Path file = directory.resolve("catalog.snapshot");
+
+        // When
+        int written = MappedCatalog.write(file, MediaRecordCodec.RECORDS, media);
+        MappedCatalog<Media> catalog = MappedCatalog.open(file, MediaRecordCodec.RECORDS);
+
+        // Then
+        assertEquals(103, written);
+        assertEquals(103, catalog.count());
+        assertEquals(Files.size(file), catalog.getSizeBytes());
+        for (Media original : media) {
+            Media mapped = catalog.findById(original.getId()).orElseThrow();
+            assertEquals(original.getClass(), mapped.getClass());
+            assertEquals(original.toCsvString(), mapped.toCsvString());
+            assertNotSame(mapped, catalog.findById(original.getId()).orElseThrow());
+        }
+        assertTrue(catalog.findById("missing").isEmpty());
+        assertFalse(catalog.existsById(null));
+        assertTrue(catalog.existsById(dvd.getId()));
+
+        List<String> ids = catalog.stream().map(Media::getId).toList();
+        List<String> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted);
+        assertEquals(sorted, ids);
+        assertEquals(new HashSet<>(ids), catalog.getAllIds());
+        assertEquals(1, catalog.findAll(m -> !m.isAvailable()).size());
+        assertEquals(List.of("Il Postino", "Il sentiero dei nidi di ragno"),
+                catalog.topK(null, Comparator.comparing(Media::getTitle), 2).stream().map(Media::getTitle).toList());
+        assertEquals(2, catalog.findByIds(List.of(dvd.getId(), "missing", media.get(0).getId())).size());
+    }
+
+    @Test
+    @DisplayName("Should reject writes, duplicate ids and foreign files")
+    void shouldRejectWritesAndInvalidFiles() throws IOException {
+        // Given
+        Book book = new Book("Unico", "Autore", "978-1");
+        Path file = directory.resolve("catalog.snapshot");
+        MappedCatalog.write(file, MediaRecordCodec.RECORDS, List.of(book));
+        MappedCatalog<Media> catalog = MappedCatalog.open(file, MediaRecordCodec.RECORDS);
+        Path foreign = Files.write(directory.resolve("foreign.snapshot"), new byte[64]);
+
+        // When / Then
+        assertThrows(UnsupportedOperationException.class, () -> catalog.save(book));
+        assertThrows(UnsupportedOperationException.class, () -> catalog.deleteById(book.getId()));
+        assertThrows(UnsupportedOperationException.class, catalog::deleteAll);
+        assertThrows(IllegalArgumentException.class,
+                () -> MappedCatalog.write(file, MediaRecordCodec.RECORDS, List.of(book, book)));
+        assertEquals(1, MappedCatalog.open(file, MediaRecordCodec.RECORDS).count());
+        assertFalse(Files.exists(directory.resolve("catalog.snapshot.tmp")));
+        assertThrows(IOException.class, () -> MappedCatalog.open(foreign, MediaRecordCodec.RECORDS));
+    }
+}
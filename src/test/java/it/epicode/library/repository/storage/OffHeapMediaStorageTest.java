@@ -0,0 +1,74 @@
+package it.epicode.library.repository.storage;
+
+import it.epicode.library.model.media.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.*;
+
+class OffHeapMediaStorageTest {
+
+    @Test
+    @DisplayName("Should round-trip every media type through the record codec")
+    void shouldRoundTripEveryMediaType() {
+        // Given
+        Book book = new Book("Il nome della rosa", "Umberto Eco", "978-8845292613", "Bompiani", 503);
+        book.setGenre("Giallo");
+        book.setAcquisitionDate(null);
+        AudioBook audioBook = new AudioBook("Dune", "Frank Herbert", "Scott Brick", 1260);
+        audioBook.setFileSizeMB(512.5);
+        EBook eBook = new EBook("Perché è così", "Anonimo", "EPUB", 1.5);
+        eBook.setHasDRM(true);
+        eBook.incrementDownloadCount();
+        DVD dvd = new DVD("Blade Runner", "Ridley Scott", 117);
+        dvd.setAvailable(false);
+        dvd.setLocation(null);
+        dvd.setAcquisitionDate(LocalDate.of(1982, 6, 25));
+
+        for (Media media : List.of(book, audioBook, eBook, dvd)) {
+            // When
+            Media decoded = MediaRecordCodec.decode(ByteBuffer.wrap(MediaRecordCodec.encode(media)));
+
+            // Then
+            assertEquals(media, decoded);
+            assertEquals(media.getClass(), decoded.getClass());
+            assertEquals(media.toCsvString(), decoded.toCsvString());
+            assertEquals(media.getAcquisitionDate(), decoded.getAcquisitionDate());
+            assertEquals(media.getLocation(), decoded.getLocation());
+            assertEquals(media.getDescription(), decoded.getDescription());
+        }
+        EBook decodedEBook = (EBook) MediaRecordCodec.decode(ByteBuffer.wrap(MediaRecordCodec.encode(eBook)));
+        assertTrue(decodedEBook.isHasDRM());
+        assertEquals(1, decodedEBook.getDownloadCount());
+        assertEquals(503, ((Book) MediaRecordCodec.decode(ByteBuffer.wrap(MediaRecordCodec.encode(book)))).getPages());
+    }
+
+    @Test
+    @DisplayName("Should decode fresh copies and compact dead records")
+    void shouldDecodeCopiesAndCompact() {
+        // Given
+        OffHeapMediaStorage storage = new OffHeapMediaStorage(1024);
+        Book book = new Book("Original", "Author", "978-0000000000");
+        storage.put(book.getId(), book);
+
+        // When
+        Media copy = storage.get(book.getId());
+        copy.setTitle("Changed but not stored");
+        for (int i = 0; i < 200; i++) {
+            book.setTitle("Revision " + i);
+            storage.put(book.getId(), book);
+        }
+
+        // Then
+        assertNotSame(book, copy);
+        assertEquals("Revision 199", storage.get(book.getId()).getTitle());
+        assertEquals(1, storage.size());
+        assertTrue(storage.getReservedBytes() <= 2048, "dead revisions should have been compacted");
+        assertEquals(List.of("Revision 199"), storage.values().stream().map(Media::getTitle).toList());
+        assertEquals("Revision 199", storage.remove(book.getId()).getTitle());
+        assertNull(storage.get(book.getId()));
+        assertEquals(0, storage.getLiveBytes());
+    }
+}
@@ -0,0 +1,104 @@
+package it.epicode.library.repository.storage;
+
+import it.epicode.library.model.media.Book;
+import it.epicode.library.model.media.DVD;
+import it.epicode.library.model.media.Media;
+import it.epicode.library.repository.MediaRepository;
+import it.epicode.library.repository.storage.RecoveryManager.RecoveryReport;
+import it.epicode.library.repository.storage.WriteAheadLog.Durability;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+class RecoveryManagerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should restore the checkpoint plus the log tail after a crash")
+    void shouldRecoverCheckpointAndLogTail() throws Exception {
+        // Given
+        MediaRepository before = new MediaRepository();
+        RecoveryManager<Media> first = new RecoveryManager<>(directory, "catalog", MediaRecordCodec.RECORDS,
+                Durability.SYNC, 10);
+        RecoveryReport empty = first.recover(before);
+        List<Media> books = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            books.add(new Book("Recovered Book " + i, "Author " + (i % 5), "978-" + i));
+        }
+        before.saveAll(books);
+        long checkpointLsn = first.checkpoint();
+        DVD dvd = new DVD("Nuovo Cinema Paradiso", "Giuseppe Tornatore", 155);
+        before.save(dvd);
+        before.deleteById(books.get(0).getId());
+        books.get(1).setAvailable(false);
+        before.save(books.get(1));
+        // No close: the process dies here, with every acknowledged write already synced
+
+        // When
+        MediaRepository after = new MediaRepository();
+        RecoveryReport report;
+        Media restarted;
+        try (RecoveryManager<Media> second = new RecoveryManager<>(directory, "catalog", MediaRecordCodec.RECORDS,
+                Durability.SYNC, 10)) {
+            report = second.recover(after);
+            restarted = after.save(new Book("After Restart", "Author 9", "978-999"));
+        } finally {
+            first.close();
+        }
+
+        // Then
+        assertEquals(0, empty.getEntityCount());
+        assertEquals(50, checkpointLsn);
+        assertEquals(50, report.getCheckpointEntities());
+        assertEquals(50, report.getCheckpointLsn());
+        assertEquals(3, report.getReplayedEntries());
+        assertEquals(53, report.getLastLsn());
+        assertEquals(before.count(), report.getEntityCount());
+        Set<String> expectedIds = new HashSet<>(before.getAllIds());
+        expectedIds.add(restarted.getId());
+        assertEquals(expectedIds, after.getAllIds());
+        assertTrue(after.findById(books.get(0).getId()).isEmpty());
+        assertFalse(after.findById(books.get(1).getId()).orElseThrow().isAvailable());
+        assertEquals(1, after.findByType("DVD").size());
+        assertEquals(10, after.search("author 1", null, null).size());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("catalog-00000000000000000051.wal", "catalog.checkpoint"),
+                    files.map(path -> path.getFileName().toString()).sorted().toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Should read a checkpoint the same through windows of any size")
+    void shouldReadCheckpointThroughWindows() throws Exception {
+        // Given
+        Path checkpoint = directory.resolve("windowed.checkpoint");
+        List<Media> catalog = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            catalog.add(i % 7 == 0
+                    ? new DVD("Windowed Film " + i, "Director " + i, 90 + i)
+                    : new Book("Windowed Book " + i + " " + "x".repeat(i), "Author " + (i % 5), "978-" + i));
+        }
+        CheckpointFile.write(checkpoint, MediaRecordCodec.RECORDS, 42, catalog);
+
+        // When
+        CheckpointFile.Image<Media> whole = CheckpointFile.read(checkpoint, MediaRecordCodec.RECORDS);
+        CheckpointFile.Image<Media> windowed = CheckpointFile.read(checkpoint, MediaRecordCodec.RECORDS, 16);
+        CheckpointFile.Image<Media> paged = CheckpointFile.read(checkpoint, MediaRecordCodec.RECORDS, 4096);
+
+        // Then
+        List<String> expected = catalog.stream().map(Media::getTitle).toList();
+        for (CheckpointFile.Image<Media> image : List.of(whole, windowed, paged)) {
+            assertEquals(42, image.getLsn());
+            assertEquals(expected, image.getEntities().stream().map(Media::getTitle).toList());
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> CheckpointFile.read(checkpoint, MediaRecordCodec.RECORDS, 8));
+    }
+}
@@ -0,0 +1,189 @@
+package it.epicode.library.repository.storage;
+
+import it.epicode.library.model.exceptions.DataPersistenceException;
+import it.epicode.library.model.media.Book;
+import it.epicode.library.model.media.Media;
+import it.epicode.library.model.user.User;
+import it.epicode.library.repository.AbstractRepository.ConcurrencyMode;
+import it.epicode.library.repository.MediaRepository;
+import it.epicode.library.repository.UserRepository;
+import it.epicode.library.repository.storage.WriteAheadLog.Durability;
+import it.epicode.library.repository.storage.WriteAheadLog.Entry;
+import it.epicode.library.repository.storage.WriteAheadLog.Operation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should log repository mutations in order and continue after reopening")
+    void shouldLogMutationsInOrder() {
+        // Given
+        Path path = directory.resolve("media.wal");
+        MediaRepository repository = new MediaRepository();
+        Book first = new Book("Il Gattopardo", "Giuseppe Tomasi di Lampedusa", "978-8807900082");
+        Book second = new Book("La coscienza di Zeno", "Italo Svevo", "978-8804668237");
+
+        // When
+        try (WriteAheadLog<Media> log = new WriteAheadLog<>(path, MediaRecordCodec.RECORDS, Durability.SYNC, 10)) {
+            repository.attachWriteAheadLog(log);
+            repository.save(first);
+            repository.saveAll(List.of(second));
+            second.setAvailable(false);
+            repository.save(second);
+            repository.deleteById(first.getId());
+            repository.deleteById("missing");
+            repository.deleteAll();
+        }
+        List<Entry<Media>> entries = new ArrayList<>();
+        long lastLsn = WriteAheadLog.replay(path, MediaRecordCodec.RECORDS, 0, entries::add);
+
+        // Then
+        assertEquals(List.of(Operation.SAVE, Operation.SAVE, Operation.SAVE, Operation.DELETE, Operation.CLEAR),
+                entries.stream().map(Entry::getOperation).toList());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), entries.stream().map(Entry::getLsn).toList());
+        assertEquals(5, lastLsn);
+        assertEquals(first.getId(), entries.get(3).getId());
+        assertFalse(entries.get(2).getEntity().isAvailable());
+        assertEquals(second.toCsvString(), entries.get(2).getEntity().toCsvString());
+
+        try (WriteAheadLog<Media> reopened = new WriteAheadLog<>(path, MediaRecordCodec.RECORDS, Durability.SYNC, 10)) {
+            assertEquals(5, reopened.getLastLsn());
+            assertEquals(6, reopened.appendDelete(second.getId()));
+        }
+        assertEquals(1, WriteAheadLog.replay(path, MediaRecordCodec.RECORDS, 5, entry -> { }) - 5);
+    }
+
+    @Test
+    @DisplayName("Should not log a bulk load whose index build fails")
+    void shouldNotLogFailedBulkLoad() {
+        // Given
+        Path path = directory.resolve("bulk.wal");
+        MediaRepository repository = new MediaRepository() {
+            @Override
+            protected IndexFragment buildIndexFragment(List<Media> entities, int[] ordinals) {
+                throw new IllegalStateException("index build failed");
+            }
+        };
+        List<Media> batch = List.of(new Book("Il nome della rosa", "Umberto Eco", "978-8845278655"),
+                new Book("Il pendolo di Foucault", "Umberto Eco", "978-8845246432"));
+
+        // When
+        try (WriteAheadLog<Media> log = new WriteAheadLog<>(path, MediaRecordCodec.RECORDS, Durability.SYNC, 10)) {
+            repository.attachWriteAheadLog(log);
+            assertThrows(IllegalStateException.class, () -> repository.bulkLoad(batch));
+        }
+        List<Entry<Media>> entries = new ArrayList<>();
+        WriteAheadLog.replay(path, MediaRecordCodec.RECORDS, 0, entries::add);
+
+        // Then
+        assertEquals(0, repository.count());
+        assertEquals(List.of(), entries);
+    }
+
+    @Test
+    @DisplayName("Should keep an applied write and stop accepting writes when its commit fails")
+    void shouldFailStopWhenCommitFails() {
+        // Given
+        Path path = directory.resolve("failing.wal");
+        MediaRepository repository = new MediaRepository(ConcurrencyMode.STRIPED);
+        Book book = new Book("Se questo è un uomo", "Primo Levi", "978-8806219352");
+
+        // When
+        try (WriteAheadLog<Media> log = new WriteAheadLog<>(path, MediaRecordCodec.RECORDS, Durability.SYNC, 10) {
+            @Override
+            public void sync(long lsn) {
+                throw new DataPersistenceException("append", path.toString(), new IOException("disk full"));
+            }
+        }) {
+            repository.attachWriteAheadLog(log);
+            assertThrows(DataPersistenceException.class, () -> repository.save(book));
+
+            // Then
+            // Readers may already have seen the write, so it stays applied
+            assertTrue(repository.findById(book.getId()).isPresent());
+            assertThrows(IllegalStateException.class,
+                    () -> repository.save(new Book("La tregua", "Primo Levi", "978-8806219369")));
+            assertThrows(IllegalStateException.class, () -> repository.deleteById(book.getId()));
+            assertThrows(IllegalStateException.class, () -> repository.attachWriteAheadLog(null));
+            assertThrows(IllegalStateException.class, () -> repository.openCheckpointSnapshot(current -> current));
+            assertEquals(1, repository.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should cut off a torn tail when reopening the log")
+    void shouldTruncateTornTail() throws Exception {
+        // Given
+        Path path = directory.resolve("users.wal");
+        try (WriteAheadLog<User> log = new WriteAheadLog<>(path, UserRecordCodec.RECORDS, Durability.OS_BUFFERED, 10)) {
+            log.sync(log.appendSave(new User("Ada", "Lovelace", "ada@example.com")));
+            log.sync(log.appendSave(new User("Alan", "Turing", "alan@example.com")));
+        }
+        long intactSize = Files.size(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            // A crash in the middle of the second frame
+            channel.truncate(intactSize - 7);
+        }
+
+        // When
+        List<String> emails = new ArrayList<>();
+        try (WriteAheadLog<User> log = new WriteAheadLog<>(path, UserRecordCodec.RECORDS, Durability.SYNC, 10)) {
+            assertEquals(1, log.getLastLsn());
+            log.sync(log.appendSave(new User("Grace", "Hopper", "grace@example.com")));
+        }
+        WriteAheadLog.replay(path, UserRecordCodec.RECORDS, 0, entry -> emails.add(entry.getEntity().getEmail()));
+
+        // Then
+        assertEquals(List.of("ada@example.com", "grace@example.com"), emails);
+    }
+
+    @Test
+    @DisplayName("Should share flushes between concurrent writers")
+    void shouldGroupCommitConcurrentWrites() throws Exception {
+        // Given
+        Path path = directory.resolve("group.wal");
+        UserRepository repository = new UserRepository(ConcurrencyMode.STRIPED);
+        int writers = 8;
+        int savesPerWriter = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+
+        // When
+        long flushes;
+        try (WriteAheadLog<User> log = new WriteAheadLog<>(path, UserRecordCodec.RECORDS, Durability.SYNC, 10)) {
+            repository.attachWriteAheadLog(log);
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                executor.submit(() -> {
+                    for (int i = 0; i < savesPerWriter; i++) {
+                        repository.save(new User("User", "N" + i, "user" + writer + "-" + i + "@example.com"));
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+            flushes = log.getFlushCount();
+        }
+
+        // Then
+        Set<String> logged = new HashSet<>();
+        long lastLsn = WriteAheadLog.replay(path, UserRecordCodec.RECORDS, 0, entry -> logged.add(entry.getId()));
+        assertEquals(writers * savesPerWriter, lastLsn);
+        assertEquals(repository.getAllIds(), logged);
+        assertTrue(flushes < writers * savesPerWriter, "flushes: " + flushes);
+    }
+}
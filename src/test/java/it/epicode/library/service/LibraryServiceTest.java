@@ -2,6 +2,9 @@ package it.epicode.library.service;
 
 import it.epicode.library.factory.MediaType;
 import it.epicode.library.model.media.Media;
+import it.epicode.library.repository.RepositorySnapshot;
+import it.epicode.library.util.LibraryConfig;
+import it.epicode.library.util.LibraryExecutors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -9,6 +12,7 @@ import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.*;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 
 class LibraryServiceTest {
@@ -175,6 +179,47 @@ class LibraryServiceTest {
         assertFalse(updatedMedia.get().isAvailable());
     }
 
+    @Test
+    @DisplayName("Should leave open catalog snapshots unchanged when availability is updated")
+    void shouldNotChangeOpenSnapshotsWhenUpdatingAvailability() {
+        // Given
+        Media media = addSingleTestMedia();
+
+        try (RepositorySnapshot<Media> snapshot = libraryService.openCatalogSnapshot()) {
+            // When
+            libraryService.updateMediaAvailability(media.getId(), false);
+
+            // Then
+            assertTrue(snapshot.findById(media.getId()).orElseThrow().isAvailable());
+            assertFalse(libraryService.findMediaById(media.getId()).orElseThrow().isAvailable());
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer author statistics the same with the configured column store")
+    void shouldAnswerAuthorStatisticsWithColumnStore() {
+        // Given
+        addTestMediaItems();
+        markAuthorUnavailable("Audio Author");
+        Map<String, Integer> rowWise = libraryService.getAuthorStatistics(true);
+        libraryService.shutdown();
+        System.setProperty(LibraryConfig.REPOSITORY_COLUMN_STORE, "true");
+        try {
+            libraryService = new LibraryService();
+        } finally {
+            System.clearProperty(LibraryConfig.REPOSITORY_COLUMN_STORE);
+        }
+
+        // When
+        addTestMediaItems();
+        markAuthorUnavailable("Audio Author");
+        Map<String, Integer> columnar = libraryService.getAuthorStatistics(true);
+
+        // Then
+        assertEquals(Map.of("Test Author", 1, "EBook Author", 1), rowWise);
+        assertEquals(rowWise, columnar);
+    }
+
     @Test
     @DisplayName("Should return false when updating non-existent media")
     void shouldReturnFalseWhenUpdatingNonExistentMedia() {
@@ -250,6 +295,34 @@ class LibraryServiceTest {
         assertFalse(results.isEmpty());
     }
 
+    @Test
+    @DisplayName("Should run async operations on a platform pool executor")
+    void shouldRunAsyncOperationsOnPlatformPool() {
+        // Given
+        LibraryService pooled = new LibraryService(
+                LibraryExecutors.create(LibraryExecutors.Mode.PLATFORM, 2, "test-async"));
+        try {
+            Media media = pooled.addMediaAsync(MediaType.BOOK, Map.of(
+                    "title", "Async Book", "author", "Async Author", "isbn", "978-0333333333")).join();
+
+            // When
+            boolean updated = pooled.updateMediaAvailabilityAsync(media.getId(), false).join();
+            Optional<Media> found = pooled.findMediaByIdAsync(media.getId()).join();
+            Map<String, Integer> availability = pooled.getAvailabilityStatisticsAsync().join();
+            Set<String> threads = ConcurrentHashMap.newKeySet();
+            pooled.getTopMediaAsync(m -> threads.add(Thread.currentThread().getName()),
+                    Comparator.comparing(Media::getTitle), 1).join();
+
+            // Then
+            assertTrue(updated);
+            assertFalse(found.orElseThrow().isAvailable());
+            assertEquals(1, availability.get("unavailable"));
+            assertTrue(threads.stream().allMatch(name -> name.startsWith("test-async-")));
+        } finally {
+            pooled.shutdown();
+        }
+    }
+
     @Test
     @DisplayName("Should get repository statistics")
     void shouldGetRepositoryStatistics() {
@@ -312,6 +385,12 @@ class LibraryServiceTest {
     }
 
     // Helper methods
+    private void markAuthorUnavailable(String author) {
+        libraryService.getAllMedia().stream()
+                .filter(media -> media.getMainAuthor().equals(author))
+                .forEach(media -> libraryService.updateMediaAvailability(media.getId(), false));
+    }
+
     private void addTestMediaItems() {
         // Book
         libraryService.addMedia(MediaType.BOOK, Map.of(
@@ -337,6 +416,30 @@ class LibraryServiceTest {
         ));
     }
 
+    @Test
+    @DisplayName("Should cap paginated search at search.maxResults")
+    void shouldCapPaginatedSearchAtMaxResults() {
+        // Given
+        int maxResults = libraryService.getMaxSearchResults();
+        for (int i = 0; i <= maxResults; i++) {
+            libraryService.addMedia(MediaType.BOOK, Map.of(
+                    "title", String.format("Paged Book %03d", i), "author", "Pager", "isbn", "978-" + i));
+        }
+
+        // When
+        var firstPage = libraryService.searchMedia("paged", null, null, maxResults * 2, null);
+        var secondPage = libraryService.searchMedia("paged", null, null, maxResults * 2,
+                firstPage.getNextPageToken().orElseThrow());
+
+        // Then
+        assertEquals(100, maxResults);
+        assertEquals(maxResults, firstPage.getItems().size());
+        assertEquals("Paged Book 000", firstPage.getItems().get(0).getTitle());
+        assertEquals(List.of(String.format("Paged Book %03d", maxResults)),
+                secondPage.getItems().stream().map(Media::getTitle).toList());
+        assertFalse(secondPage.hasNextPage());
+    }
+
     private Media addSingleTestMedia() {
         return libraryService.addMedia(MediaType.BOOK, Map.of(
                 "title", "Single Test Book",
@@ -0,0 +1,91 @@
+package it.epicode.library.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+class CsvParserTest {
+
+    private static final String DOCUMENT = "﻿id,title,note\r\n"
+            + "1,\"Clean Code\",plain\r\n"
+            + "\n"
+            + "2,\"Hello, \"\"World\"\"\",\"line one\nline two\"\n"
+            + "3,Caffè \"speciale\",\n"
+            + "4,\"" + "x".repeat(100) + "\",last";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should parse quoted, multi-line and escaped fields per RFC 4180")
+    void shouldParseRfc4180Fields() {
+        // Given
+        ByteBuffer buffer = ByteBuffer.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_8));
+
+        // When
+        List<List<String>> rows = new ArrayList<>();
+        long count = CsvParser.parse(buffer, row -> rows.add(List.of(row.toArray())));
+
+        // Then
+        assertEquals(5, count);
+        assertEquals(List.of("id", "title", "note"), rows.get(0));
+        assertEquals(List.of("1", "Clean Code", "plain"), rows.get(1));
+        assertEquals(List.of("2", "Hello, \"World\"", "line one\nline two"), rows.get(2));
+        assertEquals(List.of("3", "Caffè \"speciale\"", ""), rows.get(3));
+        assertEquals(List.of("4", "x".repeat(100), "last"), rows.get(4));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    @DisplayName("Should give the same rows when records straddle or outgrow file windows")
+    void shouldParseAcrossWindows() throws IOException {
+        // Given
+        Path file = Files.writeString(directory.resolve("catalog.csv"), DOCUMENT);
+        List<List<String>> expected = new ArrayList<>();
+        CsvParser.parse(ByteBuffer.wrap(Files.readAllBytes(file)), row -> expected.add(List.of(row.toArray())));
+
+        for (int window = 16; window <= 64; window++) {
+            // When
+            List<List<String>> rows = new ArrayList<>();
+            CsvParser.parse(file, window, row -> rows.add(List.of(row.toArray())));
+
+            // Then
+            assertEquals(expected, rows, "window " + window);
+        }
+    }
+
+    @Test
+    @DisplayName("Should parse the bundled sample catalog and reject malformed quoting")
+    void shouldParseSampleAndRejectMalformedInput() throws IOException {
+        // Given
+        byte[] sample;
+        try (InputStream in = getClass().getResourceAsStream("/sample_data.csv")) {
+            sample = Objects.requireNonNull(in).readAllBytes();
+        }
+
+        // When
+        List<Integer> sizes = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        CsvParser.parse(ByteBuffer.wrap(sample), row -> {
+            sizes.add(row.size());
+            titles.add(row.get(1));
+        });
+
+        // Then
+        assertTrue(sizes.size() > 1);
+        assertTrue(sizes.stream().allMatch(size -> size == 6));
+        assertEquals("Clean Code", titles.get(1));
+        assertThrows(IllegalArgumentException.class, () -> CsvParser.parse(
+                ByteBuffer.wrap("a,\"open".getBytes(StandardCharsets.UTF_8)), row -> { }));
+        assertThrows(IllegalArgumentException.class, () -> CsvParser.parse(
+                ByteBuffer.wrap("a,\"closed\"x\n".getBytes(StandardCharsets.UTF_8)), row -> { }));
+    }
+}